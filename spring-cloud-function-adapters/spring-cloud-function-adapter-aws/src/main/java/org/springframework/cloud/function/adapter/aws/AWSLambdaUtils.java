@@ -17,22 +17,30 @@
 package org.springframework.cloud.function.adapter.aws;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
 import com.amazonaws.services.lambda.runtime.serialization.PojoSerializer;
 import com.amazonaws.services.lambda.runtime.serialization.events.LambdaEventSerializers;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.MapperFeature;
@@ -43,11 +51,16 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.cloud.function.context.catalog.FunctionTypeUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
 
 /**
  *
@@ -58,7 +71,17 @@ final class AWSLambdaUtils {
 
 	private static Log logger = LogFactory.getLog(AWSLambdaUtils.class);
 
-	private static final String AWS_API_GATEWAY = "aws-api-gateway";
+	static final String AWS_API_GATEWAY = "aws-api-gateway";
+
+	/**
+	 * Name of the property which enables response streaming for functions producing
+	 * a {@link org.reactivestreams.Publisher}.
+	 */
+	static final String RESPONSE_STREAMING = "spring.cloud.function.aws.response-streaming";
+
+	private static final byte[] OK = "\"OK\"".getBytes(StandardCharsets.UTF_8);
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
 	private AWSLambdaUtils() {
 
@@ -79,13 +102,33 @@ final class AWSLambdaUtils {
 				|| typeName.equals("com.amazonaws.services.lambda.runtime.events.KinesisEvent");
 	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public static Message<byte[]> generateMessage(byte[] payload, MessageHeaders headers,
 			Type inputType, ObjectMapper objectMapper, @Nullable Context awsContext) {
-
-		if (logger.isInfoEnabled()) {
-			logger.info("Incoming JSON Event: " + new String(payload));
+		if (logger.isDebugEnabled()) {
+			logger.debug("Incoming JSON Event: " + new String(payload, StandardCharsets.UTF_8));
 		}
+		return generateMessage(new ByteArrayInputStream(payload), payload, headers, inputType, objectMapper, awsContext);
+	}
+
+	/**
+	 * Variant of {@link #generateMessage(byte[], MessageHeaders, Type, ObjectMapper, Context)} which parses
+	 * supported AWS events directly from the provided stream without buffering it first. Other events are
+	 * buffered, so unless they have to be bound (e.g., API Gateway events) they are passed on as is.
+	 * @param payload stream of the event
+	 * @param headers message headers
+	 * @param inputType input type of the function
+	 * @param objectMapper object mapper
+	 * @param awsContext AWS context (could be null)
+	 * @return message representing the event
+	 */
+	public static Message<byte[]> generateMessage(InputStream payload, MessageHeaders headers,
+			Type inputType, ObjectMapper objectMapper, @Nullable Context awsContext) {
+		return generateMessage(payload, null, headers, inputType, objectMapper, awsContext);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Message<byte[]> generateMessage(InputStream payloadStream, @Nullable byte[] payload,
+			MessageHeaders headers, Type inputType, ObjectMapper objectMapper, @Nullable Context awsContext) {
 
 		if (FunctionTypeUtils.isMessage(inputType)) {
 			inputType = FunctionTypeUtils.getImmediateGenericType(inputType, 0);
@@ -94,7 +137,7 @@ final class AWSLambdaUtils {
 		MessageBuilder messageBuilder = null;
 		if (inputType != null && isSupportedAWSType(inputType)) {
 			PojoSerializer<?> serializer = LambdaEventSerializers.serializerFor(FunctionTypeUtils.getRawType(inputType), Thread.currentThread().getContextClassLoader());
-			Object event = serializer.fromJson(new ByteArrayInputStream(payload));
+			Object event = serializer.fromJson(payloadStream);
 			messageBuilder = MessageBuilder.withPayload(event);
 			if (event instanceof APIGatewayProxyRequestEvent || event instanceof APIGatewayV2HTTPEvent) {
 				messageBuilder.setHeader(AWS_API_GATEWAY, true);
@@ -105,6 +148,18 @@ final class AWSLambdaUtils {
 			if (!objectMapper.isEnabled(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES)) {
 				configureObjectMapper(objectMapper);
 			}
+			try {
+				if (payload == null) {
+					payload = StreamUtils.copyToByteArray(payloadStream);
+				}
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			if (!isStructuredEvent(payload)) {
+				// passed to the function as is, without being bound and serialized again
+				return withContext(MessageBuilder.withPayload(payload), awsContext).copyHeaders(headers).build();
+			}
 			Object request;
 			try {
 				request = objectMapper.readValue(payload, Object.class);
@@ -114,7 +169,9 @@ final class AWSLambdaUtils {
 			}
 
 			if (request instanceof Map) {
-				logger.info("Incoming MAP: " + request);
+				if (logger.isDebugEnabled()) {
+					logger.debug("Incoming MAP: " + request);
+				}
 				if (((Map) request).containsKey("httpMethod")) { //API Gateway
 					logger.info("Incoming request is API Gateway");
 					boolean mapInputType = (inputType instanceof ParameterizedType && ((Class<?>) ((ParameterizedType) inputType).getRawType()).isAssignableFrom(Map.class));
@@ -145,12 +202,52 @@ final class AWSLambdaUtils {
 		if (messageBuilder == null) {
 			messageBuilder = MessageBuilder.withPayload(payload);
 		}
+		logger.info("Incoming request headers: " + headers);
+
+		return withContext(messageBuilder, awsContext).copyHeaders(headers).build();
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static MessageBuilder withContext(MessageBuilder messageBuilder, @Nullable Context awsContext) {
 		if (awsContext != null) {
 			messageBuilder.setHeader("aws-context", awsContext);
 		}
-		logger.info("Incoming request headers: " + headers);
+		return messageBuilder;
+	}
 
-		return messageBuilder.copyHeaders(headers).build();
+	/*
+	 * Only the top level of the event is examined. API Gateway events and arrays have to be
+	 * bound, while any other event is given to the function as is.
+	 */
+	private static boolean isStructuredEvent(byte[] payload) {
+		try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.START_ARRAY) {
+				return true;
+			}
+			if (token != JsonToken.START_OBJECT) {
+				return false;
+			}
+			boolean routeKey = false;
+			boolean version = false;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				if ("httpMethod".equals(fieldName)) {
+					return true;
+				}
+				routeKey |= "routeKey".equals(fieldName);
+				version |= "version".equals(fieldName);
+				if (routeKey && version) {
+					return true;
+				}
+				parser.nextToken();
+				parser.skipChildren();
+			}
+			return false;
+		}
+		catch (IOException e) {
+			return false;
+		}
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
@@ -164,67 +261,220 @@ final class AWSLambdaUtils {
 		catch (Exception e) {
 			throw new IllegalStateException(e);
 		}
-		logger.info("Body is " + body);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Body is " + body);
+		}
 
 		MessageBuilder messageBuilder = MessageBuilder.withPayload(body).copyHeaders(request);
 		messageBuilder.setHeader(AWS_API_GATEWAY, true);
 		return messageBuilder;
 	}
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@SuppressWarnings("rawtypes")
 	public static byte[] generateOutput(Message requestMessage, Message<byte[]> responseMessage,
 			ObjectMapper objectMapper, Type functionOutputType) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(
+				responseMessage == null ? 128 : responseMessage.getPayload().length + 256);
+		writeOutput(requestMessage, responseMessage, objectMapper, functionOutputType, output);
+		return output.toByteArray();
+	}
+
+	/**
+	 * Writes the output of the function to the provided stream. For API Gateway requests the
+	 * output is written as API Gateway response in a single pass directly from the payload
+	 * of the response message.
+	 * @param requestMessage request message
+	 * @param responseMessage response message (could be null)
+	 * @param objectMapper object mapper
+	 * @param functionOutputType output type of the function
+	 * @param output stream to write output to (will not be closed)
+	 */
+	@SuppressWarnings("rawtypes")
+	public static void writeOutput(Message requestMessage, @Nullable Message<byte[]> responseMessage,
+			ObjectMapper objectMapper, Type functionOutputType, OutputStream output) {
+		try {
+			Class<?> outputClass = FunctionTypeUtils.getRawType(functionOutputType);
+			if (outputClass != null) {
+				String outputClassName = outputClass.getName();
+				if (outputClassName.equals("com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse") ||
+					outputClassName.equals("com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent")) {
+					output.write(responseMessage.getPayload());
+					return;
+				}
+			}
 
-		Class<?> outputClass = FunctionTypeUtils.getRawType(functionOutputType);
-		if (outputClass != null) {
-			String outputClassName = outputClass.getName();
-			if (outputClassName.equals("com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse") ||
-				outputClassName.equals("com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent")) {
-				return responseMessage.getPayload();
+			if (!objectMapper.isEnabled(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES)) {
+				configureObjectMapper(objectMapper);
+			}
+			if (Boolean.TRUE.equals(requestMessage.getHeaders().get(AWS_API_GATEWAY))) {
+				writeApiGatewayResponse(requestMessage, responseMessage, objectMapper, output);
 			}
+			else {
+				output.write(responseMessage == null ? OK : responseMessage.getPayload());
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to serialize AWS Lambda output", e);
 		}
+	}
 
-		if (!objectMapper.isEnabled(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES)) {
-			configureObjectMapper(objectMapper);
+	private static void writeApiGatewayResponse(Message<?> requestMessage, @Nullable Message<byte[]> responseMessage,
+			ObjectMapper objectMapper, OutputStream output) throws IOException {
+		MessageHeaders headers = responseMessage == null ? null : responseMessage.getHeaders();
+		int statusCode = HttpStatus.OK.value();
+		if (headers != null && headers.containsKey("statusCode")) {
+			Object status = headers.get("statusCode");
+			statusCode = status instanceof Number ? ((Number) status).intValue() : Integer.parseInt(status.toString());
 		}
-		byte[] responseBytes = responseMessage  == null ? "\"OK\"".getBytes() : responseMessage.getPayload();
-		if (requestMessage.getHeaders().containsKey(AWS_API_GATEWAY) && ((boolean) requestMessage.getHeaders().get(AWS_API_GATEWAY))) {
-			Map<String, Object> response = new HashMap<String, Object>();
-			response.put("isBase64Encoded", false);
+		boolean binary = headers != null && isBinary(headers.get(MessageHeaders.CONTENT_TYPE));
+		boolean v2 = isApiGatewayV2(requestMessage);
 
-			AtomicReference<MessageHeaders> headers = new AtomicReference<>();
-			int statusCode = HttpStatus.OK.value();
-			if (responseMessage != null) {
-				headers.set(responseMessage.getHeaders());
-				statusCode = headers.get().containsKey("statusCode")
-						? (int) headers.get().get("statusCode")
-						: HttpStatus.OK.value();
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(StreamUtils.nonClosing(output),
+				JsonEncoding.UTF8)) {
+			generator.writeStartObject();
+			generator.writeNumberField("statusCode", statusCode);
+			if (isRequestKinesis(requestMessage)) {
+				generator.writeStringField("statusDescription", HttpStatus.valueOf(statusCode).toString());
+			}
+			generator.writeBooleanField("isBase64Encoded", binary);
+
+			if (headers != null) {
+				List<String> cookies = new ArrayList<>();
+				generator.writeObjectFieldStart("headers");
+				for (Map.Entry<String, Object> header : headers.entrySet()) {
+					if (HttpHeaders.SET_COOKIE.equalsIgnoreCase(header.getKey()) || "cookies".equals(header.getKey())) {
+						addValues(header.getValue(), cookies);
+					}
+					else if (header.getValue() != null) {
+						generator.writeStringField(header.getKey(), toHeaderValue(header.getValue()));
+					}
+				}
+				if (!v2 && cookies.size() == 1) {
+					generator.writeStringField(HttpHeaders.SET_COOKIE, cookies.get(0));
+				}
+				generator.writeEndObject();
+				if (cookies.size() > 1 || (v2 && !cookies.isEmpty())) {
+					if (v2) {
+						generator.writeArrayFieldStart("cookies");
+					}
+					else {
+						generator.writeObjectFieldStart("multiValueHeaders");
+						generator.writeArrayFieldStart(HttpHeaders.SET_COOKIE);
+					}
+					for (String cookie : cookies) {
+						generator.writeString(cookie);
+					}
+					generator.writeEndArray();
+					if (!v2) {
+						generator.writeEndObject();
+					}
+				}
 			}
 
-			response.put("statusCode", statusCode);
-			if (isRequestKinesis(requestMessage)) {
-				HttpStatus httpStatus = HttpStatus.valueOf(statusCode);
-				response.put("statusDescription", httpStatus.toString());
+			generator.writeFieldName("body");
+			byte[] body = responseMessage == null ? OK : responseMessage.getPayload();
+			if (binary) {
+				generator.writeBinary(body);
 			}
+			else if (responseMessage != null && isJsonString(body)) {
+				// already a JSON string, so it is written without quotes and without escaping it again
+				generator.writeRawUTF8String(body, 1, body.length - 2);
+			}
+			else {
+				generator.writeUTF8String(body, 0, body.length);
+			}
+			generator.writeEndObject();
+		}
+	}
 
-			String body = responseMessage == null
-					? "\"OK\"" : new String(responseMessage.getPayload(), StandardCharsets.UTF_8).replaceAll("\\\"", "");
-			response.put("body", body);
+	/**
+	 * Writes a single element produced by a streaming function and flushes the stream,
+	 * so the element reaches the client as soon as it is produced.
+	 * Binary and textual values are written as is while other values are serialized to JSON.
+	 * Each element is followed by a new line, so the elements of the response are
+	 * newline delimited (e.g., NDJSON).
+	 * @param value element produced by the function
+	 * @param objectMapper object mapper
+	 * @param output stream to write element to
+	 * @throws IOException if writing fails
+	 */
+	static void writeChunk(Object value, ObjectMapper objectMapper, OutputStream output) throws IOException {
+		if (value instanceof Message) {
+			value = ((Message<?>) value).getPayload();
+		}
+		if (value instanceof byte[]) {
+			output.write((byte[]) value);
+		}
+		else if (value instanceof CharSequence) {
+			output.write(value.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		else if (value != null) {
+			objectMapper.writeValue(StreamUtils.nonClosing(output), value);
+		}
+		output.write('\n');
+		output.flush();
+	}
 
-			if (responseMessage != null) {
-				Map<String, String> responseHeaders = new HashMap<>();
-				headers.get().keySet().forEach(key -> responseHeaders.put(key, headers.get().get(key).toString()));
-				response.put("headers", responseHeaders);
+	/*
+	 * Determines if the body is exactly one valid JSON string (e.g., not '"a","b"' or
+	 * a string with unescaped control characters), so it can be written without escaping.
+	 */
+	private static boolean isJsonString(byte[] body) {
+		if (body.length < 2 || body[0] != '"' || body[body.length - 1] != '"') {
+			return false;
+		}
+		try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+			if (parser.nextToken() != JsonToken.VALUE_STRING) {
+				return false;
 			}
+			// string content is validated lazily, so it is decoded
+			parser.getText();
+			return parser.nextToken() == null;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
 
-			try {
-				responseBytes = objectMapper.writeValueAsBytes(response);
+	private static boolean isApiGatewayV2(Message<?> requestMessage) {
+		return requestMessage.getPayload() instanceof APIGatewayV2HTTPEvent
+				|| ("2.0".equals(requestMessage.getHeaders().get("version"))
+						&& requestMessage.getHeaders().containsKey("routeKey"));
+	}
+
+	private static boolean isBinary(@Nullable Object contentType) {
+		if (contentType == null) {
+			return false;
+		}
+		MimeType mimeType = contentType instanceof MimeType
+				? (MimeType) contentType : MimeTypeUtils.parseMimeType(contentType.toString());
+		String subtype = mimeType.getSubtype();
+		return !("text".equals(mimeType.getType()) || subtype.contains("json") || subtype.contains("xml")
+				|| subtype.contains("javascript") || subtype.contains("x-www-form-urlencoded")
+				|| subtype.contains("yaml"));
+	}
+
+	private static String toHeaderValue(Object value) {
+		if (value instanceof Collection) {
+			return StringUtils.collectionToCommaDelimitedString((Collection<?>) value);
+		}
+		return value.toString();
+	}
+
+	private static void addValues(Object value, List<String> values) {
+		if (value instanceof Collection) {
+			for (Object item : (Collection<?>) value) {
+				values.add(item.toString());
 			}
-			catch (Exception e) {
-				throw new IllegalStateException("Failed to serialize AWS Lambda output", e);
+		}
+		else if (value instanceof Object[]) {
+			for (Object item : (Object[]) value) {
+				values.add(item.toString());
 			}
 		}
-		return responseBytes;
+		else if (value != null) {
+			values.add(value.toString());
+		}
 	}
 
 	private static void configureObjectMapper(ObjectMapper objectMapper) {
@@ -244,7 +494,7 @@ final class AWSLambdaUtils {
 	}
 
 
-	private static boolean isRequestKinesis(Message<Object> requestMessage) {
+	private static boolean isRequestKinesis(Message<?> requestMessage) {
 		return requestMessage.getHeaders().containsKey("Records");
 	}
 }
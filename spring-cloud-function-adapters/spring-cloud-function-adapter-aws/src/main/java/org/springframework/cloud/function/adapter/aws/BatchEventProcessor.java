@@ -0,0 +1,346 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.adapter.aws;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.amazonaws.kinesis.deagg.RecordDeaggregator;
+import com.amazonaws.services.kinesis.clientlibrary.types.UserRecord;
+import com.amazonaws.services.lambda.runtime.events.KinesisEvent;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.function.context.catalog.SimpleFunctionRegistry.FunctionInvocationWrapper;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Processes the records of SQS, Kinesis and DynamoDB Streams batch events individually,
+ * invoking the function once per record and reporting failed records as
+ * 'batchItemFailures' (see 'ReportBatchItemFailures' function response type),
+ * so only the failed records are retried by AWS Lambda.
+ * <br>
+ * Records are grouped by their ordering key. Groups are processed in parallel while the records
+ * within the group are processed sequentially. Once a record fails, all subsequent records of its
+ * group are reported as failed without being processed, so the order is preserved when they are retried.
+ * <br>
+ * SQS FIFO records are grouped by message group id and records of standard queues are not ordered.
+ * AWS Lambda checkpoints Kinesis and DynamoDB Streams shards at the lowest failed sequence number
+ * (records of a single event always belong to a single shard), so stream records form a single group
+ * and are processed in sequence order. Aggregated (KPL) Kinesis records are de-aggregated, and sub-records
+ * are reported with the sequence number of the aggregated record.
+ *
+ * @author Oleg Zhurakousky
+ * @since 3.2
+ *
+ */
+final class BatchEventProcessor {
+
+	private static Log logger = LogFactory.getLog(BatchEventProcessor.class);
+
+	/**
+	 * Name of the property which enables batch processing.
+	 */
+	static final String BATCH_ENABLED = "spring.cloud.function.aws.batch.enabled";
+
+	/**
+	 * Name of the property which limits the amount of record groups processed in parallel.
+	 * Only SQS records form multiple groups, stream records are always processed in sequence.
+	 */
+	static final String BATCH_PARALLELISM = "spring.cloud.function.aws.batch.parallelism";
+
+	/**
+	 * Header which contains the source of the record (e.g., 'aws:sqs').
+	 */
+	static final String EVENT_SOURCE = "aws-event-source";
+
+	/**
+	 * Header which contains the identifier of the record reported in case of failure.
+	 */
+	static final String ITEM_IDENTIFIER = "aws-item-identifier";
+
+	/**
+	 * Header which contains the ordering key of the record (SQS message group id, or the
+	 * event source ARN of stream records).
+	 */
+	static final String ORDERING_KEY = "aws-ordering-key";
+
+	private static final String SQS = "aws:sqs";
+
+	private static final String KINESIS = "aws:kinesis";
+
+	private static final String DYNAMODB = "aws:dynamodb";
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private static final byte[] KPL_MAGIC = new byte[] {(byte) 0xF3, (byte) 0x89, (byte) 0x9A, (byte) 0xC2};
+
+	private final FunctionInvocationWrapper function;
+
+	private final ObjectMapper objectMapper;
+
+	private final ExecutorService executor;
+
+	BatchEventProcessor(FunctionInvocationWrapper function, ObjectMapper objectMapper, int parallelism) {
+		this.function = function;
+		this.objectMapper = objectMapper;
+		this.executor = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("batch-record-"));
+	}
+
+	/**
+	 * Determines if provided event is a batch event supported by this processor.
+	 * Only the event source of the first record is examined with a streaming parser,
+	 * so events which are not batches are not bound to any structure.
+	 * @param event the event
+	 * @return true if event is SQS, Kinesis or DynamoDB Streams batch
+	 */
+	static boolean isBatchEvent(byte[] event) {
+		try (JsonParser parser = JSON_FACTORY.createParser(event)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return false;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if ("Records".equals(fieldName)) {
+					if (token != JsonToken.START_ARRAY || parser.nextToken() != JsonToken.START_OBJECT) {
+						return false;
+					}
+					String eventSource = eventSource(parser);
+					return SQS.equals(eventSource) || KINESIS.equals(eventSource) || DYNAMODB.equals(eventSource);
+				}
+				parser.skipChildren();
+			}
+			return false;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Processes the records of the batch event writing 'batchItemFailures' response
+	 * to the provided stream.
+	 * @param event the batch event
+	 * @param output stream to write response to
+	 * @throws IOException if writing response fails
+	 */
+	void process(JsonNode event, OutputStream output) throws IOException {
+		Map<String, List<Message<byte[]>>> groups = new LinkedHashMap<>();
+		for (JsonNode record : event.path("Records")) {
+			for (Message<byte[]> message : this.toMessages(record)) {
+				groups.computeIfAbsent((String) message.getHeaders().get(ORDERING_KEY), k -> new ArrayList<>()).add(message);
+			}
+		}
+
+		List<CompletableFuture<List<String>>> results = new ArrayList<>(groups.size());
+		for (List<Message<byte[]>> group : groups.values()) {
+			results.add(CompletableFuture.supplyAsync(() -> this.processGroup(group), this.executor));
+		}
+
+		try (JsonGenerator generator = this.objectMapper.getFactory()
+				.createGenerator(StreamUtils.nonClosing(output), JsonEncoding.UTF8)) {
+			generator.writeStartObject();
+			generator.writeArrayFieldStart("batchItemFailures");
+			for (CompletableFuture<List<String>> result : results) {
+				for (String itemIdentifier : result.join()) {
+					generator.writeStartObject();
+					generator.writeStringField("itemIdentifier", itemIdentifier);
+					generator.writeEndObject();
+				}
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+		}
+	}
+
+	void destroy() {
+		this.executor.shutdown();
+	}
+
+	/*
+	 * Returns identifiers of the failed records.
+	 */
+	private List<String> processGroup(List<Message<byte[]>> group) {
+		for (int i = 0; i < group.size(); i++) {
+			Message<byte[]> message = group.get(i);
+			try {
+				Object result = this.function.apply(message);
+				if (result instanceof Publisher) {
+					Flux.from((Publisher<?>) result).blockLast();
+				}
+			}
+			catch (Exception e) {
+				logger.error("Failed to process record " + message.getHeaders().get(ITEM_IDENTIFIER), e);
+				// sub-records of aggregated Kinesis record share the identifier
+				Set<String> failures = new LinkedHashSet<>();
+				for (Message<byte[]> failed : group.subList(i, group.size())) {
+					failures.add((String) failed.getHeaders().get(ITEM_IDENTIFIER));
+				}
+				return new ArrayList<>(failures);
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	private List<Message<byte[]>> toMessages(JsonNode record) {
+		String eventSource = eventSource(record);
+		try {
+			if (SQS.equals(eventSource)) {
+				String itemIdentifier = record.path("messageId").asText();
+				JsonNode groupId = record.path("attributes").path("MessageGroupId");
+				// records of standard queues have no ordering
+				String orderingKey = groupId.isMissingNode() ? itemIdentifier : groupId.asText();
+				return Collections.singletonList(toMessage(record.path("body").asText().getBytes(StandardCharsets.UTF_8),
+						eventSource, itemIdentifier, orderingKey));
+			}
+			String orderingKey = streamOrderingKey(record, eventSource);
+			if (KINESIS.equals(eventSource)) {
+				JsonNode kinesis = record.path("kinesis");
+				byte[] data = Base64.getDecoder().decode(kinesis.path("data").asText());
+				String itemIdentifier = kinesis.path("sequenceNumber").asText();
+				if (!isAggregated(data)) {
+					return Collections.singletonList(toMessage(data, eventSource, itemIdentifier, orderingKey));
+				}
+				List<Message<byte[]>> messages = new ArrayList<>();
+				for (byte[] userRecord : KinesisDeaggregator.deaggregate(data,
+						kinesis.path("partitionKey").asText(), itemIdentifier)) {
+					messages.add(toMessage(userRecord, eventSource, itemIdentifier, orderingKey));
+				}
+				return messages;
+			}
+			JsonNode dynamodb = record.path("dynamodb");
+			return Collections.singletonList(toMessage(this.objectMapper.writeValueAsBytes(dynamodb),
+					eventSource, dynamodb.path("SequenceNumber").asText(), orderingKey));
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to read record " + record, e);
+		}
+	}
+
+	private static Message<byte[]> toMessage(byte[] payload, String eventSource, String itemIdentifier, String orderingKey) {
+		return MessageBuilder.withPayload(payload)
+				.setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+				.setHeader(EVENT_SOURCE, eventSource)
+				.setHeader(ITEM_IDENTIFIER, itemIdentifier)
+				.setHeader(ORDERING_KEY, orderingKey)
+				.build();
+	}
+
+	/*
+	 * Records of a single event belong to a single shard and are checkpointed by sequence number,
+	 * so all stream records share the ordering key.
+	 */
+	private static String streamOrderingKey(JsonNode record, String eventSource) {
+		JsonNode eventSourceArn = record.path("eventSourceARN");
+		return eventSourceArn.isMissingNode() ? eventSource : eventSourceArn.asText();
+	}
+
+	private static boolean isAggregated(byte[] data) {
+		if (data.length <= KPL_MAGIC.length) {
+			return false;
+		}
+		for (int i = 0; i < KPL_MAGIC.length; i++) {
+			if (data[i] != KPL_MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Reads the event source of the record the parser is positioned at, preferring
+	 * 'eventSource' over 'EventSource' as the tree based variant does.
+	 */
+	private static String eventSource(JsonParser parser) throws IOException {
+		String eventSource = null;
+		String capitalizedEventSource = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.VALUE_STRING && "eventSource".equals(fieldName)) {
+				eventSource = parser.getText();
+			}
+			else if (token == JsonToken.VALUE_STRING && "EventSource".equals(fieldName)) {
+				capitalizedEventSource = parser.getText();
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+		return eventSource != null ? eventSource : capitalizedEventSource;
+	}
+
+	private static String eventSource(JsonNode record) {
+		JsonNode eventSource = record.path("eventSource");
+		return eventSource.isMissingNode() ? record.path("EventSource").asText() : eventSource.asText();
+	}
+
+	/*
+	 * Isolates Kinesis de-aggregation classes, since they are optional dependencies
+	 * only required for records produced by KPL.
+	 */
+	private static final class KinesisDeaggregator {
+
+		static List<byte[]> deaggregate(byte[] data, String partitionKey, String sequenceNumber) {
+			KinesisEvent.Record record = new KinesisEvent.Record();
+			record.setData(ByteBuffer.wrap(data));
+			record.setPartitionKey(partitionKey);
+			record.setSequenceNumber(sequenceNumber);
+			KinesisEvent.KinesisEventRecord eventRecord = new KinesisEvent.KinesisEventRecord();
+			eventRecord.setKinesis(record);
+
+			List<byte[]> userRecords = new ArrayList<>();
+			for (UserRecord userRecord : RecordDeaggregator.deaggregate(Collections.singletonList(eventRecord))) {
+				ByteBuffer buffer = userRecord.getData();
+				byte[] bytes = new byte[buffer.remaining()];
+				buffer.get(bytes);
+				userRecords.add(bytes);
+			}
+			return userRecords;
+		}
+
+	}
+
+}
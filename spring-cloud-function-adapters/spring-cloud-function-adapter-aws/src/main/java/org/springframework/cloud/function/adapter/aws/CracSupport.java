@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.adapter.aws;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Registers checkpoint/restore (CRaC) hooks with 'org.crac' (or 'jdk.crac') API
+ * when it is available on the classpath, for example when running on AWS Lambda SnapStart.
+ * <br>
+ * The API is accessed reflectively so no dependency is required and registration is a no-op
+ * when it is not available.
+ *
+ * @author Oleg Zhurakousky
+ * @since 3.2
+ *
+ */
+final class CracSupport {
+
+	private static Log logger = LogFactory.getLog(CracSupport.class);
+
+	private static final String[] CRAC_PACKAGES = new String[] {"org.crac", "jdk.crac"};
+
+	private CracSupport() {
+
+	}
+
+	/**
+	 * Registers hooks invoked before checkpoint and after restore.
+	 * <br>
+	 * CRaC context references registered resources weakly, so the returned resource
+	 * must be referenced for as long as the hooks are needed.
+	 * @param beforeCheckpoint hook invoked before checkpoint
+	 * @param afterRestore hook invoked after restore
+	 * @return registered resource or null if CRaC API is not available
+	 */
+	static Object register(Runnable beforeCheckpoint, Runnable afterRestore) {
+		ClassLoader classLoader = CracSupport.class.getClassLoader();
+		for (String cracPackage : CRAC_PACKAGES) {
+			if (ClassUtils.isPresent(cracPackage + ".Core", classLoader)) {
+				try {
+					Class<?> resourceClass = ClassUtils.forName(cracPackage + ".Resource", classLoader);
+					Object resource = Proxy.newProxyInstance(classLoader, new Class<?>[] {resourceClass},
+							(proxy, method, args) -> invoke(proxy, method, args, beforeCheckpoint, afterRestore));
+					Object context = ClassUtils.forName(cracPackage + ".Core", classLoader)
+							.getMethod("getGlobalContext").invoke(null);
+					// runtime class of the context is not accessible, so the method is resolved from the public API
+					ClassUtils.forName(cracPackage + ".Context", classLoader)
+							.getMethod("register", resourceClass).invoke(context, resource);
+					if (logger.isInfoEnabled()) {
+						logger.info("Registered checkpoint/restore hooks with '" + cracPackage + "'");
+					}
+					return resource;
+				}
+				catch (Exception e) {
+					logger.warn("Failed to register checkpoint/restore hooks with '" + cracPackage + "'", e);
+				}
+			}
+		}
+		return null;
+	}
+
+	private static Object invoke(Object proxy, Method method, Object[] args,
+			Runnable beforeCheckpoint, Runnable afterRestore) {
+		switch (method.getName()) {
+			case "beforeCheckpoint":
+				beforeCheckpoint.run();
+				return null;
+			case "afterRestore":
+				afterRestore.run();
+				return null;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "CracResource@" + Integer.toHexString(System.identityHashCode(proxy));
+			default:
+				throw new UnsupportedOperationException(method.getName());
+		}
+	}
+
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.adapter.aws;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Minimal client for the AWS Lambda Runtime API used by {@link CustomRuntimeEventLoop}.
+ * <br>
+ * It relies on {@link HttpURLConnection} which transparently keeps the underlying
+ * connection to the Runtime API alive as long as every response body is fully consumed,
+ * which is why response bodies of the runtime are always drained and discarded.
+ * Event bodies are read as raw bytes without any intermediate decoding. Responses rejected
+ * by the Runtime API (e.g., '413 Payload Too Large') are logged with their error body.
+ *
+ * @author Oleg Zhurakousky
+ * @since 3.2
+ *
+ */
+final class CustomRuntimeApiClient {
+
+	private static Log logger = LogFactory.getLog(CustomRuntimeApiClient.class);
+
+	static final String REQUEST_ID_HEADER = "Lambda-Runtime-Aws-Request-Id";
+
+	static final String RESPONSE_MODE_HEADER = "Lambda-Runtime-Function-Response-Mode";
+
+	private static final String LAMBDA_RUNTIME_URL_TEMPLATE = "http://{0}/{1}/runtime/invocation/next";
+
+	private static final String LAMBDA_INVOCATION_URL_TEMPLATE = "http://{0}/{1}/runtime/invocation/{2}/response";
+
+	private final String runtimeApi;
+
+	private final URL eventUrl;
+
+	CustomRuntimeApiClient(String runtimeApi) {
+		this.runtimeApi = runtimeApi;
+		this.eventUrl = toUrl(MessageFormat.format(LAMBDA_RUNTIME_URL_TEMPLATE, runtimeApi,
+				CustomRuntimeEventLoop.LAMBDA_VERSION_DATE));
+	}
+
+	URL getEventUrl() {
+		return this.eventUrl;
+	}
+
+	/**
+	 * Performs (blocking) long-poll for the next event.
+	 * @return next event
+	 */
+	RuntimeEvent nextEvent() {
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) this.eventUrl.openConnection();
+			connection.setRequestMethod("GET");
+			int status = connection.getResponseCode();
+			if (status / 100 != 2) {
+				drain(connection);
+				throw new IllegalStateException("Failed to retrieve next event from " + this.eventUrl
+						+ ". Status: " + status);
+			}
+			HttpHeaders headers = toHttpHeaders(connection.getHeaderFields());
+			byte[] body;
+			try (InputStream stream = connection.getInputStream()) {
+				body = read(stream, connection.getContentLength());
+			}
+			return new RuntimeEvent(headers, body);
+		}
+		catch (IOException e) {
+			if (connection != null) {
+				connection.disconnect();
+			}
+			throw new IllegalStateException("Failed to retrieve next event from " + this.eventUrl, e);
+		}
+	}
+
+	/**
+	 * Posts the result of the invocation identified by 'requestId'.
+	 * @param requestId the value of 'Lambda-Runtime-Aws-Request-Id' header of the event
+	 * @param body result of the invocation
+	 * @return HTTP status of the response
+	 */
+	int postResponse(String requestId, byte[] body) {
+		URL invocationUrl = toUrl(MessageFormat.format(LAMBDA_INVOCATION_URL_TEMPLATE, this.runtimeApi,
+				CustomRuntimeEventLoop.LAMBDA_VERSION_DATE, requestId));
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) invocationUrl.openConnection();
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			connection.setFixedLengthStreamingMode(body.length);
+			connection.setRequestProperty(HttpHeaders.CONTENT_TYPE, "application/json");
+			try (OutputStream stream = connection.getOutputStream()) {
+				stream.write(body);
+			}
+			return complete(connection, requestId);
+		}
+		catch (IOException e) {
+			if (connection != null) {
+				connection.disconnect();
+			}
+			throw new IllegalStateException("Failed to post response to " + invocationUrl, e);
+		}
+	}
+
+	/**
+	 * Streams the result of the invocation identified by 'requestId' using chunked
+	 * transfer encoding and 'streaming' response mode of the Runtime API.
+	 * @param requestId the value of 'Lambda-Runtime-Aws-Request-Id' header of the event
+	 * @param writer writes (and flushes) the result as it is produced
+	 * @return HTTP status of the response
+	 */
+	int streamResponse(String requestId, BodyWriter writer) {
+		URL invocationUrl = toUrl(MessageFormat.format(LAMBDA_INVOCATION_URL_TEMPLATE, this.runtimeApi,
+				CustomRuntimeEventLoop.LAMBDA_VERSION_DATE, requestId));
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) invocationUrl.openConnection();
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			connection.setChunkedStreamingMode(0);
+			connection.setRequestProperty(RESPONSE_MODE_HEADER, "streaming");
+			connection.setRequestProperty(HttpHeaders.CONTENT_TYPE, "application/octet-stream");
+			OutputStream stream = connection.getOutputStream();
+			writer.write(stream);
+			// closing the stream writes the terminating chunk, so it is only done on success
+			stream.close();
+			return complete(connection, requestId);
+		}
+		catch (IOException | RuntimeException e) {
+			if (connection != null) {
+				// aborts the response, so the Runtime API does not treat partial result as complete
+				connection.disconnect();
+			}
+			throw new IllegalStateException("Failed to stream response to " + invocationUrl, e);
+		}
+	}
+
+	/*
+	 * Rejected responses are not retried, since the invocation is reported as failed by
+	 * the Runtime API, but they are logged, so the failure is visible.
+	 */
+	private static int complete(HttpURLConnection connection, String requestId) throws IOException {
+		int status = connection.getResponseCode();
+		if (status / 100 == 2) {
+			drain(connection);
+			return status;
+		}
+		String error = "";
+		InputStream stream = connection.getErrorStream();
+		if (stream != null) {
+			try {
+				error = StreamUtils.copyToString(stream, StandardCharsets.UTF_8);
+			}
+			finally {
+				stream.close();
+			}
+		}
+		logger.warn("Lambda Runtime API rejected the response of invocation '" + requestId
+				+ "'. Status: " + status + ". Error: " + error);
+		return status;
+	}
+
+	/*
+	 * Response body (including error body) must be fully read and the stream closed
+	 * for the connection to be returned to the keep-alive cache.
+	 */
+	private static void drain(HttpURLConnection connection) throws IOException {
+		InputStream stream = connection.getResponseCode() < 400
+				? connection.getInputStream() : connection.getErrorStream();
+		if (stream != null) {
+			try {
+				StreamUtils.drain(stream);
+			}
+			finally {
+				stream.close();
+			}
+		}
+	}
+
+	private static byte[] read(InputStream stream, int contentLength) throws IOException {
+		if (contentLength < 0) {
+			return StreamUtils.copyToByteArray(stream);
+		}
+		byte[] body = new byte[contentLength];
+		int offset = 0;
+		while (offset < contentLength) {
+			int read = stream.read(body, offset, contentLength - offset);
+			if (read < 0) {
+				throw new IOException("Premature end of event body. Expected " + contentLength
+						+ " bytes, received " + offset);
+			}
+			offset += read;
+		}
+		return body;
+	}
+
+	private static HttpHeaders toHttpHeaders(Map<String, List<String>> headerFields) {
+		HttpHeaders headers = new HttpHeaders();
+		for (Map.Entry<String, List<String>> entry : headerFields.entrySet()) {
+			// status line is reported with 'null' key
+			if (entry.getKey() != null) {
+				headers.addAll(entry.getKey(), entry.getValue());
+			}
+		}
+		return headers;
+	}
+
+	private static URL toUrl(String url) {
+		try {
+			return new URL(url);
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException("Invalid Lambda Runtime API url: " + url, e);
+		}
+	}
+
+	/**
+	 * Event retrieved from the Runtime API.
+	 */
+	static final class RuntimeEvent {
+
+		private final HttpHeaders headers;
+
+		private final byte[] body;
+
+		RuntimeEvent(HttpHeaders headers, byte[] body) {
+			this.headers = headers;
+			this.body = body;
+		}
+
+		HttpHeaders getHeaders() {
+			return this.headers;
+		}
+
+		byte[] getBody() {
+			return this.body;
+		}
+
+		String getRequestId() {
+			return this.headers.getFirst(REQUEST_ID_HEADER);
+		}
+
+	}
+
+	/**
+	 * Writes the body of the streamed response.
+	 */
+	@FunctionalInterface
+	interface BodyWriter {
+
+		void write(OutputStream output) throws IOException;
+
+	}
+
+}
@@ -16,9 +16,6 @@
 
 package org.springframework.cloud.function.adapter.aws;
 
-import java.net.URI;
-import java.nio.charset.StandardCharsets;
-import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
@@ -27,20 +24,20 @@ import java.util.Map;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.cloud.function.adapter.aws.CustomRuntimeApiClient.RuntimeEvent;
 import org.springframework.cloud.function.context.FunctionCatalog;
 import org.springframework.cloud.function.context.catalog.SimpleFunctionRegistry.FunctionInvocationWrapper;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.RequestEntity;
-import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.util.Assert;
-import org.springframework.web.client.RestTemplate;
 
 /**
  * Event loop and necessary configurations to support AWS Lambda
@@ -55,8 +52,6 @@ public final class CustomRuntimeEventLoop implements CommandLineRunner {
 	private static Log logger = LogFactory.getLog(CustomRuntimeEventLoop.class);
 
 	static final String LAMBDA_VERSION_DATE = "2018-06-01";
-	private static final String LAMBDA_RUNTIME_URL_TEMPLATE = "http://{0}/{1}/runtime/invocation/next";
-	private static final String LAMBDA_INVOCATION_URL_TEMPLATE = "http://{0}/{1}/runtime/invocation/{2}/response";
 
 	private final ConfigurableApplicationContext applicationContext;
 
@@ -76,48 +71,61 @@ public final class CustomRuntimeEventLoop implements CommandLineRunner {
 			logger.debug("AWS LAMBDA ENVIRONMENT: " + System.getenv());
 		}
 
-		String runtimeApi = System.getenv("AWS_LAMBDA_RUNTIME_API");
-		String eventUri = MessageFormat.format(LAMBDA_RUNTIME_URL_TEMPLATE, runtimeApi, LAMBDA_VERSION_DATE);
+		CustomRuntimeApiClient client = new CustomRuntimeApiClient(System.getenv("AWS_LAMBDA_RUNTIME_API"));
 		if (logger.isDebugEnabled()) {
-			logger.debug("Event URI: " + eventUri);
+			logger.debug("Event URI: " + client.getEventUrl());
 		}
 
-		RequestEntity<Void> requestEntity = RequestEntity.get(URI.create(eventUri)).build();
 		FunctionCatalog functionCatalog = context.getBean(FunctionCatalog.class);
-		RestTemplate rest = new RestTemplate();
 		ObjectMapper mapper = context.getBean(ObjectMapper.class);
+		FunctionInvocationWrapper function = null;
+		boolean responseStreaming = context.getEnvironment()
+				.getProperty(AWSLambdaUtils.RESPONSE_STREAMING, Boolean.class, false);
 
 		logger.info("Entering event loop");
 		while (isContinue()) {
 			logger.debug("Attempting to get new event");
-			ResponseEntity<String> response = rest.exchange(requestEntity, String.class);
+			RuntimeEvent event = client.nextEvent();
 			if (logger.isDebugEnabled()) {
-				logger.debug("New Event received: " + response);
+				logger.debug("New Event received with headers: " + event.getHeaders());
 			}
 
-			FunctionInvocationWrapper function = locateFunction(functionCatalog, response.getHeaders().getContentType());
-			Message<byte[]> eventMessage = AWSLambdaUtils.generateMessage(response.getBody().getBytes(StandardCharsets.UTF_8),
-					fromHttp(response.getHeaders()), function.getInputType(), mapper);
+			if (function == null) {
+				// content type of the events does not change for the lifetime of the runtime
+				MediaType contentType = event.getHeaders().getContentType();
+				function = locateFunction(functionCatalog, contentType == null ? MediaType.APPLICATION_JSON : contentType);
+			}
+			Message<byte[]> eventMessage = AWSLambdaUtils.generateMessage(event.getBody(),
+					fromHttp(event.getHeaders()), function.getInputType(), mapper);
 			if (logger.isDebugEnabled()) {
 				logger.debug("Event message: " + eventMessage);
 			}
 
-			String requestId = response.getHeaders().getFirst("Lambda-Runtime-Aws-Request-Id");
-			String invocationUrl = MessageFormat
-					.format(LAMBDA_INVOCATION_URL_TEMPLATE, runtimeApi, LAMBDA_VERSION_DATE, requestId);
-
-			Message<byte[]> responseMessage = (Message<byte[]>) function.apply(eventMessage);
+			Object result = function.apply(eventMessage);
+			if (result instanceof Publisher && responseStreaming) {
+				int status = client.streamResponse(event.getRequestId(), output -> {
+					for (Object value : Flux.from((Publisher<?>) result).toIterable()) {
+						AWSLambdaUtils.writeChunk(value, mapper, output);
+					}
+				});
+				if (logger.isDebugEnabled()) {
+					logger.debug("Streamed result POST status: " + status);
+				}
+				continue;
+			}
+			Message<byte[]> responseMessage = (Message<byte[]>) result;
 
 			if (responseMessage != null && logger.isDebugEnabled()) {
 				logger.debug("Reply from function: " + responseMessage);
 			}
 
 			byte[] outputBody = AWSLambdaUtils.generateOutput(eventMessage, responseMessage, mapper, function.getOutputType());
-			ResponseEntity<Object> result = rest
-					.exchange(RequestEntity.post(URI.create(invocationUrl)).body(outputBody), Object.class);
+			// the response must be posted before the next event is requested, as the Runtime API only
+			// allows a single invocation at a time and the environment may be frozen once it is requested
+			int status = client.postResponse(event.getRequestId(), outputBody);
 
-			if (logger.isInfoEnabled()) {
-				logger.info("Result POST status: " + result.getStatusCode());
+			if (logger.isDebugEnabled()) {
+				logger.debug("Result POST status: " + status);
 			}
 		}
 	}
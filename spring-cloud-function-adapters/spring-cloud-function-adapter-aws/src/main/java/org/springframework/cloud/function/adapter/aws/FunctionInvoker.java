@@ -16,18 +16,23 @@
 
 package org.springframework.cloud.function.adapter.aws;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -64,10 +69,28 @@ public class FunctionInvoker implements RequestStreamHandler {
 
 	private static Log logger = LogFactory.getLog(FunctionInvoker.class);
 
+	/**
+	 * Name of the property which lists (comma-delimited) resource locations of the events
+	 * used to prime the function before checkpoint.
+	 */
+	public static final String PRIMING_EVENTS = "spring.cloud.function.aws.priming.events";
+
 	private ObjectMapper objectMapper;
 
 	private FunctionInvocationWrapper function;
 
+	private boolean responseStreaming;
+
+	private BatchEventProcessor batchProcessor;
+
+	private ConfigurableApplicationContext context;
+
+	/*
+	 * Strong reference to the checkpoint/restore hooks, since they are referenced weakly by CRaC.
+	 */
+	@SuppressWarnings("unused")
+	private Object checkpointResource;
+
 	public FunctionInvoker() {
 		this.start();
 	}
@@ -75,19 +98,30 @@ public class FunctionInvoker implements RequestStreamHandler {
 	@SuppressWarnings("rawtypes")
 	@Override
 	public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
-		final byte[] payload = StreamUtils.copyToByteArray(input);
-
-		if (logger.isInfoEnabled()) {
-			logger.info("Received: " + new String(payload, StandardCharsets.UTF_8));
+		Message requestMessage;
+		if (this.batchProcessor != null) {
+			// the shape of the event is detected without binding it, so other events are passed on as is
+			byte[] event = StreamUtils.copyToByteArray(input);
+			if (BatchEventProcessor.isBatchEvent(event)) {
+				this.batchProcessor.process(this.objectMapper.readTree(event), output);
+				return;
+			}
+			input = new ByteArrayInputStream(event);
+		}
+		if (logger.isDebugEnabled()) {
+			final byte[] payload = StreamUtils.copyToByteArray(input);
+			logger.debug("Received: " + new String(payload, StandardCharsets.UTF_8));
+			requestMessage = AWSLambdaUtils
+					.generateMessage(payload, new MessageHeaders(Collections.emptyMap()), function.getInputType(), this.objectMapper, context);
+		}
+		else {
+			requestMessage = AWSLambdaUtils
+					.generateMessage(input, new MessageHeaders(Collections.emptyMap()), function.getInputType(), this.objectMapper, context);
 		}
-
-		Message requestMessage = AWSLambdaUtils
-				.generateMessage(payload, new MessageHeaders(Collections.emptyMap()), function.getInputType(), this.objectMapper, context);
 
 		try {
 			Object response = this.function.apply(requestMessage);
-			byte[] responseBytes = this.buildResult(requestMessage, response);
-			StreamUtils.copy(responseBytes, output);
+			this.writeResult(requestMessage, response, output);
 		}
 		catch (Exception e) {
 			logger.error(e);
@@ -103,25 +137,28 @@ public class FunctionInvoker implements RequestStreamHandler {
 	}
 
 	@SuppressWarnings("unchecked")
-	private byte[] buildResult(Message<?> requestMessage, Object output) throws IOException {
+	private void writeResult(Message<?> requestMessage, Object output, OutputStream outputStream) throws IOException {
 		Message<byte[]> responseMessage;
 		if (output instanceof Publisher<?>) {
-			List<Object> result = new ArrayList<>();
-			for (Object value : Flux.from((Publisher<?>) output).toIterable()) {
-				if (logger.isInfoEnabled()) {
-					logger.info("Response value: " + value);
+			Iterator<?> values = Flux.from((Publisher<?>) output).toIterable().iterator();
+			if (this.responseStreaming) {
+				// each element is written and flushed as soon as it is produced
+				while (values.hasNext()) {
+					AWSLambdaUtils.writeChunk(values.next(), this.objectMapper, outputStream);
 				}
-				result.add(value);
+				return;
 			}
-			if (result.size() > 1) {
-				output = result;
-			}
-			else {
-				output = result.get(0);
+			if (!isApiGatewayRequest(requestMessage)) {
+				// no envelope is required so POJO result(s) are written straight to the output
+				this.writeValues(values, StreamUtils.nonClosing(outputStream));
+				return;
 			}
+			List<Object> result = new ArrayList<>();
+			values.forEachRemaining(result::add);
+			output = result.size() > 1 ? result : result.get(0);
 
-			if (logger.isInfoEnabled()) {
-				logger.info("OUTPUT: " + output + " - " + output.getClass().getName());
+			if (logger.isDebugEnabled()) {
+				logger.debug("OUTPUT: " + output + " - " + output.getClass().getName());
 			}
 
 			byte[] payload = this.objectMapper.writeValueAsBytes(output);
@@ -130,7 +167,32 @@ public class FunctionInvoker implements RequestStreamHandler {
 		else {
 			responseMessage = (Message<byte[]>) output;
 		}
-		return AWSLambdaUtils.generateOutput(requestMessage, responseMessage, this.objectMapper, function.getOutputType());
+		AWSLambdaUtils.writeOutput(requestMessage, responseMessage, this.objectMapper,
+				function.getOutputType(), outputStream);
+	}
+
+	/*
+	 * Writes single value as is and multiple values as JSON array without
+	 * collecting them first.
+	 */
+	private void writeValues(Iterator<?> values, OutputStream outputStream) throws IOException {
+		Object first = values.hasNext() ? values.next() : null;
+		if (!values.hasNext()) {
+			this.objectMapper.writeValue(outputStream, first);
+			return;
+		}
+		try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+			generator.writeStartArray();
+			generator.writeObject(first);
+			while (values.hasNext()) {
+				generator.writeObject(values.next());
+			}
+			generator.writeEndArray();
+		}
+	}
+
+	private static boolean isApiGatewayRequest(Message<?> requestMessage) {
+		return Boolean.TRUE.equals(requestMessage.getHeaders().get(AWSLambdaUtils.AWS_API_GATEWAY));
 	}
 
 	private void start() {
@@ -182,5 +244,60 @@ public class FunctionInvoker implements RequestStreamHandler {
 		if (logger.isInfoEnabled()) {
 			logger.info("Located function: '" + functionName + "'");
 		}
+
+		this.context = context;
+		this.configure();
+		this.checkpointResource = CracSupport.register(this::beforeCheckpoint, this::afterRestore);
+	}
+
+	/*
+	 * Reads environment dependent state and creates pooled resources.
+	 */
+	private void configure() {
+		Environment environment = this.context.getEnvironment();
+		this.responseStreaming = environment.getProperty(AWSLambdaUtils.RESPONSE_STREAMING, Boolean.class, false);
+		// restore may happen without preceding checkpoint hook (e.g., if it failed)
+		this.destroyBatchProcessor();
+		if (environment.getProperty(BatchEventProcessor.BATCH_ENABLED, Boolean.class, false)) {
+			this.batchProcessor = new BatchEventProcessor(this.function, this.objectMapper, environment
+					.getProperty(BatchEventProcessor.BATCH_PARALLELISM, Integer.class, Runtime.getRuntime().availableProcessors()));
+		}
+	}
+
+	/**
+	 * Invoked before checkpoint (e.g., AWS Lambda SnapStart). Primes the function by invoking it
+	 * with the events configured via 'spring.cloud.function.aws.priming.events' property (comma-delimited
+	 * resource locations), so converters, serializers and JIT are warmed up in the snapshot, and then
+	 * releases pooled resources which must not be part of the snapshot.
+	 */
+	void beforeCheckpoint() {
+		String[] events = this.context.getEnvironment().getProperty(PRIMING_EVENTS, String[].class, new String[0]);
+		for (String location : events) {
+			try {
+				byte[] event = StreamUtils.copyToByteArray(this.context.getResource(location).getInputStream());
+				this.handleRequest(new ByteArrayInputStream(event), new ByteArrayOutputStream(), null);
+				if (logger.isDebugEnabled()) {
+					logger.debug("Primed function with event '" + location + "'");
+				}
+			}
+			catch (Exception e) {
+				logger.warn("Failed to prime function with event '" + location + "'", e);
+			}
+		}
+		this.destroyBatchProcessor();
+	}
+
+	/**
+	 * Invoked after restore. Re-reads environment dependent state and re-creates pooled resources.
+	 */
+	void afterRestore() {
+		this.configure();
+	}
+
+	private void destroyBatchProcessor() {
+		if (this.batchProcessor != null) {
+			this.batchProcessor.destroy();
+			this.batchProcessor = null;
+		}
 	}
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.adapter.aws;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Oleg Zhurakousky
+ *
+ */
+public class AWSLambdaUtilsTests {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testApiGatewayJsonStringBody() throws Exception {
+		Message<byte[]> response = MessageBuilder.withPayload("\"hello \\\"world\\\"\"".getBytes(StandardCharsets.UTF_8))
+				.setHeader("statusCode", 201)
+				.setHeader("foo", "bar")
+				.build();
+
+		Map result = this.mapper.readValue(AWSLambdaUtils.generateOutput(this.apiGatewayRequest(false), response,
+				this.mapper, byte[].class), Map.class);
+		assertThat(result.get("statusCode")).isEqualTo(201);
+		assertThat(result.get("isBase64Encoded")).isEqualTo(false);
+		assertThat(result.get("body")).isEqualTo("hello \"world\"");
+		assertThat(((Map) result.get("headers")).get("foo")).isEqualTo("bar");
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testApiGatewayCsvBody() throws Exception {
+		Message<byte[]> response = MessageBuilder.withPayload("\"a\",\"b\"".getBytes(StandardCharsets.UTF_8))
+				.build();
+
+		Map result = this.mapper.readValue(AWSLambdaUtils.generateOutput(this.apiGatewayRequest(false), response,
+				this.mapper, byte[].class), Map.class);
+		assertThat(result.get("body")).isEqualTo("\"a\",\"b\"");
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testApiGatewayStringBodyWithControlCharacters() throws Exception {
+		Message<byte[]> response = MessageBuilder.withPayload("\"hello\n\tworld\"".getBytes(StandardCharsets.UTF_8))
+				.build();
+
+		Map result = this.mapper.readValue(AWSLambdaUtils.generateOutput(this.apiGatewayRequest(false), response,
+				this.mapper, byte[].class), Map.class);
+		assertThat(result.get("body")).isEqualTo("\"hello\n\tworld\"");
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testApiGatewayJsonObjectBody() throws Exception {
+		Message<byte[]> response = MessageBuilder.withPayload("{\"name\":\"bubbles\"}".getBytes(StandardCharsets.UTF_8))
+				.build();
+
+		Map result = this.mapper.readValue(AWSLambdaUtils.generateOutput(this.apiGatewayRequest(false), response,
+				this.mapper, byte[].class), Map.class);
+		assertThat(result.get("body")).isEqualTo("{\"name\":\"bubbles\"}");
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testApiGatewayBinaryBody() throws Exception {
+		byte[] image = new byte[] {(byte) 0x89, 'P', 'N', 'G', 0, 1, 2};
+		Message<byte[]> response = MessageBuilder.withPayload(image)
+				.setHeader(MessageHeaders.CONTENT_TYPE, "image/png")
+				.build();
+
+		Map result = this.mapper.readValue(AWSLambdaUtils.generateOutput(this.apiGatewayRequest(false), response,
+				this.mapper, byte[].class), Map.class);
+		assertThat(result.get("isBase64Encoded")).isEqualTo(true);
+		assertThat(Base64.getDecoder().decode((String) result.get("body"))).isEqualTo(image);
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testApiGatewayV2Cookies() throws Exception {
+		Message<byte[]> response = MessageBuilder.withPayload("hello".getBytes(StandardCharsets.UTF_8))
+				.setHeader("Set-Cookie", Arrays.asList("a=1", "b=2"))
+				.build();
+
+		Map result = this.mapper.readValue(AWSLambdaUtils.generateOutput(this.apiGatewayRequest(true), response,
+				this.mapper, byte[].class), Map.class);
+		assertThat(result.get("body")).isEqualTo("hello");
+		assertThat((List) result.get("cookies")).containsExactly("a=1", "b=2");
+		assertThat(((Map) result.get("headers")).containsKey("Set-Cookie")).isFalse();
+	}
+
+	@Test
+	public void testPlainEventPassedAsIs() throws Exception {
+		byte[] event = "{\"b\":1.50, \"a\":[1e2,{\"headers\":{}}]}".getBytes(StandardCharsets.UTF_8);
+		MessageHeaders headers = new MessageHeaders(Collections.singletonMap("foo", "bar"));
+
+		Message<byte[]> fromBytes = AWSLambdaUtils.generateMessage(event, headers, Map.class, this.mapper, null);
+		Message<byte[]> fromStream = AWSLambdaUtils.generateMessage(new ByteArrayInputStream(event), headers,
+				Map.class, this.mapper, null);
+
+		assertThat(fromBytes.getPayload()).isSameAs(event);
+		assertThat(fromStream.getPayload()).isEqualTo(event);
+		assertThat(fromBytes.getHeaders().get("foo")).isEqualTo("bar");
+		assertThat(fromStream.getHeaders().get("foo")).isEqualTo("bar");
+	}
+
+	@Test
+	public void testApiGatewayEventBound() throws Exception {
+		byte[] event = "{\"headers\":{\"foo\":\"bar\"},\"httpMethod\":\"POST\",\"body\":\"hello\"}"
+				.getBytes(StandardCharsets.UTF_8);
+		MessageHeaders headers = new MessageHeaders(Collections.emptyMap());
+
+		for (Message<?> message : Arrays.asList(
+				AWSLambdaUtils.generateMessage(event, headers, String.class, this.mapper, null),
+				AWSLambdaUtils.generateMessage(new ByteArrayInputStream(event), headers, String.class, this.mapper, null))) {
+			assertThat(message.getPayload()).isEqualTo("hello".getBytes(StandardCharsets.UTF_8));
+			assertThat(message.getHeaders().get(AWSLambdaUtils.AWS_API_GATEWAY)).isEqualTo(true);
+			assertThat(message.getHeaders().get("foo")).isEqualTo("bar");
+		}
+	}
+
+	@Test
+	public void testStreamedElementsAreNewlineDelimited() throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		AWSLambdaUtils.writeChunk(Collections.singletonMap("name", "ricky"), this.mapper, output);
+		AWSLambdaUtils.writeChunk("\"julien\"", this.mapper, output);
+		AWSLambdaUtils.writeChunk(MessageBuilder.withPayload("{\"name\":\"bubbles\"}".getBytes()).build(), this.mapper, output);
+
+		assertThat(new String(output.toByteArray(), StandardCharsets.UTF_8))
+				.isEqualTo("{\"name\":\"ricky\"}\n\"julien\"\n{\"name\":\"bubbles\"}\n");
+	}
+
+	private Message<byte[]> apiGatewayRequest(boolean v2) {
+		MessageBuilder<byte[]> builder = MessageBuilder.withPayload(new byte[0])
+				.setHeader(AWSLambdaUtils.AWS_API_GATEWAY, true);
+		if (v2) {
+			builder.setHeader("version", "2.0").setHeader("routeKey", "$default");
+		}
+		return builder.build();
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.adapter.aws;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Oleg Zhurakousky
+ *
+ */
+public class CracSupportTests {
+
+	@Test
+	public void testHooksRegisteredWithGlobalContext() throws Exception {
+		List<String> hooks = new CopyOnWriteArrayList<>();
+		Object resource = CracSupport.register(() -> hooks.add("beforeCheckpoint"), () -> hooks.add("afterRestore"));
+		assertThat(resource).isInstanceOf(Resource.class);
+
+		// the global context notifies registered resources (without a CRaC enabled JVM as well)
+		Context<Resource> context = Core.getGlobalContext();
+		context.beforeCheckpoint(null);
+		context.afterRestore(null);
+		assertThat(hooks).containsExactly("beforeCheckpoint", "afterRestore");
+		// the context references the resource weakly
+		assertThat(resource).isNotNull();
+	}
+
+}
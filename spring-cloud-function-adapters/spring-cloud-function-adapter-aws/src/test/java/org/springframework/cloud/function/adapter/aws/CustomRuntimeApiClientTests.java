@@ -0,0 +1,128 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.adapter.aws;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Exercises {@link CustomRuntimeApiClient} against a stub of the Lambda Runtime API.
+ *
+ * @author Oleg Zhurakousky
+ *
+ */
+public class CustomRuntimeApiClientTests {
+
+	private static final String RUNTIME_PATH = "/" + CustomRuntimeEventLoop.LAMBDA_VERSION_DATE + "/runtime/invocation/";
+
+	private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+	private final Set<String> responses = ConcurrentHashMap.newKeySet();
+
+	private volatile int nextEventStatus = 200;
+
+	private HttpServer server;
+
+	private CustomRuntimeApiClient client;
+
+	@BeforeEach
+	public void before() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.createContext(RUNTIME_PATH, this::handle);
+		this.server.start();
+		this.client = new CustomRuntimeApiClient("localhost:" + this.server.getAddress().getPort());
+	}
+
+	@AfterEach
+	public void after() {
+		this.server.stop(0);
+	}
+
+	@Test
+	public void testConnectionIsKeptAlive() {
+		for (int i = 0; i < 3; i++) {
+			CustomRuntimeApiClient.RuntimeEvent event = this.client.nextEvent();
+			assertThat(event.getRequestId()).isEqualTo("r1");
+			assertThat(new String(event.getBody(), StandardCharsets.UTF_8)).isEqualTo("\"hello\"");
+			assertThat(this.client.postResponse(event.getRequestId(), "\"HELLO\"".getBytes(StandardCharsets.UTF_8)))
+				.isEqualTo(202);
+		}
+		assertThat(this.responses).containsExactly("r1:\"HELLO\"");
+		assertThat(this.clientPorts).hasSize(1);
+	}
+
+	@Test
+	public void testRejectedResponseDoesNotBreakConnection() {
+		assertThat(this.client.postResponse("tooLarge", "\"HELLO\"".getBytes(StandardCharsets.UTF_8))).isEqualTo(413);
+		assertThat(this.client.nextEvent().getRequestId()).isEqualTo("r1");
+		assertThat(this.clientPorts).hasSize(1);
+	}
+
+	@Test
+	public void testFailedNextEvent() {
+		this.nextEventStatus = 500;
+		assertThatThrownBy(() -> this.client.nextEvent())
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessageContaining("Status: 500");
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		this.clientPorts.add(exchange.getRemoteAddress().getPort());
+		String path = exchange.getRequestURI().getPath();
+		byte[] requestBody = StreamUtils.copyToByteArray(exchange.getRequestBody());
+		if (path.endsWith("/next")) {
+			if (this.nextEventStatus != 200) {
+				this.respond(exchange, this.nextEventStatus, "{\"errorMessage\":\"failure\"}");
+				return;
+			}
+			exchange.getResponseHeaders().add(CustomRuntimeApiClient.REQUEST_ID_HEADER, "r1");
+			this.respond(exchange, 200, "\"hello\"");
+		}
+		else if (path.contains("/tooLarge/")) {
+			this.respond(exchange, 413, "{\"errorMessage\":\"Payload too large\"}");
+		}
+		else {
+			String requestId = path.substring(RUNTIME_PATH.length(), path.lastIndexOf('/'));
+			this.responses.add(requestId + ":" + new String(requestBody, StandardCharsets.UTF_8));
+			this.respond(exchange, 202, "{\"status\":\"OK\"}");
+		}
+	}
+
+	private void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(bytes);
+		}
+	}
+
+}
@@ -18,12 +18,12 @@ package org.springframework.cloud.function.adapter.aws;
 
 
 import java.lang.reflect.Field;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -31,6 +31,7 @@ import java.util.function.Supplier;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringBootConfiguration;
@@ -164,13 +165,57 @@ public class CustomRuntimeEventLoopTest {
 		}
 	}
 
+	@Test
+	@DirtiesContext
+	public void testStreamingResponse() throws Exception {
+		this.getEnvironment().put("AWS_LAMBDA_RUNTIME_API", "localhost:" + port);
+		this.getEnvironment().put("_HANDLER", "echoTwice");
+
+		configuration.inputQueue.clear();
+		configuration.inputQueue.addAll(Arrays.asList("\"ricky\"", "\"julien\""));
+
+		try (ConfigurableApplicationContext userContext = new SpringApplicationBuilder(StreamingFunctionConfiguration.class)
+					.web(WebApplicationType.NONE).run(
+						"--logging.level.org.springframework.cloud.function=DEBUG",
+						"--spring.main.lazy-initialization=true",
+						"--" + AWSLambdaUtils.RESPONSE_STREAMING + "=true")) {
+
+			assertThat(configuration.output).size().isEqualTo(2);
+			// elements are newline delimited
+			assertThat(configuration.output.get(0)).matches("[^\n]*RICKY[^\n]*\n[^\n]*RICKY[^\n]*\n");
+			assertThat(configuration.output.get(1)).matches("[^\n]*JULIEN[^\n]*\n[^\n]*JULIEN[^\n]*\n");
+		}
+	}
+
+	@Test
+	@DirtiesContext
+	public void testPlainAndStreamingResponsesInOrder() throws Exception {
+		this.getEnvironment().put("AWS_LAMBDA_RUNTIME_API", "localhost:" + port);
+		this.getEnvironment().put("_HANDLER", "uppercaseOrStream");
+
+		configuration.inputQueue.clear();
+		configuration.inputQueue.addAll(Arrays.asList("\"ricky\"", "\"stream\"", "\"bubbles\""));
+
+		try (ConfigurableApplicationContext userContext = new SpringApplicationBuilder(MixedFunctionConfiguration.class)
+					.web(WebApplicationType.NONE).run(
+						"--logging.level.org.springframework.cloud.function=DEBUG",
+						"--spring.main.lazy-initialization=true",
+						"--" + AWSLambdaUtils.RESPONSE_STREAMING + "=true")) {
+
+			assertThat(configuration.output).size().isEqualTo(3);
+			assertThat(configuration.output.get(0)).isEqualTo("\"RICKY\"");
+			assertThat(configuration.output.get(1)).matches("[^\n]*STREAM[^\n]*\n[^\n]*STREAM[^\n]*\n");
+			assertThat(configuration.output.get(2)).isEqualTo("\"BUBBLES\"");
+		}
+	}
+
 	@SpringBootConfiguration(proxyBeanMethods = false)
 	@EnableAutoConfiguration
 	protected static class CustomRuntimeEmulatorConfiguration {
 
 		BlockingQueue<String> inputQueue = new ArrayBlockingQueue<>(3);
 
-		List<String> output = new ArrayList<>();
+		List<String> output = new CopyOnWriteArrayList<>();
 
 		@Bean("2018-06-01/runtime/invocation/consume/response")
 		public Consumer<Message<String>> consume() {
@@ -209,6 +254,24 @@ public class CustomRuntimeEventLoopTest {
 		}
 	}
 
+	@EnableAutoConfiguration
+	@Configuration
+	protected static class StreamingFunctionConfiguration {
+		@Bean
+		public Function<Flux<String>, Flux<String>> echoTwice() {
+			return flux -> flux.flatMap(v -> Flux.just(v.toUpperCase(), v.toUpperCase()));
+		}
+	}
+
+	@EnableAutoConfiguration
+	@Configuration
+	protected static class MixedFunctionConfiguration {
+		@Bean
+		public Function<String, Object> uppercaseOrStream() {
+			return v -> v.contains("stream") ? Flux.just(v.toUpperCase(), v.toUpperCase()) : v.toUpperCase();
+		}
+	}
+
 	@EnableAutoConfiguration
 	@Configuration
 	protected static class MultipleFunctionConfiguration {
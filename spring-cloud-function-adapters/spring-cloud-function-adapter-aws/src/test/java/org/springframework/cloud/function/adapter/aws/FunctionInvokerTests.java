@@ -18,15 +18,20 @@ package org.springframework.cloud.function.adapter.aws;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import com.amazonaws.kinesis.agg.RecordAggregator;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
@@ -46,6 +51,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.util.FileCopyUtils;
 import org.springframework.util.MimeType;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -446,6 +452,9 @@ public class FunctionInvokerTests {
 		System.clearProperty("MAIN_CLASS");
 		System.clearProperty("spring.cloud.function.routing-expression");
 		System.clearProperty("spring.cloud.function.definition");
+		System.clearProperty(AWSLambdaUtils.RESPONSE_STREAMING);
+		System.clearProperty(BatchEventProcessor.BATCH_ENABLED);
+		System.clearProperty(FunctionInvoker.PRIMING_EVENTS);
 		this.getEnvironment().clear();
 	}
 
@@ -462,6 +471,149 @@ public class FunctionInvokerTests {
 		assertThat(result).isEqualTo(this.jsonCollection);
 	}
 
+	@Test
+	public void testResponseStreaming() throws Exception {
+		System.setProperty("MAIN_CLASS", SampleConfiguration.class.getName());
+		System.setProperty("spring.cloud.function.definition", "words");
+		System.setProperty(AWSLambdaUtils.RESPONSE_STREAMING, "true");
+		FunctionInvoker invoker = new FunctionInvoker();
+
+		InputStream targetStream = new ByteArrayInputStream("\"hello streaming world\"".getBytes());
+		AtomicInteger flushes = new AtomicInteger();
+		ByteArrayOutputStream output = new ByteArrayOutputStream() {
+			@Override
+			public void flush() {
+				flushes.incrementAndGet();
+			}
+		};
+		invoker.handleRequest(targetStream, output, null);
+		String result = new String(output.toByteArray(), StandardCharsets.UTF_8);
+		assertThat(result).endsWith("\n");
+		String[] lines = result.split("\n");
+		assertThat(lines).hasSize(3);
+		assertThat(lines[0]).contains("hello");
+		assertThat(lines[1]).contains("streaming");
+		assertThat(lines[2]).contains("world");
+		assertThat(flushes.get()).isEqualTo(3);
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testSqsBatchItemFailures() throws Exception {
+		System.setProperty("MAIN_CLASS", BatchConfiguration.class.getName());
+		System.setProperty("spring.cloud.function.definition", "failOnBoom");
+		System.setProperty(BatchEventProcessor.BATCH_ENABLED, "true");
+		FunctionInvoker invoker = new FunctionInvoker();
+
+		String event = "{\"Records\":["
+				+ "{\"messageId\":\"m1\",\"body\":\"hello\",\"eventSource\":\"aws:sqs\"},"
+				+ "{\"messageId\":\"m2\",\"body\":\"boom\",\"eventSource\":\"aws:sqs\"},"
+				+ "{\"messageId\":\"m3\",\"body\":\"world\",\"eventSource\":\"aws:sqs\"}]}";
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		invoker.handleRequest(new ByteArrayInputStream(event.getBytes()), output, null);
+
+		Map result = mapper.readValue(output.toByteArray(), Map.class);
+		assertThat((List) result.get("batchItemFailures")).containsExactly(Collections.singletonMap("itemIdentifier", "m2"));
+	}
+
+	@Test
+	public void testNonBatchEventPassedAsIsWhenBatchEnabled() throws Exception {
+		System.setProperty("MAIN_CLASS", BatchConfiguration.class.getName());
+		System.setProperty("spring.cloud.function.definition", "failOnBoom");
+		System.setProperty(BatchEventProcessor.BATCH_ENABLED, "true");
+		FunctionInvoker invoker = new FunctionInvoker();
+
+		String event = "{\"amount\":1.50,\"Records\":[{\"EventSource\":\"aws:sns\",\"Sns\":{\"Message\":\"hello\"}}]}";
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		invoker.handleRequest(new ByteArrayInputStream(event.getBytes()), output, null);
+
+		String result = new String(output.toByteArray(), StandardCharsets.UTF_8);
+		assertThat(result).doesNotContain("batchItemFailures").contains("AWS:SNS").contains("1.50");
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testKinesisBatchItemFailuresPreserveOrder() throws Exception {
+		System.setProperty("MAIN_CLASS", BatchConfiguration.class.getName());
+		System.setProperty("spring.cloud.function.definition", "failOnBoom");
+		System.setProperty(BatchEventProcessor.BATCH_ENABLED, "true");
+		FunctionInvoker invoker = new FunctionInvoker();
+
+		String event = "{\"Records\":["
+				+ this.kinesisRecord("k1", "1", "a") + ","
+				+ this.kinesisRecord("k1", "2", "boom") + ","
+				+ this.kinesisRecord("k1", "3", "c") + ","
+				+ this.kinesisRecord("k2", "4", "d") + "]}";
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		invoker.handleRequest(new ByteArrayInputStream(event.getBytes()), output, null);
+
+		Map result = mapper.readValue(output.toByteArray(), Map.class);
+		// shard is checkpointed at the lowest failed sequence number, so records of other partition keys fail as well
+		assertThat((List) result.get("batchItemFailures")).containsExactly(
+				Collections.singletonMap("itemIdentifier", "2"), Collections.singletonMap("itemIdentifier", "3"),
+				Collections.singletonMap("itemIdentifier", "4"));
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testKinesisAggregatedBatchItemFailures() throws Exception {
+		System.setProperty("MAIN_CLASS", BatchConfiguration.class.getName());
+		System.setProperty("spring.cloud.function.definition", "failOnBoom");
+		System.setProperty(BatchEventProcessor.BATCH_ENABLED, "true");
+		FunctionInvoker invoker = new FunctionInvoker();
+		BatchConfiguration.invocations.set(0);
+
+		RecordAggregator aggregator = new RecordAggregator();
+		aggregator.addUserRecord("k1", "\"a\"".getBytes(StandardCharsets.UTF_8));
+		aggregator.addUserRecord("k1", "\"boom\"".getBytes(StandardCharsets.UTF_8));
+		aggregator.addUserRecord("k1", "\"c\"".getBytes(StandardCharsets.UTF_8));
+		byte[] aggregated = aggregator.clearAndGet().toRecordBytes();
+
+		String event = "{\"Records\":["
+				+ "{\"eventSource\":\"aws:kinesis\",\"kinesis\":{\"partitionKey\":\"k1\",\"sequenceNumber\":\"1\","
+				+ "\"data\":\"" + Base64.getEncoder().encodeToString(aggregated) + "\"}},"
+				+ this.kinesisRecord("k2", "2", "d") + "]}";
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		invoker.handleRequest(new ByteArrayInputStream(event.getBytes()), output, null);
+
+		Map result = mapper.readValue(output.toByteArray(), Map.class);
+		assertThat((List) result.get("batchItemFailures")).containsExactly(
+				Collections.singletonMap("itemIdentifier", "1"), Collections.singletonMap("itemIdentifier", "2"));
+		assertThat(BatchConfiguration.invocations.get()).isEqualTo(2);
+	}
+
+	private String kinesisRecord(String partitionKey, String sequenceNumber, String data) {
+		return "{\"eventSource\":\"aws:kinesis\",\"kinesis\":{\"partitionKey\":\"" + partitionKey
+				+ "\",\"sequenceNumber\":\"" + sequenceNumber + "\",\"data\":\""
+				+ Base64.getEncoder().encodeToString(data.getBytes(StandardCharsets.UTF_8)) + "\"}}";
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testCheckpointRestoreHooks() throws Exception {
+		File event = File.createTempFile("priming", ".json");
+		event.deleteOnExit();
+		FileCopyUtils.copy("{\"Records\":[{\"messageId\":\"m1\",\"body\":\"hello\",\"eventSource\":\"aws:sqs\"}]}"
+				.getBytes(StandardCharsets.UTF_8), event);
+		System.setProperty("MAIN_CLASS", BatchConfiguration.class.getName());
+		System.setProperty("spring.cloud.function.definition", "failOnBoom");
+		System.setProperty(BatchEventProcessor.BATCH_ENABLED, "true");
+		System.setProperty(FunctionInvoker.PRIMING_EVENTS, event.toURI().toString());
+		FunctionInvoker invoker = new FunctionInvoker();
+		BatchConfiguration.invocations.set(0);
+
+		invoker.beforeCheckpoint();
+		assertThat(BatchConfiguration.invocations.get()).isEqualTo(1);
+
+		invoker.afterRestore();
+		String batch = "{\"Records\":[{\"messageId\":\"m2\",\"body\":\"boom\",\"eventSource\":\"aws:sqs\"}]}";
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		invoker.handleRequest(new ByteArrayInputStream(batch.getBytes()), output, null);
+
+		Map result = mapper.readValue(output.toByteArray(), Map.class);
+		assertThat((List) result.get("batchItemFailures")).containsExactly(Collections.singletonMap("itemIdentifier", "m2"));
+	}
+
 	@Test
 	public void testKinesisStringEvent() throws Exception {
 		System.setProperty("MAIN_CLASS", KinesisConfiguration.class.getName());
@@ -940,6 +1092,28 @@ public class FunctionInvokerTests {
 		public Function<Flux<String>, Flux<String>> echoStringReactive() {
 			return v -> v;
 		}
+
+		@Bean
+		public Function<String, Flux<String>> words() {
+			return v -> Flux.fromArray(v.split(" "));
+		}
+	}
+
+	@EnableAutoConfiguration
+	@Configuration
+	public static class BatchConfiguration {
+		static final AtomicInteger invocations = new AtomicInteger();
+
+		@Bean
+		public Function<String, String> failOnBoom() {
+			return v -> {
+				invocations.incrementAndGet();
+				if (v.contains("boom")) {
+					throw new IllegalStateException("boom");
+				}
+				return v.toUpperCase();
+			};
+		}
 	}
 
 	@EnableAutoConfiguration
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.functions.ExecutionContext;
@@ -38,6 +39,7 @@ import org.apache.commons.logging.LogFactory;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.WebApplicationType;
@@ -71,6 +73,11 @@ public class FunctionInvoker<I, O> {
 
 	private static Log logger = LogFactory.getLog(FunctionInvoker.class);
 
+	/**
+	 * Name of the property which limits the amount of items of the batch processed in parallel.
+	 */
+	public static final String BATCH_PARALLELISM_PROPERTY = "spring.cloud.function.azure.batch.parallelism";
+
 	private static String EXECUTION_CONTEXT = "executionContext";
 
 	private static FunctionCatalog FUNCTION_CATALOG;
@@ -79,6 +86,10 @@ public class FunctionInvoker<I, O> {
 
 	private static JsonMapper OBJECT_MAPPER;
 
+	private static int BATCH_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+	private static final Map<String, ResolvedFunction> RESOLVED_FUNCTIONS = new ConcurrentHashMap<>();
+
 	public FunctionInvoker(Class<?> configurationClass) {
 		try {
 			initialize(configurationClass);
@@ -99,6 +110,7 @@ public class FunctionInvoker<I, O> {
 
 	public void close() {
 		FUNCTION_CATALOG = null;
+		RESOLVED_FUNCTIONS.clear();
 	}
 
 	public void handleOutput(I input, OutputBinding<O> binding,
@@ -109,17 +121,18 @@ public class FunctionInvoker<I, O> {
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public O handleRequest(I input, ExecutionContext executionContext) {
-		String functionDefinition = executionContext.getFunctionName();
-		FunctionInvocationWrapper function = FUNCTION_CATALOG.lookup(functionDefinition);
-		if (function == null && StringUtils.hasText(functionDefinition) && APPLICATION_CONTEXT.containsBean(functionDefinition)) {
-			this.registerFunction(functionDefinition);
-			function = FUNCTION_CATALOG.lookup(functionDefinition);
+		ResolvedFunction resolvedFunction = this.resolveFunction(executionContext.getFunctionName());
+		FunctionInvocationWrapper function = resolvedFunction.function;
+
+		if (input instanceof Iterable && resolvedFunction.itemInvocation) {
+			return (O) this.convertOutputIfNecessary(input, this.invokeItems((Iterable) input, function, executionContext));
 		}
+
 		Object enhancedInput = enhanceInputIfNecessary(input, executionContext);
 
 		Object output = function.apply(enhancedInput);
 		if (output instanceof Publisher) {
-			if (FunctionTypeUtils.isMono(function.getOutputType())) {
+			if (resolvedFunction.monoOutput) {
 				return (O) this.convertOutputIfNecessary(input, Mono.from((Publisher) output).blockOptional().get());
 			}
 			else {
@@ -129,8 +142,7 @@ public class FunctionInvoker<I, O> {
 						resultList.addAll((Collection) resultItem);
 					}
 					else {
-						if (Collection.class.isAssignableFrom(FunctionTypeUtils.getRawType(function.getInputType()))
-								&& !Collection.class.isAssignableFrom(FunctionTypeUtils.getRawType(function.getOutputType()))) {
+						if (resolvedFunction.singleOutputForCollectionInput) {
 							return (O) this.convertOutputIfNecessary(input, resultItem);
 						}
 						else {
@@ -144,6 +156,58 @@ public class FunctionInvoker<I, O> {
 		return (O) this.convertOutputIfNecessary(input, output);
 	}
 
+	/*
+	 * Resolves the function once per Azure function name, registering it
+	 * on the fly if necessary. Concurrent first invocations wait for the
+	 * resolution, so the function is registered at most once.
+	 */
+	private ResolvedFunction resolveFunction(String functionDefinition) {
+		String key = functionDefinition == null ? "" : functionDefinition;
+		ResolvedFunction resolvedFunction = RESOLVED_FUNCTIONS.get(key);
+		if (resolvedFunction == null) {
+			resolvedFunction = RESOLVED_FUNCTIONS.computeIfAbsent(key, k -> {
+				FunctionInvocationWrapper function = FUNCTION_CATALOG.lookup(functionDefinition);
+				if (function == null && StringUtils.hasText(functionDefinition) && APPLICATION_CONTEXT.containsBean(functionDefinition)) {
+					this.registerFunction(functionDefinition);
+					function = FUNCTION_CATALOG.lookup(functionDefinition);
+				}
+				if (function == null) {
+					throw new IllegalStateException("Failed to locate function '" + functionDefinition + "'");
+				}
+				return new ResolvedFunction(function);
+			});
+		}
+		return resolvedFunction;
+	}
+
+	/*
+	 * Invokes the function for each item of the batch (e.g., Event Hub or Service Bus trigger
+	 * with 'cardinality=many') in parallel, returning results in the order of the items.
+	 * Items without result (e.g., empty Mono) are represented by 'null', so results stay
+	 * aligned with the items.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private List<Object> invokeItems(Iterable<?> items, FunctionInvocationWrapper function,
+			ExecutionContext executionContext) {
+		List<Optional<Object>> results = Flux.fromIterable(items)
+				.flatMapSequential(item -> Mono.fromSupplier(() -> {
+					Object result = function.apply(enhanceInputIfNecessary(item, executionContext));
+					return Optional.ofNullable(result instanceof Publisher ? Mono.from((Publisher) result).block() : result);
+				}).subscribeOn(Schedulers.boundedElastic()), BATCH_PARALLELISM)
+				.collectList()
+				.block();
+		List<Object> resultList = new ArrayList<>(results.size());
+		for (Optional<Object> result : results) {
+			if (result.isPresent() && result.get() instanceof Collection) {
+				resultList.addAll((Collection) result.get());
+			}
+			else {
+				resultList.add(result.orElse(null));
+			}
+		}
+		return resultList;
+	}
+
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private void registerFunction(String functionDefinition) {
 		FunctionRegistration functionRegistration =
@@ -254,6 +318,8 @@ public class FunctionInvoker<I, O> {
 				logger.info("Initializing: " + configurationClass);
 				SpringApplication builder = springApplication(configurationClass);
 				APPLICATION_CONTEXT = builder.run();
+				BATCH_PARALLELISM = APPLICATION_CONTEXT.getEnvironment()
+						.getProperty(BATCH_PARALLELISM_PROPERTY, Integer.class, Runtime.getRuntime().availableProcessors());
 
 				Map<String, FunctionCatalog> mf = APPLICATION_CONTEXT.getBeansOfType(FunctionCatalog.class);
 				if (CollectionUtils.isEmpty(mf)) {
@@ -278,4 +344,32 @@ public class FunctionInvoker<I, O> {
 		application.setWebApplicationType(WebApplicationType.NONE);
 		return application;
 	}
+
+	/**
+	 * Function resolved for the Azure function name together with the decisions
+	 * on how to shape its output, computed once.
+	 */
+	private static final class ResolvedFunction {
+
+		private final FunctionInvocationWrapper function;
+
+		private final boolean monoOutput;
+
+		private final boolean singleOutputForCollectionInput;
+
+		private final boolean itemInvocation;
+
+		ResolvedFunction(FunctionInvocationWrapper function) {
+			this.function = function;
+			this.monoOutput = FunctionTypeUtils.isMono(function.getOutputType());
+			boolean collectionInput = !function.isSupplier()
+					&& Collection.class.isAssignableFrom(FunctionTypeUtils.getRawType(function.getInputType()));
+			boolean collectionOutput = !function.isConsumer()
+					&& Collection.class.isAssignableFrom(FunctionTypeUtils.getRawType(function.getOutputType()));
+			this.singleOutputForCollectionInput = collectionInput && !collectionOutput;
+			this.itemInvocation = function.isFunction() && !function.isInputTypePublisher() && !collectionInput
+					&& !Iterable.class.isAssignableFrom(FunctionTypeUtils.getRawType(function.getInputType()));
+		}
+
+	}
 }
@@ -156,6 +156,26 @@ public class FunctionInvokerTests {
 //		assertThat(consumerResult).isEqualTo("foo1");
 	}
 
+	@Test
+	public void batchItemsInvokedInParallelInOrder() {
+		FunctionInvoker<List<String>, List<String>> handler = handler(BatchConfig.class);
+		List<String> result = handler.handleRequest(Arrays.asList("a", "b", "c", "d"),
+				new TestExecutionContext("uppercase"));
+		assertThat(result).containsExactly("A", "B", "C", "D");
+
+		// resolved function is cached per Azure function name
+		result = handler.handleRequest(Arrays.asList("e"), new TestExecutionContext("uppercase"));
+		assertThat(result).containsExactly("E");
+	}
+
+	@Test
+	public void batchItemsWithoutResultKeepResultsAligned() {
+		FunctionInvoker<List<String>, List<String>> handler = handler(BatchConfig.class);
+		List<String> result = handler.handleRequest(Arrays.asList("a", "skip", "c"),
+				new TestExecutionContext("uppercaseUnlessSkip"));
+		assertThat(result).containsExactly("A", null, "C");
+	}
+
 	@AfterEach
 	public void close() throws IOException {
 		if (this.handler != null) {
@@ -163,6 +183,30 @@ public class FunctionInvokerTests {
 		}
 	}
 
+	@Configuration
+	protected static class BatchConfig {
+
+		@Bean
+		public Function<String, String> uppercase() {
+			return value -> {
+				try {
+					// later items complete first
+					Thread.sleep(('e' - value.charAt(0)) * 50L);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return value.toUpperCase();
+			};
+		}
+
+		@Bean
+		public Function<String, Mono<String>> uppercaseUnlessSkip() {
+			return value -> "skip".equals(value) ? Mono.empty() : Mono.just(value.toUpperCase());
+		}
+
+	}
+
 	@Configuration
 	protected static class NonFluxFunctionConfig {
 
@@ -16,8 +16,12 @@
 
 package org.springframework.cloud.function.adapter.gcp;
 
-import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.Function;
 
@@ -26,6 +30,8 @@ import com.google.cloud.functions.HttpFunction;
 import com.google.cloud.functions.HttpRequest;
 import com.google.cloud.functions.HttpResponse;
 import com.google.cloud.functions.RawBackgroundFunction;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -35,6 +41,7 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.util.Assert;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
 
 /**
  * Implementation of {@link HttpFunction} and {@link RawBackgroundFunction} for Google
@@ -51,8 +58,19 @@ public class FunctionInvoker extends AbstractSpringFunctionAdapterInitializer<Ht
 
 	private static final Log log = LogFactory.getLog(FunctionInvoker.class);
 
+	/**
+	 * Prefix of the message headers extracted from Pub/Sub envelope
+	 * (message id, publish time and attributes).
+	 */
+	public static final String PUBSUB_HEADER_PREFIX = "pubsub_";
+
+	private static final String PUBSUB_EVENT_TYPE = "google.pubsub.topic.publish";
+
 	private String functionName = "";
 
+	@SuppressWarnings("rawtypes")
+	private volatile Function function;
+
 	public FunctionInvoker() {
 		super();
 		init();
@@ -78,10 +96,14 @@ public class FunctionInvoker extends AbstractSpringFunctionAdapterInitializer<Ht
 		initialize(null);
 	}
 
+	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private <I> Function<Message<I>, Message<byte[]>> lookupFunction() {
-		Function<Message<I>, Message<byte[]>> function = this.catalog.lookup(functionName,
-				MimeTypeUtils.APPLICATION_JSON.toString());
-		Assert.notNull(function, "'function' with name '" + functionName + "' must not be null");
+		Function function = this.function;
+		if (function == null) {
+			function = this.catalog.lookup(functionName, MimeTypeUtils.APPLICATION_JSON.toString());
+			Assert.notNull(function, "'function' with name '" + functionName + "' must not be null");
+			this.function = function;
+		}
 		return function;
 	}
 
@@ -91,21 +113,34 @@ public class FunctionInvoker extends AbstractSpringFunctionAdapterInitializer<Ht
 	 */
 	@Override
 	public void service(HttpRequest httpRequest, HttpResponse httpResponse) throws Exception {
-		Function<Message<BufferedReader>, Message<byte[]>> function = lookupFunction();
+		Function<Message<byte[]>, Message<byte[]>> function = lookupFunction();
 
-		Message<BufferedReader> message = getInputType() == Void.class || getInputType() == null ? null
-				: MessageBuilder.withPayload(httpRequest.getReader()).copyHeaders(httpRequest.getHeaders()).build();
+		Message<byte[]> message = getInputType() == Void.class || getInputType() == null ? null
+				: MessageBuilder.withPayload(readPayload(httpRequest)).copyHeaders(httpRequest.getHeaders()).build();
 		Message<byte[]> result = function.apply(message);
 
 		if (result != null) {
-			httpResponse.getWriter().write(new String(result.getPayload(), StandardCharsets.UTF_8));
+			// headers must be set before the body is written
 			for (Entry<String, Object> header : result.getHeaders().entrySet()) {
 				httpResponse.appendHeader(header.getKey(), header.getValue().toString());
 			}
 			httpRequest.getContentType().ifPresent(contentType -> httpResponse.setContentType(contentType));
+			httpResponse.getOutputStream().write(result.getPayload());
 		}
 	}
 
+	/*
+	 * Reads request body as bytes. Message converters assume UTF-8 encoded
+	 * payload, so body is only transcoded if request declares a different charset.
+	 */
+	private static byte[] readPayload(HttpRequest httpRequest) throws IOException {
+		byte[] payload = StreamUtils.copyToByteArray(httpRequest.getInputStream());
+		Charset charset = httpRequest.getCharacterEncoding().map(Charset::forName).orElse(StandardCharsets.UTF_8);
+		return StandardCharsets.UTF_8.equals(charset)
+				? payload
+				: new String(payload, charset).getBytes(StandardCharsets.UTF_8);
+	}
+
 	/**
 	 * The implementation of a GCF {@link RawBackgroundFunction} that will be used as the
 	 * entry point from GCF.
@@ -117,8 +152,14 @@ public class FunctionInvoker extends AbstractSpringFunctionAdapterInitializer<Ht
 	public void accept(String json, Context context) {
 
 		Function<Message<String>, Message<byte[]>> function = lookupFunction();
-		Message<String> message = getInputType() == Void.class ? null
-				: MessageBuilder.withPayload(json).setHeader("gcf_context", context).build();
+		Message<String> message = null;
+		if (getInputType() != Void.class) {
+			MessageBuilder<String> builder = MessageBuilder.withPayload(json).setHeader("gcf_context", context);
+			if (context != null && PUBSUB_EVENT_TYPE.equals(context.eventType())) {
+				builder.copyHeaders(readPubSubHeaders(json));
+			}
+			message = builder.build();
+		}
 
 		Message<byte[]> result = function.apply(message);
 
@@ -127,4 +168,44 @@ public class FunctionInvoker extends AbstractSpringFunctionAdapterInitializer<Ht
 		}
 	}
 
+	/*
+	 * Extracts the message id, publish time and attributes of the Pub/Sub envelope with a
+	 * streaming parser, skipping the (potentially large) 'data' value without materializing it.
+	 */
+	private static Map<String, Object> readPubSubHeaders(String json) {
+		Map<String, Object> headers = new HashMap<>();
+		try (JsonReader reader = new JsonReader(new StringReader(json))) {
+			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+				return headers;
+			}
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (("messageId".equals(name) || "publishTime".equals(name)) && reader.peek() == JsonToken.STRING) {
+					headers.put(PUBSUB_HEADER_PREFIX + name, reader.nextString());
+				}
+				else if ("attributes".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+					reader.beginObject();
+					while (reader.hasNext()) {
+						String attribute = reader.nextName();
+						if (reader.peek() == JsonToken.STRING) {
+							headers.put(PUBSUB_HEADER_PREFIX + attribute, reader.nextString());
+						}
+						else {
+							reader.skipValue();
+						}
+					}
+					reader.endObject();
+				}
+				else {
+					reader.skipValue();
+				}
+			}
+		}
+		catch (Exception e) {
+			log.debug("Failed to read Pub/Sub envelope, proceeding without Pub/Sub headers", e);
+		}
+		return headers;
+	}
+
 }
@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.function.adapter.gcp;
 
+import java.util.Collections;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -105,6 +106,16 @@ public class FunctionInvokerBackgroundTests {
 				"Message: Hello; Type: google.pubsub.topic.publish; Message ID: 1234", "google.pubsub.topic.publish");
 	}
 
+	@Test
+	public void testPubSubBackgroundFunction_Headers(CaptureSystemOutput.OutputCapture outputCapture) {
+		PubSubMessage pubSubMessage = new PubSubMessage();
+		pubSubMessage.setMessageId("1234");
+		pubSubMessage.setAttributes(Collections.singletonMap("origin", "test"));
+		pubSubMessage.setData("Hello");
+		testBackgroundFunction(outputCapture, PubsubBackgroundFunctionHeaders.class, pubSubMessage, null,
+				"Message ID: 1234; Origin: test", "google.pubsub.topic.publish");
+	}
+
 	private <I, O> void testBackgroundFunction(CaptureSystemOutput.OutputCapture outputCapture, Class<?> configurationClass, I input, O expectedResult,
 			String expectedSysOut, String eventType) {
 
@@ -245,6 +256,21 @@ public class FunctionInvokerBackgroundTests {
 
 	}
 
+	@Configuration
+	@Import({ ContextFunctionCatalogAutoConfiguration.class })
+	protected static class PubsubBackgroundFunctionHeaders {
+
+		@Bean
+		public Consumer<Message<PubSubMessage>> consumePubSubHeaders() {
+			return (message) -> {
+				Object messageId = message.getHeaders().get(FunctionInvoker.PUBSUB_HEADER_PREFIX + "messageId");
+				Object origin = message.getHeaders().get(FunctionInvoker.PUBSUB_HEADER_PREFIX + "origin");
+				System.out.println("Message ID: " + messageId + "; Origin: " + origin);
+			};
+		}
+
+	}
+
 	public static class IncomingRequest {
 
 		String message;
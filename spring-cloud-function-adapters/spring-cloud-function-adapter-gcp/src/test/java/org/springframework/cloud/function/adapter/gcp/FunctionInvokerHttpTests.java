@@ -16,10 +16,11 @@
 
 package org.springframework.cloud.function.adapter.gcp;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -72,27 +73,37 @@ public class FunctionInvokerHttpTests {
 		testHttpFunction(JsonInputConsumer.class, new IncomingRequest("hello"), null);
 	}
 
+	@Test
+	public void testJsonInputFunctionWithCharset() throws Exception {
+		testHttpFunction(JsonInputFunction.class, new IncomingRequest("h\u00e9llo"),
+				"Thank you for sending the message: h\u00e9llo", StandardCharsets.ISO_8859_1);
+	}
+
 	private <I, O> void testHttpFunction(Class<?> configurationClass, I input, O expectedOutput) throws Exception {
+		testHttpFunction(configurationClass, input, expectedOutput, null);
+	}
+
+	private <I, O> void testHttpFunction(Class<?> configurationClass, I input, O expectedOutput,
+			Charset charset) throws Exception {
 		try (FunctionInvoker handler = new FunctionInvoker(configurationClass);) {
 
 			HttpRequest request = Mockito.mock(HttpRequest.class);
 
 			if (input != null) {
-				when(request.getReader()).thenReturn(new BufferedReader(new StringReader(gson.toJson(input))));
+				byte[] body = gson.toJson(input).getBytes(charset == null ? StandardCharsets.UTF_8 : charset);
+				when(request.getInputStream()).thenReturn(new ByteArrayInputStream(body));
+				when(request.getCharacterEncoding())
+						.thenReturn(charset == null ? Optional.empty() : Optional.of(charset.name()));
 			}
 
 			HttpResponse response = Mockito.mock(HttpResponse.class);
-			StringWriter writer = new StringWriter();
-
-			BufferedWriter bufferedWriter = new BufferedWriter(writer);
-			when(response.getWriter()).thenReturn(bufferedWriter);
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			when(response.getOutputStream()).thenReturn(output);
 			handler.service(request, response);
 
-			// Closing the writer is done by the Framework/caller.
-			bufferedWriter.close();
-
 			if (expectedOutput != null) {
-				assertThat(writer.toString()).isEqualTo(gson.toJson(expectedOutput));
+				assertThat(new String(output.toByteArray(), StandardCharsets.UTF_8))
+						.isEqualTo(gson.toJson(expectedOutput));
 			}
 		}
 	}
@@ -16,19 +16,36 @@
 
 package org.springframework.cloud.function.adapter.openwhisk;
 
-import java.util.ArrayList;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -47,8 +64,22 @@ public class OpenWhiskActionHandler extends OpenWhiskFunctionInitializer {
 	@Autowired
 	private ObjectMapper mapper;
 
+	private volatile ObjectReader payloadReader;
+
+	private volatile ObjectWriter resultWriter;
+
+	/*
+	 * Payload is only streamed directly into the input type of the function when
+	 * 'convertEvent' is not customized by a subclass.
+	 */
+	private final boolean convertEventOverridden;
+
 	public OpenWhiskActionHandler() {
 		super();
+		Method convertEvent = ReflectionUtils.findMethod(ClassUtils.getUserClass(this.getClass()),
+				"convertEvent", Map.class);
+		this.convertEventOverridden = convertEvent != null
+				&& convertEvent.getDeclaringClass() != OpenWhiskActionHandler.class;
 	}
 
 	@PostMapping("/init")
@@ -56,26 +87,124 @@ public class OpenWhiskActionHandler extends OpenWhiskFunctionInitializer {
 		initialize();
 	}
 
+	/**
+	 * Invokes the function streaming the request and response bodies. The 'value.payload'
+	 * of the request is deserialized directly into the input type of the function (unless
+	 * {@link #convertEvent(Map)} is overridden) and the result is written as '{"result": ...}'
+	 * envelope to the response stream.
+	 * @param request the action request
+	 * @param response the action response
+	 * @throws IOException if reading request or writing response fails
+	 */
 	@PostMapping(value = "/run", consumes = "application/json", produces = "application/json")
-	public Object run(@RequestBody OpenWhiskActionRequest request) {
+	public void run(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		Object input;
+		if (this.convertEventOverridden) {
+			input = convertEvent(this.mapper.readValue(request.getInputStream(), OpenWhiskActionRequest.class).getValue());
+		}
+		else {
+			try (JsonParser parser = this.mapper.getFactory().createParser(request.getInputStream())) {
+				input = this.readPayload(parser);
+			}
+		}
+		Publisher<?> output = null;
+		if (input != null) {
+			output = apply(extract(input));
+		}
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		this.writeBody(input, output, response.getOutputStream());
+	}
+
+	/**
+	 * Invokes the function with already bound action request.
+	 * @param request the action request
+	 * @return '{"result": ...}' envelope
+	 */
+	public Object run(OpenWhiskActionRequest request) {
 		Object input = convertEvent(request.getValue());
-		Object result = NO_INPUT_PROVIDED;
+		Publisher<?> output = null;
 		if (input != null) {
-			Publisher<?> output = apply(extract(input));
-			result = result(input, output);
+			output = apply(extract(input));
+		}
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try {
+			this.writeBody(input, output, body);
 		}
-		return serializeBody(result);
+		catch (IOException e) {
+			throw new IllegalStateException("Cannot convert output", e);
+		}
+		return new String(body.toByteArray(), StandardCharsets.UTF_8);
 	}
 
-	private Object result(Object input, Publisher<?> output) {
-		List<Object> result = new ArrayList<>();
-		for (Object value : Flux.from(output).toIterable()) {
-			result.add(value);
+	/*
+	 * Reads 'value.payload' of the action request skipping all other fields.
+	 */
+	private Object readPayload(JsonParser parser) throws IOException {
+		Object payload = null;
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
+			return null;
+		}
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ("value".equals(name) && token == JsonToken.START_OBJECT) {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String valueName = parser.getCurrentName();
+					parser.nextToken();
+					if ("payload".equals(valueName) && parser.currentToken() != JsonToken.VALUE_NULL) {
+						try {
+							payload = this.getPayloadReader().readValue(parser);
+						}
+						catch (IOException e) {
+							throw new IllegalStateException("Cannot convert event payload", e);
+						}
+					}
+					else {
+						parser.skipChildren();
+					}
+				}
+			}
+			else {
+				parser.skipChildren();
+			}
 		}
-		if (isSingleValue(input) && result.size() == 1) {
-			return result.get(0);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Action Request Payload:" + payload);
+		}
+		return payload;
+	}
+
+	/*
+	 * Writes '{"result": ...}' envelope. Single value is written as is for single value input,
+	 * otherwise values are written as array while they are produced by the function.
+	 */
+	private void writeBody(Object input, Publisher<?> output, OutputStream stream) throws IOException {
+		try (JsonGenerator generator = this.mapper.getFactory()
+				.createGenerator(StreamUtils.nonClosing(stream), JsonEncoding.UTF8)) {
+			generator.writeStartObject();
+			generator.writeFieldName("result");
+			if (output == null) {
+				generator.writeString(NO_INPUT_PROVIDED);
+			}
+			else {
+				Iterator<?> values = Flux.from(output).toIterable().iterator();
+				Object first = values.hasNext() ? values.next() : null;
+				if (first != null && isSingleValue(input) && !values.hasNext()) {
+					this.getResultWriter().writeValue(generator, first);
+				}
+				else {
+					generator.writeStartArray();
+					if (first != null) {
+						this.getResultWriter().writeValue(generator, first);
+					}
+					while (values.hasNext()) {
+						this.getResultWriter().writeValue(generator, values.next());
+					}
+					generator.writeEndArray();
+				}
+			}
+			generator.writeEndObject();
 		}
-		return result;
 	}
 
 	private boolean isSingleValue(Object input) {
@@ -110,13 +239,27 @@ public class OpenWhiskActionHandler extends OpenWhiskFunctionInitializer {
 		}
 	}
 
-	private String serializeBody(Object body) {
-		try {
-			return "{\"result\":" + this.mapper.writeValueAsString(body) + "}";
+	/*
+	 * Readers and writers are immutable, so they are built once (after the function is
+	 * initialized) and shared by concurrent invocations.
+	 */
+	private ObjectReader getPayloadReader() {
+		ObjectReader reader = this.payloadReader;
+		if (reader == null) {
+			reader = this.mapper.readerFor(getInputType());
+			this.payloadReader = reader;
 		}
-		catch (JsonProcessingException e) {
-			throw new IllegalStateException("Cannot convert output", e);
+		return reader;
+	}
+
+	private ObjectWriter getResultWriter() {
+		ObjectWriter writer = this.resultWriter;
+		if (writer == null) {
+			// generator is flushed once the envelope is complete
+			writer = this.mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+			this.resultWriter = writer;
 		}
+		return writer;
 	}
 
 }
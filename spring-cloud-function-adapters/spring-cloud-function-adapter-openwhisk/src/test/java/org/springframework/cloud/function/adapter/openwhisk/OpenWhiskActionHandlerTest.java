@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.function.adapter.openwhisk;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
@@ -24,6 +25,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -32,6 +34,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Scope;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.TestPropertySource;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -50,6 +54,9 @@ public class OpenWhiskActionHandlerTest {
 	@Autowired
 	ObjectMapper mapper;
 
+	@Autowired
+	AutowireCapableBeanFactory beanFactory;
+
 	@Test
 	public void testHandlerWithPayload() {
 		Map<String, String> testData = new HashMap<>();
@@ -78,6 +85,68 @@ public class OpenWhiskActionHandlerTest {
 		assertThat(result).isEqualTo("{\"result\":\"No input provided\"}");
 	}
 
+	@Test
+	public void testStreamingHandlerWithPayload() throws Exception {
+		this.actionHandler.init(new OpenWhiskInitRequest());
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/run");
+		request.setContentType("application/json");
+		request.setContent(("{\"action_name\":\"test_action\",\"value\":{\"ignored\":[1,{\"a\":2}],"
+				+ "\"payload\":{\"name\":\"Spring\"}},\"namespace\":\"test\"}").getBytes(StandardCharsets.UTF_8));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.actionHandler.run(request, response);
+		assertThat(response.getContentType()).startsWith("application/json");
+		assertThat(response.getContentAsString()).isEqualTo(
+				"{\"result\":{\"name\":\"Spring\",\"message\":\"Hello, Spring\"}}");
+
+		request = new MockHttpServletRequest("POST", "/run");
+		request.setContent("{\"action_name\":\"test_action\"}".getBytes(StandardCharsets.UTF_8));
+		response = new MockHttpServletResponse();
+		this.actionHandler.run(request, response);
+		assertThat(response.getContentAsString()).isEqualTo("{\"result\":\"No input provided\"}");
+	}
+
+	@Test
+	public void testStreamingHandlerWithNonObjectValue() throws Exception {
+		this.actionHandler.init(new OpenWhiskInitRequest());
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/run");
+		request.setContentType("application/json");
+		// the field following non-object 'value' must still be read
+		request.setContent(("{\"value\":\"text\",\"value\":{\"payload\":{\"name\":\"Spring\"}}}")
+				.getBytes(StandardCharsets.UTF_8));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.actionHandler.run(request, response);
+		assertThat(response.getContentAsString()).isEqualTo(
+				"{\"result\":{\"name\":\"Spring\",\"message\":\"Hello, Spring\"}}");
+	}
+
+	@Test
+	public void testStreamingHandlerWithCustomEventConversion() throws Exception {
+		OpenWhiskActionHandler handler = this.beanFactory.createBean(CustomEventActionHandler.class);
+		handler.init(new OpenWhiskInitRequest());
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/run");
+		request.setContentType("application/json");
+		request.setContent(("{\"value\":{\"name\":\"Spring\"}}").getBytes(StandardCharsets.UTF_8));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		handler.run(request, response);
+		assertThat(response.getContentAsString()).isEqualTo(
+				"{\"result\":{\"name\":\"Spring\",\"message\":\"Hello, Spring\"}}");
+	}
+
+	/**
+	 * Reads the entire value (rather than 'value.payload') as the input.
+	 */
+	protected static class CustomEventActionHandler extends OpenWhiskActionHandler {
+
+		@Autowired
+		private ObjectMapper mapper;
+
+		@Override
+		protected Object convertEvent(Map<String, Object> value) {
+			return value == null ? null : this.mapper.convertValue(value, getInputType());
+		}
+
+	}
+
 	@Configuration
 	@Import({ ContextFunctionCatalogAutoConfiguration.class,
 			JacksonAutoConfiguration.class })
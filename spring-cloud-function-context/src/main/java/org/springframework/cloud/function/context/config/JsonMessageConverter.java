@@ -17,6 +17,7 @@
 package org.springframework.cloud.function.context.config;
 
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 
@@ -83,6 +84,12 @@ public class JsonMessageConverter extends AbstractMessageConverter {
 		if (targetClass == byte[].class && message.getPayload() instanceof String) {
 			return ((String) message.getPayload()).getBytes(StandardCharsets.UTF_8);
 		}
+		else if (targetClass == byte[].class && message.getPayload() instanceof ByteBuffer) {
+			ByteBuffer buffer = ((ByteBuffer) message.getPayload()).duplicate();
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			return bytes;
+		}
 		else {
 			try {
 				return this.jsonMapper.fromJson(message.getPayload(), convertToType);
@@ -91,6 +98,9 @@ public class JsonMessageConverter extends AbstractMessageConverter {
 				if (message.getPayload() instanceof byte[] && targetClass.isAssignableFrom(String.class)) {
 					return new String((byte[]) message.getPayload(), StandardCharsets.UTF_8);
 				}
+				else if (message.getPayload() instanceof ByteBuffer && targetClass.isAssignableFrom(String.class)) {
+					return StandardCharsets.UTF_8.decode(((ByteBuffer) message.getPayload()).duplicate()).toString();
+				}
 			}
 		}
 
@@ -18,6 +18,7 @@ package org.springframework.cloud.function.json;
 
 import java.io.Reader;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import com.google.gson.Gson;
@@ -51,6 +52,9 @@ public class GsonMapper extends JsonMapper {
 		if (json instanceof byte[]) {
 			convertedValue = this.gson.fromJson(new String(((byte[]) json), StandardCharsets.UTF_8), type);
 		}
+		else if (json instanceof ByteBuffer) {
+			convertedValue = this.gson.fromJson(StandardCharsets.UTF_8.decode(((ByteBuffer) json).duplicate()).toString(), type);
+		}
 		else if (json instanceof String) {
 			convertedValue = this.gson.fromJson((String) json, type);
 		}
@@ -18,12 +18,14 @@ package org.springframework.cloud.function.json;
 
 import java.io.Reader;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 
 /**
  * @author Dave Syer
@@ -54,6 +56,14 @@ public class JacksonMapper extends JsonMapper {
 			else if (json instanceof byte[]) {
 				convertedValue = this.mapper.readValue((byte[]) json, constructType);
 			}
+			else if (json instanceof ByteBuffer) {
+				// reads buffer in place (without copying) leaving its position intact
+				ByteBuffer buffer = ((ByteBuffer) json).duplicate();
+				convertedValue = buffer.hasArray()
+						? this.mapper.readValue(buffer.array(), buffer.arrayOffset() + buffer.position(),
+								buffer.remaining(), constructType)
+						: this.mapper.readValue(new ByteBufferBackedInputStream(buffer), constructType);
+			}
 			else if (json instanceof Reader) {
 				convertedValue = this.mapper.readValue((Reader) json, constructType);
 			}
@@ -18,6 +18,7 @@ package org.springframework.cloud.function.json;
 
 import java.io.Reader;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -78,7 +79,8 @@ public abstract class JsonMapper {
 			return (T) results;
 		}
 		else {
-			if (!(json instanceof String) && !(json instanceof byte[]) && !(json instanceof Reader)) {
+			if (!(json instanceof String) && !(json instanceof byte[])
+					&& !(json instanceof ByteBuffer) && !(json instanceof Reader)) {
 				json = this.toJson(json);
 				if (FunctionTypeUtils.getRawType(type) == String.class) {
 					return (T) new String((byte[]) json, StandardCharsets.UTF_8);
@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.function.utils;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -79,6 +81,19 @@ public class JsonMapperTests {
 		assertThat(mapper.toString(foo)).isEqualTo(json);
 	}
 
+	@ParameterizedTest
+	@MethodSource("params")
+	public void byteBufferObject(JsonMapper mapper) {
+		byte[] json = "--{\"value\":\"foo\"}".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.wrap(json, 2, json.length - 2).slice();
+		Foo foo = mapper.fromJson(buffer, Foo.class);
+		assertThat(foo.getValue()).isEqualTo("foo");
+		assertThat(buffer.remaining()).isEqualTo(json.length - 2);
+
+		foo = mapper.fromJson(buffer.asReadOnlyBuffer(), Foo.class);
+		assertThat(foo.getValue()).isEqualTo("foo");
+	}
+
 	@ParameterizedTest
 	@MethodSource("params")
 	public void stringRepresentingJson(JsonMapper mapper) {
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.grpc;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.grpc.Status;
+import io.grpc.stub.CallStreamObserver;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+/**
+ * Subscriber which writes the values of a publisher to gRPC {@link CallStreamObserver}
+ * (outbound side of the call) honoring gRPC flow control. Values are requested
+ * in batches of 'prefetch' and the next batch is only requested while the call is ready
+ * ({@link CallStreamObserver#isReady()}). Otherwise requesting is paused until the
+ * transport signals readiness again via 'onReadyHandler', so a fast producer can not
+ * overwhelm a slow consumer and no thread is blocked while waiting.
+ *
+ * @param <T> type of the written messages
+ *
+ * @author Oleg Zhurakousky
+ * @since 3.2
+ *
+ */
+final class CallStreamObserverSubscriber<T> extends BaseSubscriber<T> {
+
+	private final CallStreamObserver<T> call;
+
+	private final int prefetch;
+
+	private final AtomicBoolean paused = new AtomicBoolean();
+
+	private int produced;
+
+	/**
+	 * Must be created before the call is started (e.g., in the service method on the server side
+	 * or in 'beforeStart' on the client side) since it registers 'onReadyHandler' of the call.
+	 * @param call the call to write values to
+	 * @param prefetch number of values requested at once
+	 */
+	CallStreamObserverSubscriber(CallStreamObserver<T> call, int prefetch) {
+		this.call = call;
+		this.prefetch = prefetch;
+		call.setOnReadyHandler(this::onReady);
+	}
+
+	@Override
+	protected void hookOnSubscribe(Subscription subscription) {
+		subscription.request(this.prefetch);
+	}
+
+	@Override
+	protected void hookOnNext(T value) {
+		if (this.isCancelled()) {
+			return;
+		}
+		this.call.onNext(value);
+		if (++this.produced == this.prefetch) {
+			this.produced = 0;
+			this.paused.set(true);
+			// readiness is re-checked after pausing, so signal of 'onReadyHandler' is never missed
+			if (this.call.isReady()) {
+				this.onReady();
+			}
+		}
+	}
+
+	@Override
+	protected void hookOnComplete() {
+		if (!this.isCancelled()) {
+			this.call.onCompleted();
+		}
+	}
+
+	@Override
+	protected void hookOnError(Throwable throwable) {
+		if (!this.isCancelled()) {
+			this.call.onError(Status.UNKNOWN.withDescription("Error producing stream")
+					.withCause(throwable).asException());
+		}
+	}
+
+	private void onReady() {
+		if (this.call.isReady() && this.paused.compareAndSet(true, false)) {
+			this.request(this.prefetch);
+		}
+	}
+
+	/*
+	 * Writing to a call cancelled by the client is not permitted.
+	 */
+	private boolean isCancelled() {
+		return this.call instanceof ServerCallStreamObserver
+				&& ((ServerCallStreamObserver<T>) this.call).isCancelled();
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.grpc;
+
+import io.grpc.stub.CallStreamObserver;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * {@link StreamObserver} which exposes received messages as {@link Flux}, bridging
+ * Reactive Streams demand to gRPC flow control. Automatic inbound flow control of the
+ * call is disabled and messages are requested from the remote peer only as they are
+ * requested by the subscriber (in batches of 'prefetch'), so at most 'prefetch'
+ * messages are ever buffered and no thread is blocked while waiting for them.
+ *
+ * @param <T> type of the received messages
+ *
+ * @author Oleg Zhurakousky
+ * @since 3.2
+ *
+ */
+final class FluxStreamObserver<T> implements StreamObserver<T> {
+
+	private final Flux<T> flux;
+
+	private volatile FluxSink<T> sink;
+
+	private volatile boolean completed;
+
+	private volatile Throwable error;
+
+	/**
+	 * @param call the call used to request messages from the remote peer (inbound side of the call)
+	 * @param prefetch number of messages requested ahead of the subscriber
+	 */
+	FluxStreamObserver(CallStreamObserver<?> call, int prefetch) {
+		call.disableAutoInboundFlowControl();
+		this.flux = Flux.<T>create(sink -> {
+			// must be visible before any message is requested, since registering 'onRequest'
+			// requests the outstanding demand and messages may then arrive on a transport thread
+			this.sink = sink;
+			if (call instanceof ClientCallStreamObserver) {
+				sink.onCancel(() -> ((ClientCallStreamObserver<?>) call).cancel("Cancelled by subscriber", null));
+			}
+			// remote peer may terminate the stream before there is a subscriber
+			if (this.error != null) {
+				sink.error(this.error);
+			}
+			else if (this.completed) {
+				sink.complete();
+			}
+			else {
+				sink.onRequest(n -> call.request(n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) n));
+			}
+		}).limitRate(prefetch);
+	}
+
+	/**
+	 * Returns the received messages. Only single subscriber is supported.
+	 * @return received messages
+	 */
+	Flux<T> asFlux() {
+		return this.flux;
+	}
+
+	@Override
+	public void onNext(T value) {
+		// messages are only delivered once requested, so the sink is always set
+		this.sink.next(value);
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		this.error = t;
+		FluxSink<T> sink = this.sink;
+		if (sink != null) {
+			sink.error(t);
+		}
+	}
+
+	@Override
+	public void onCompleted() {
+		this.completed = true;
+		FluxSink<T> sink = this.sink;
+		if (sink != null) {
+			sink.complete();
+		}
+	}
+
+}
@@ -16,8 +16,11 @@
 
 package org.springframework.cloud.function.grpc;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.cloud.function.context.FunctionProperties;
+import org.springframework.util.unit.DataSize;
 
 /**
  *
@@ -35,6 +38,77 @@ public class FunctionGrpcProperties {
 
 	private int port = GRPC_PORT;
 
+	/**
+	 * Properties of the executor used by gRPC server to run service calls.
+	 */
+	private Executor executor = new Executor();
+
+	/**
+	 * Properties of the Netty transport.
+	 */
+	private Netty netty = new Netty();
+
+	/**
+	 * Properties of the client channels used by the client operations of 'GrpcUtils'.
+	 */
+	private Client client = new Client();
+
+	/**
+	 * Maximum size of the inbound message.
+	 */
+	private DataSize maxInboundMessageSize = DataSize.ofMegabytes(4);
+
+	/**
+	 * Initial HTTP/2 flow control window of each stream.
+	 */
+	private DataSize flowControlWindow = DataSize.ofMegabytes(1);
+
+	/**
+	 * Time without read activity after which the server sends keepalive ping.
+	 * Not set means keepalive is disabled.
+	 */
+	private Duration keepAliveTime;
+
+	/**
+	 * Time the server waits for keepalive ping acknowledgement before closing the connection.
+	 */
+	private Duration keepAliveTimeout;
+
+	/**
+	 * Most aggressive keepalive time clients are permitted to use.
+	 */
+	private Duration permitKeepAliveTime;
+
+	/**
+	 * Maximum number of concurrent calls permitted for each incoming connection.
+	 * Zero or negative value means no limit.
+	 */
+	private int maxConcurrentCallsPerConnection;
+
+	/**
+	 * Compression used for responses (e.g., 'gzip'). Not set means no compression.
+	 */
+	private String compression;
+
+	/**
+	 * Number of messages requested (and at most buffered) ahead of the consumer of a stream.
+	 * Applies to both, streams received from and streams sent to the remote peer.
+	 */
+	private int prefetch = 32;
+
+	/**
+	 * Number of threads dedicated to invocation of request-reply functions, so slow
+	 * functions do not occupy the threads of the gRPC server executor. Zero or negative
+	 * value means functions are invoked on the thread of the gRPC server executor.
+	 */
+	private int requestReplyThreads;
+
+	/**
+	 * Capacity of the queue of request-reply invocations waiting for a thread (see
+	 * 'requestReplyThreads'). Invocations exceeding it are rejected with 'RESOURCE_EXHAUSTED'.
+	 */
+	private int requestReplyQueueCapacity = 1024;
+
 	/**
 	 * Grpc Server port.
 	 */
@@ -45,4 +119,231 @@ public class FunctionGrpcProperties {
 	public void setPort(int port) {
 		this.port = port;
 	}
+
+	public Executor getExecutor() {
+		return this.executor;
+	}
+
+	public Netty getNetty() {
+		return this.netty;
+	}
+
+	public Client getClient() {
+		return this.client;
+	}
+
+	public DataSize getMaxInboundMessageSize() {
+		return this.maxInboundMessageSize;
+	}
+
+	public void setMaxInboundMessageSize(DataSize maxInboundMessageSize) {
+		this.maxInboundMessageSize = maxInboundMessageSize;
+	}
+
+	public DataSize getFlowControlWindow() {
+		return this.flowControlWindow;
+	}
+
+	public void setFlowControlWindow(DataSize flowControlWindow) {
+		this.flowControlWindow = flowControlWindow;
+	}
+
+	public Duration getKeepAliveTime() {
+		return this.keepAliveTime;
+	}
+
+	public void setKeepAliveTime(Duration keepAliveTime) {
+		this.keepAliveTime = keepAliveTime;
+	}
+
+	public Duration getKeepAliveTimeout() {
+		return this.keepAliveTimeout;
+	}
+
+	public void setKeepAliveTimeout(Duration keepAliveTimeout) {
+		this.keepAliveTimeout = keepAliveTimeout;
+	}
+
+	public Duration getPermitKeepAliveTime() {
+		return this.permitKeepAliveTime;
+	}
+
+	public void setPermitKeepAliveTime(Duration permitKeepAliveTime) {
+		this.permitKeepAliveTime = permitKeepAliveTime;
+	}
+
+	public int getMaxConcurrentCallsPerConnection() {
+		return this.maxConcurrentCallsPerConnection;
+	}
+
+	public void setMaxConcurrentCallsPerConnection(int maxConcurrentCallsPerConnection) {
+		this.maxConcurrentCallsPerConnection = maxConcurrentCallsPerConnection;
+	}
+
+	public String getCompression() {
+		return this.compression;
+	}
+
+	public void setCompression(String compression) {
+		this.compression = compression;
+	}
+
+	public int getPrefetch() {
+		return this.prefetch;
+	}
+
+	public void setPrefetch(int prefetch) {
+		this.prefetch = prefetch;
+	}
+
+	public int getRequestReplyThreads() {
+		return this.requestReplyThreads;
+	}
+
+	public void setRequestReplyThreads(int requestReplyThreads) {
+		this.requestReplyThreads = requestReplyThreads;
+	}
+
+	public int getRequestReplyQueueCapacity() {
+		return this.requestReplyQueueCapacity;
+	}
+
+	public void setRequestReplyQueueCapacity(int requestReplyQueueCapacity) {
+		this.requestReplyQueueCapacity = requestReplyQueueCapacity;
+	}
+
+	/**
+	 * Type of the executor used by gRPC server to run service calls.
+	 */
+	public enum ExecutorType {
+
+		/**
+		 * Default (unbounded, cached) executor of gRPC.
+		 */
+		DEFAULT,
+
+		/**
+		 * Executor with bounded amount of threads.
+		 */
+		BOUNDED,
+
+		/**
+		 * Executor which runs each call on a new virtual thread. Requires a JVM that
+		 * supports virtual threads, otherwise the default executor is used.
+		 */
+		VIRTUAL,
+
+		/**
+		 * Calls are run directly on the transport (Netty event loop) threads. Only
+		 * suitable for functions that never block.
+		 */
+		DIRECT
+
+	}
+
+	public static class Executor {
+
+		/**
+		 * Type of the executor.
+		 */
+		private ExecutorType type = ExecutorType.DEFAULT;
+
+		/**
+		 * Number of threads of 'bounded' executor.
+		 */
+		private int threads = Runtime.getRuntime().availableProcessors() * 2;
+
+		/**
+		 * Number of calls of 'bounded' executor which may wait for a thread. Calls exceeding
+		 * 'threads' plus 'queueCapacity' are rejected with 'RESOURCE_EXHAUSTED'.
+		 */
+		private int queueCapacity = 1024;
+
+		public ExecutorType getType() {
+			return this.type;
+		}
+
+		public void setType(ExecutorType type) {
+			this.type = type;
+		}
+
+		public int getThreads() {
+			return this.threads;
+		}
+
+		public void setThreads(int threads) {
+			this.threads = threads;
+		}
+
+		public int getQueueCapacity() {
+			return this.queueCapacity;
+		}
+
+		public void setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+		}
+
+	}
+
+	public static class Netty {
+
+		/**
+		 * Number of threads accepting connections. Zero means the default of gRPC.
+		 */
+		private int bossThreads;
+
+		/**
+		 * Number of threads handling the I/O of accepted connections. Zero means the
+		 * default of gRPC.
+		 */
+		private int workerThreads;
+
+		public int getBossThreads() {
+			return this.bossThreads;
+		}
+
+		public void setBossThreads(int bossThreads) {
+			this.bossThreads = bossThreads;
+		}
+
+		public int getWorkerThreads() {
+			return this.workerThreads;
+		}
+
+		public void setWorkerThreads(int workerThreads) {
+			this.workerThreads = workerThreads;
+		}
+
+	}
+
+	public static class Client {
+
+		/**
+		 * Number of channels (connections) used to communicate with the same 'host:port'.
+		 */
+		private int channelsPerAddress = 1;
+
+		/**
+		 * Time without calls after which connection of the channel is closed and channels
+		 * of the address are removed from the pool.
+		 */
+		private Duration idleTimeout = Duration.ofMinutes(5);
+
+		public int getChannelsPerAddress() {
+			return this.channelsPerAddress;
+		}
+
+		public void setChannelsPerAddress(int channelsPerAddress) {
+			this.channelsPerAddress = channelsPerAddress;
+		}
+
+		public Duration getIdleTimeout() {
+			return this.idleTimeout;
+		}
+
+		public void setIdleTimeout(Duration idleTimeout) {
+			this.idleTimeout = idleTimeout;
+		}
+
+	}
 }
@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.function.grpc;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.function.context.FunctionCatalog;
@@ -23,6 +24,7 @@ import org.springframework.cloud.function.context.FunctionProperties;
 import org.springframework.cloud.function.grpc.MessagingServiceGrpc.MessagingServiceImplBase;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
 
 /**
  *
@@ -31,17 +33,33 @@ import org.springframework.context.annotation.Configuration;
  */
 @Configuration(proxyBeanMethods = false)
 @EnableConfigurationProperties(FunctionGrpcProperties.class)
-@ConditionalOnProperty(name = "spring.cloud.function.grpc.server", havingValue = "true", matchIfMissing = true)
 class GrpcAutoConfiguration {
 
+	@Bean(destroyMethod = "shutdown")
+	public GrpcChannelPool grpcChannelPool(FunctionGrpcProperties grpcProperties) {
+		GrpcChannelPool channelPool = new GrpcChannelPool(grpcProperties.getClient().getChannelsPerAddress(),
+				grpcProperties.getClient().getIdleTimeout());
+		GrpcUtils.setChannelPool(channelPool);
+		return channelPool;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean(ProtobufMessageConverter.class)
+	public MessageConverter protobufMessageConverter() {
+		return new ProtobufMessageConverter();
+	}
+
 	@Bean
+	@ConditionalOnProperty(name = "spring.cloud.function.grpc.server", havingValue = "true", matchIfMissing = true)
 	public GrpcServer grpcServer(FunctionGrpcProperties grpcProperties, MessagingServiceImplBase grpcMessagingService) {
 		return new GrpcServer(grpcProperties, grpcMessagingService);
 	}
 
 
 	@Bean
-	public GrpcServerMessageHandler grpcMessageService(FunctionProperties funcProperties, FunctionCatalog functionCatalog) {
-		return new GrpcServerMessageHandler(funcProperties, functionCatalog);
+	@ConditionalOnProperty(name = "spring.cloud.function.grpc.server", havingValue = "true", matchIfMissing = true)
+	public GrpcServerMessageHandler grpcMessageService(FunctionProperties funcProperties,
+			FunctionGrpcProperties grpcProperties, FunctionCatalog functionCatalog) {
+		return new GrpcServerMessageHandler(funcProperties, grpcProperties, functionCatalog);
 	}
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.grpc;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Pool of gRPC client channels keyed by 'host:port' and shared by the client
+ * operations of {@link GrpcUtils}, so connections (and their HTTP/2 setup) are
+ * reused across calls instead of being established for every call.
+ * <br>
+ * Each address is served by a fixed number of channels used in round-robin fashion
+ * (each channel multiplexes concurrent calls over its connection). Connections of
+ * channels without calls are closed after 'idleTimeout' and channels of addresses not
+ * used for 'idleTimeout' are evicted from the pool.
+ *
+ * @author Oleg Zhurakousky
+ * @since 3.2
+ *
+ */
+final class GrpcChannelPool {
+
+	private static Log logger = LogFactory.getLog(GrpcChannelPool.class);
+
+	private final int channelsPerAddress;
+
+	private final long idleTimeoutNanos;
+
+	private final Map<String, PooledChannels> pool = new ConcurrentHashMap<>();
+
+	private volatile long lastEviction = System.nanoTime();
+
+	GrpcChannelPool(int channelsPerAddress, Duration idleTimeout) {
+		this.channelsPerAddress = Math.max(1, channelsPerAddress);
+		this.idleTimeoutNanos = idleTimeout.toNanos();
+	}
+
+	/**
+	 * Returns the channel connected (or connecting) to provided address.
+	 * @param host gRPC server host name
+	 * @param port gRPC server port
+	 * @return pooled channel which must not be shut down by the caller
+	 */
+	ManagedChannel getChannel(String host, int port) {
+		this.evictIdleChannels();
+		while (true) {
+			// 'lastUsed' is updated atomically with the lookup, so channels can not be evicted in between
+			PooledChannels channels = this.pool.compute(host + ":" + port, (address, existing) -> {
+				PooledChannels result = existing == null ? new PooledChannels(host, port) : existing;
+				result.lastUsed = System.nanoTime();
+				return result;
+			});
+			ManagedChannel channel = channels.next();
+			if (channel != null) {
+				return channel;
+			}
+			// channels were shut down by shutdown() after the lookup and are no longer in the pool
+		}
+	}
+
+	/**
+	 * Shuts down all pooled channels. Calls in progress are allowed to complete.
+	 * The pool remains usable and creates new channels as needed.
+	 */
+	void shutdown() {
+		this.pool.forEach((address, channels) -> {
+			if (this.pool.remove(address, channels)) {
+				channels.shutdown();
+			}
+		});
+	}
+
+	/*
+	 * Eviction is piggybacked on channel acquisition, so it requires no dedicated thread.
+	 */
+	private void evictIdleChannels() {
+		long now = System.nanoTime();
+		if (now - this.lastEviction < this.idleTimeoutNanos) {
+			return;
+		}
+		this.lastEviction = now;
+		this.pool.forEach((address, channels) -> this.pool.computeIfPresent(address, (key, current) -> {
+			if (now - current.lastUsed > this.idleTimeoutNanos) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Evicting idle gRPC channels of " + address);
+				}
+				current.shutdown();
+				return null;
+			}
+			return current;
+		}));
+	}
+
+	private final class PooledChannels {
+
+		private final String host;
+
+		private final int port;
+
+		private final ManagedChannel[] channels;
+
+		private final AtomicInteger index = new AtomicInteger();
+
+		private volatile long lastUsed = System.nanoTime();
+
+		private boolean closed;
+
+		PooledChannels(String host, int port) {
+			this.host = host;
+			this.port = port;
+			this.channels = new ManagedChannel[channelsPerAddress];
+			for (int i = 0; i < this.channels.length; i++) {
+				this.channels[i] = this.createChannel();
+			}
+		}
+
+		/*
+		 * Returns null if the channels were shut down, since a channel created by then
+		 * would never be shut down.
+		 */
+		ManagedChannel next() {
+			int i = Math.floorMod(this.index.getAndIncrement(), this.channels.length);
+			ManagedChannel channel = this.channels[i];
+			if (channel.isShutdown()) {
+				synchronized (this) {
+					if (this.closed) {
+						return null;
+					}
+					channel = this.channels[i];
+					if (channel.isShutdown()) {
+						channel = this.createChannel();
+						this.channels[i] = channel;
+					}
+				}
+			}
+			return channel;
+		}
+
+		void shutdown() {
+			synchronized (this) {
+				this.closed = true;
+			}
+			for (ManagedChannel channel : this.channels) {
+				channel.shutdown();
+			}
+		}
+
+		private ManagedChannel createChannel() {
+			return ManagedChannelBuilder.forAddress(this.host, this.port)
+					.usePlaintext()
+					.idleTimeout(idleTimeoutNanos, TimeUnit.NANOSECONDS)
+					.build();
+		}
+
+	}
+
+}
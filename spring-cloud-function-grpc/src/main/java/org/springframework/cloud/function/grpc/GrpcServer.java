@@ -16,16 +16,35 @@
 
 package org.springframework.cloud.function.grpc;
 
+import java.lang.reflect.Method;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Metadata;
 import io.grpc.Server;
-import io.grpc.ServerBuilder;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.netty.NettyServerBuilder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.cloud.function.grpc.MessagingServiceGrpc.MessagingServiceImplBase;
 import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
 
 class GrpcServer implements SmartLifecycle {
 
@@ -39,6 +58,12 @@ class GrpcServer implements SmartLifecycle {
 
 	private Server server;
 
+	private ExecutorService callExecutor;
+
+	private EventLoopGroup bossGroup;
+
+	private EventLoopGroup workerGroup;
+
 	GrpcServer(FunctionGrpcProperties grpcProperties, MessagingServiceImplBase grpcMessageService) {
 		this.grpcProperties = grpcProperties;
 		this.grpcMessageService = grpcMessageService;
@@ -48,9 +73,7 @@ class GrpcServer implements SmartLifecycle {
 	public void start() {
 		this.executor.execute(() -> {
 			try {
-				this.server = ServerBuilder.forPort(this.grpcProperties.getPort())
-						.addService(this.grpcMessageService)
-						.build();
+				this.server = this.buildServer();
 
 				logger.info("Starting gRPC server");
 				this.server.start();
@@ -67,10 +90,164 @@ class GrpcServer implements SmartLifecycle {
 		logger.info("Shutting down gRPC server");
 		this.server.shutdown();
 		this.executor.shutdown();
+		if (this.callExecutor != null) {
+			this.callExecutor.shutdown();
+		}
+		if (this.bossGroup != null) {
+			this.bossGroup.shutdownGracefully();
+			this.workerGroup.shutdownGracefully();
+		}
 	}
 
 	@Override
 	public boolean isRunning() {
 		return this.server != null && !this.server.isShutdown();
 	}
+
+	private Server buildServer() {
+		FunctionGrpcProperties properties = this.grpcProperties;
+		NettyServerBuilder builder = NettyServerBuilder.forPort(properties.getPort())
+				.maxInboundMessageSize((int) properties.getMaxInboundMessageSize().toBytes())
+				.flowControlWindow((int) properties.getFlowControlWindow().toBytes());
+
+		if (properties.getNetty().getBossThreads() > 0 || properties.getNetty().getWorkerThreads() > 0) {
+			// boss and worker groups must be provided together with the channel type
+			this.bossGroup = new NioEventLoopGroup(properties.getNetty().getBossThreads(),
+					new CustomizableThreadFactory("grpc-boss-"));
+			this.workerGroup = new NioEventLoopGroup(properties.getNetty().getWorkerThreads(),
+					new CustomizableThreadFactory("grpc-worker-"));
+			builder.bossEventLoopGroup(this.bossGroup)
+				.workerEventLoopGroup(this.workerGroup)
+				.channelType(NioServerSocketChannel.class);
+		}
+		if (properties.getKeepAliveTime() != null) {
+			builder.keepAliveTime(properties.getKeepAliveTime().toNanos(), TimeUnit.NANOSECONDS);
+		}
+		if (properties.getKeepAliveTimeout() != null) {
+			builder.keepAliveTimeout(properties.getKeepAliveTimeout().toNanos(), TimeUnit.NANOSECONDS);
+		}
+		if (properties.getPermitKeepAliveTime() != null) {
+			builder.permitKeepAliveTime(properties.getPermitKeepAliveTime().toNanos(), TimeUnit.NANOSECONDS);
+		}
+		if (properties.getMaxConcurrentCallsPerConnection() > 0) {
+			builder.maxConcurrentCallsPerConnection(properties.getMaxConcurrentCallsPerConnection());
+		}
+
+		ServerServiceDefinition service = this.grpcMessageService.bindService();
+		switch (properties.getExecutor().getType()) {
+			case DIRECT:
+				builder.directExecutor();
+				break;
+			case BOUNDED:
+				// tasks of the executor can not be rejected without leaving the call open, so the queue is
+				// bounded by limiting the calls instead (each call has at most one task queued at a time)
+				this.callExecutor = new ThreadPoolExecutor(properties.getExecutor().getThreads(),
+						properties.getExecutor().getThreads(), 60, TimeUnit.SECONDS,
+						new LinkedBlockingQueue<>(), new CustomizableThreadFactory("grpc-server-"));
+				builder.executor(this.callExecutor);
+				service = ServerInterceptors.intercept(service, new CallLimitingInterceptor(
+						properties.getExecutor().getThreads() + properties.getExecutor().getQueueCapacity()));
+				break;
+			case VIRTUAL:
+				this.callExecutor = virtualThreadExecutor();
+				if (this.callExecutor != null) {
+					builder.executor(this.callExecutor);
+				}
+				break;
+			default:
+				break;
+		}
+
+		if (StringUtils.hasText(properties.getCompression())) {
+			service = ServerInterceptors.intercept(service, new CompressionInterceptor(properties.getCompression()));
+		}
+		builder.addService(service);
+		return builder.build();
+	}
+
+	private ExecutorService virtualThreadExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		}
+		catch (Exception e) {
+			logger.warn("Virtual threads are not supported by this JVM, "
+					+ "falling back to default executor of gRPC server.");
+			return null;
+		}
+	}
+
+	/**
+	 * Limits the number of calls handled concurrently, closing the calls exceeding
+	 * the limit with 'RESOURCE_EXHAUSTED' status.
+	 */
+	private static class CallLimitingInterceptor implements ServerInterceptor {
+
+		private final int maxCalls;
+
+		private final AtomicInteger calls = new AtomicInteger();
+
+		CallLimitingInterceptor(int maxCalls) {
+			this.maxCalls = maxCalls;
+		}
+
+		@Override
+		public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers,
+				ServerCallHandler<Q, R> next) {
+			if (this.calls.incrementAndGet() > this.maxCalls) {
+				this.calls.decrementAndGet();
+				call.close(Status.RESOURCE_EXHAUSTED.withDescription("Maximum number of calls ("
+						+ this.maxCalls + ") handled by gRPC server was reached"), new Metadata());
+				return new ServerCall.Listener<Q>() { };
+			}
+			AtomicBoolean released = new AtomicBoolean();
+			try {
+				return new SimpleForwardingServerCallListener<Q>(next.startCall(call, headers)) {
+
+					@Override
+					public void onComplete() {
+						this.release();
+						super.onComplete();
+					}
+
+					@Override
+					public void onCancel() {
+						this.release();
+						super.onCancel();
+					}
+
+					private void release() {
+						if (released.compareAndSet(false, true)) {
+							calls.decrementAndGet();
+						}
+					}
+				};
+			}
+			catch (RuntimeException e) {
+				this.calls.decrementAndGet();
+				throw e;
+			}
+		}
+
+	}
+
+	/**
+	 * Sets compression of the responses of every call.
+	 */
+	private static class CompressionInterceptor implements ServerInterceptor {
+
+		private final String compression;
+
+		CompressionInterceptor(String compression) {
+			this.compression = compression;
+		}
+
+		@Override
+		public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers,
+				ServerCallHandler<Q, R> next) {
+			call.setCompression(this.compression);
+			return next.startCall(call, headers);
+		}
+
+	}
 }
@@ -35,8 +35,9 @@ package org.springframework.cloud.function.grpc;
 
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -46,16 +47,20 @@ import io.grpc.stub.StreamObserver;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Sinks;
-import reactor.core.publisher.Sinks.Many;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import org.springframework.cloud.function.context.FunctionCatalog;
 import org.springframework.cloud.function.context.FunctionProperties;
+import org.springframework.cloud.function.context.catalog.FunctionTypeUtils;
 import org.springframework.cloud.function.context.catalog.SimpleFunctionRegistry.FunctionInvocationWrapper;
 import org.springframework.cloud.function.grpc.MessagingServiceGrpc.MessagingServiceImplBase;
 import org.springframework.context.SmartLifecycle;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 
@@ -67,9 +72,16 @@ import org.springframework.util.CollectionUtils;
  */
 class GrpcServerMessageHandler extends MessagingServiceImplBase implements SmartLifecycle {
 
+	/**
+	 * Name of the header which specifies the content type of the function output.
+	 */
+	static final String ACCEPT = "accept";
+
 	private Log logger = LogFactory.getLog(GrpcServerMessageHandler.class);
 
-	private final ExecutorService executor;
+	private final ExecutorService requestReplyExecutor;
+
+	private final int prefetch;
 
 	private final FunctionProperties funcProperties;
 
@@ -78,21 +90,52 @@ class GrpcServerMessageHandler extends MessagingServiceImplBase implements Smart
 	private boolean running;
 
 
-	GrpcServerMessageHandler(FunctionProperties funcProperties, FunctionCatalog functionCatalog) {
+	GrpcServerMessageHandler(FunctionProperties funcProperties, FunctionGrpcProperties grpcProperties,
+			FunctionCatalog functionCatalog) {
 		this.functionCatalog = functionCatalog;
 		this.funcProperties = funcProperties;
-		this.executor = Executors.newCachedThreadPool();
+		this.prefetch = grpcProperties.getPrefetch();
+		// bounded queue, so overload is rejected rather than queued without limit
+		this.requestReplyExecutor = grpcProperties.getRequestReplyThreads() > 0
+				? new ThreadPoolExecutor(grpcProperties.getRequestReplyThreads(), grpcProperties.getRequestReplyThreads(),
+						0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(grpcProperties.getRequestReplyQueueCapacity()),
+						new CustomizableThreadFactory("grpc-request-reply-"))
+				: null;
 	}
 
 	@Override
-	@SuppressWarnings("unchecked")
 	public void requestReply(GrpcMessage request, StreamObserver<GrpcMessage> responseObserver) {
-		Message<byte[]> message = GrpcUtils.fromGrpcMessage(request);
-		FunctionInvocationWrapper function = this.resolveFunction(message.getHeaders());
+		if (this.requestReplyExecutor == null) {
+			this.doRequestReply(request, responseObserver);
+		}
+		else {
+			try {
+				this.requestReplyExecutor.execute(() -> {
+					try {
+						this.doRequestReply(request, responseObserver);
+					}
+					catch (Exception e) {
+						logger.error("Failed to invoke function", e);
+						responseObserver.onError(Status.UNKNOWN.withDescription("Error handling request")
+								.withCause(e).asException());
+					}
+				});
+			}
+			catch (RejectedExecutionException e) {
+				responseObserver.onError(Status.RESOURCE_EXHAUSTED
+						.withDescription("Function invocation was rejected").withCause(e).asException());
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void doRequestReply(GrpcMessage request, StreamObserver<GrpcMessage> responseObserver) {
+		FunctionInvocationWrapper function = this.resolveFunction(request.getHeadersMap());
+		Message<?> message = toMessage(request, function);
 
 		Message<byte[]> replyMessage = (Message<byte[]>) function.apply(message);
 
-		GrpcMessage reply = GrpcUtils.toGrpcMessage(replyMessage);
+		GrpcMessage reply = GrpcUtils.wrapAsGrpcMessage(replyMessage);
 
 		responseObserver.onNext(reply);
 		responseObserver.onCompleted();
@@ -101,14 +144,15 @@ class GrpcServerMessageHandler extends MessagingServiceImplBase implements Smart
 	@SuppressWarnings("unchecked")
 	@Override
 	public void serverStream(GrpcMessage request, StreamObserver<GrpcMessage> responseObserver) {
-		Message<byte[]> message = GrpcUtils.fromGrpcMessage(request);
-		FunctionInvocationWrapper function = this.resolveFunction(message.getHeaders());
+		ServerCallStreamObserver<GrpcMessage> serverCallStreamObserver = (ServerCallStreamObserver<GrpcMessage>) responseObserver;
+		FunctionInvocationWrapper function = this.resolveFunction(request.getHeadersMap());
+		Message<?> message = toMessage(request, function);
 		Publisher<Message<byte[]>> replyStream = (Publisher<Message<byte[]>>) function.apply(message);
-		Flux.from(replyStream).doOnNext(replyMessage -> {
-			responseObserver.onNext(GrpcUtils.toGrpcMessage(replyMessage));
-		})
-		.doOnComplete(() -> responseObserver.onCompleted())
-		.subscribe();
+
+		CallStreamObserverSubscriber<GrpcMessage> replySubscriber =
+				new CallStreamObserverSubscriber<>(serverCallStreamObserver, this.prefetch);
+		serverCallStreamObserver.setOnCancelHandler(replySubscriber::dispose);
+		Flux.from(replyStream).map(GrpcUtils::wrapAsGrpcMessage).subscribe(replySubscriber);
 	}
 
 
@@ -116,19 +160,9 @@ class GrpcServerMessageHandler extends MessagingServiceImplBase implements Smart
 	@Override
 	public StreamObserver<GrpcMessage> clientStream(StreamObserver<GrpcMessage> responseObserver) {
 		ServerCallStreamObserver<GrpcMessage> serverCallStreamObserver = (ServerCallStreamObserver<GrpcMessage>) responseObserver;
-		serverCallStreamObserver.disableAutoInboundFlowControl();
 
 		FunctionInvocationWrapper function = this.resolveFunction(null);
 
-		AtomicBoolean wasReady = new AtomicBoolean(false);
-		serverCallStreamObserver.setOnReadyHandler(() -> {
-			if (serverCallStreamObserver.isReady() && !wasReady.get()) {
-				wasReady.set(true);
-				logger.info("gRPC Server receiving stream is ready.");
-				serverCallStreamObserver.request(1);
-			}
-		});
-
 		if (!function.isInputTypePublisher()) {
 			throw new UnsupportedOperationException("The client streaming is "
 					+ "not supported for functions that accept non-Publisher: "
@@ -140,71 +174,48 @@ class GrpcServerMessageHandler extends MessagingServiceImplBase implements Smart
 					+ function);
 		}
 		else {
-			Many<Message<byte[]>> inputStream = Sinks.many().unicast().onBackpressureBuffer();
-			Flux<Message<byte[]>> inputStreamFlux = inputStream.asFlux();
-
-			LinkedBlockingQueue<Message<byte[]>> resultRef = new LinkedBlockingQueue<>(1);
-			this.executor.execute(() -> {
-				Message<byte[]> replyMessage = (Message<byte[]>) function.apply(inputStreamFlux);
+			FluxStreamObserver<GrpcMessage> inputStream = new FluxStreamObserver<>(serverCallStreamObserver, this.prefetch);
+			Flux<Message<byte[]>> inputStreamFlux = inputStream.asFlux().map(inputMessage -> {
 				if (logger.isDebugEnabled()) {
-					logger.debug("Function invocation reply: " + replyMessage);
+					logger.debug("gRPC Server receiving: " + inputMessage);
 				}
-				resultRef.offer(replyMessage);
+				return GrpcUtils.fromGrpcMessage(inputMessage);
 			});
 
-			return new StreamObserver<GrpcMessage>() {
-
-				@Override
-				public void onNext(GrpcMessage inputMessage) {
+			// function returns single value, so it may block until the input stream is consumed
+			Disposable invocation = Mono.fromCallable(() -> (Message<byte[]>) function.apply(inputStreamFlux))
+				.subscribeOn(Schedulers.boundedElastic())
+				.subscribe(replyMessage -> {
 					if (logger.isDebugEnabled()) {
-						logger.debug("gRPC Server receiving: " + inputMessage);
+						logger.debug("Function invocation reply: " + replyMessage);
 					}
-
-					inputStream.tryEmitNext(GrpcUtils.fromGrpcMessage(inputMessage));
-					serverCallStreamObserver.request(1);
-				}
-
-				@Override
-				public void onError(Throwable t) {
-					t.printStackTrace();
-					responseObserver.onCompleted();
-				}
-
-				@Override
-				public void onCompleted() {
-					logger.info("gRPC Server has finished receiving data.");
-					inputStream.tryEmitComplete();
-					try {
-						responseObserver.onNext(GrpcUtils.toGrpcMessage(resultRef.poll(Integer.MAX_VALUE, TimeUnit.MILLISECONDS)));
+					if (!serverCallStreamObserver.isCancelled()) {
+						responseObserver.onNext(GrpcUtils.wrapAsGrpcMessage(replyMessage));
+						responseObserver.onCompleted();
 					}
-					catch (InterruptedException e) {
-						Thread.currentThread().interrupt();
+				}, error -> {
+					logger.error("Failed to invoke function", error);
+					if (!serverCallStreamObserver.isCancelled()) {
+						responseObserver.onError(Status.UNKNOWN.withDescription("Error handling request")
+								.withCause(error).asException());
 					}
-					responseObserver.onCompleted();
-				}
-			};
+				});
+			serverCallStreamObserver.setOnCancelHandler(invocation::dispose);
+
+			return inputStream;
 		}
 	}
 
+	@SuppressWarnings("unchecked")
 	@Override
 	public StreamObserver<GrpcMessage> biStream(StreamObserver<GrpcMessage> responseObserver) {
 		ServerCallStreamObserver<GrpcMessage> serverCallStreamObserver = (ServerCallStreamObserver<GrpcMessage>) responseObserver;
-		serverCallStreamObserver.disableAutoInboundFlowControl();
 
 		FunctionInvocationWrapper function = this.resolveFunction(null);
 
-		AtomicBoolean wasReady = new AtomicBoolean(false);
-		serverCallStreamObserver.setOnReadyHandler(() -> {
-			if (serverCallStreamObserver.isReady() && !wasReady.get()) {
-				wasReady.set(true);
-				logger.info("gRPC Server receiving stream is ready.");
-				serverCallStreamObserver.request(1);
-			}
-		});
-
 		if (function.isInputTypePublisher()) {
 			if (function.isOutputTypePublisher()) {
-				return this.biStreamReactive(responseObserver, serverCallStreamObserver);
+				return this.biStreamReactive(function, serverCallStreamObserver);
 			}
 			throw new UnsupportedOperationException("The bi-directional streaming is "
 					+ "not supported for functions that accept Publisher but return non-Publisher: "
@@ -212,7 +223,7 @@ class GrpcServerMessageHandler extends MessagingServiceImplBase implements Smart
 		}
 		else {
 			if (!function.isOutputTypePublisher()) {
-				return this.biStreamImperative(responseObserver, serverCallStreamObserver, wasReady);
+				return this.biStreamImperative(serverCallStreamObserver);
 			}
 			throw new UnsupportedOperationException("The bidirection streaming is "
 					+ "not supported for functions that accept non-Publisher but return Publisher: "
@@ -221,22 +232,33 @@ class GrpcServerMessageHandler extends MessagingServiceImplBase implements Smart
 		}
 	}
 
-	private StreamObserver<GrpcMessage> biStreamImperative(StreamObserver<GrpcMessage> responseObserver,
-			ServerCallStreamObserver<GrpcMessage> serverCallStreamObserver, AtomicBoolean wasReady) {
+	/*
+	 * Each request is processed as it is received and the next request is only
+	 * requested once the call is ready to accept the reply.
+	 */
+	private StreamObserver<GrpcMessage> biStreamImperative(ServerCallStreamObserver<GrpcMessage> serverCallStreamObserver) {
+		serverCallStreamObserver.disableAutoInboundFlowControl();
+		AtomicBoolean wasReady = new AtomicBoolean(false);
+		serverCallStreamObserver.setOnReadyHandler(() -> {
+			if (serverCallStreamObserver.isReady() && wasReady.compareAndSet(false, true)) {
+				serverCallStreamObserver.request(1);
+			}
+		});
+
 		return new StreamObserver<GrpcMessage>() {
 
 			@SuppressWarnings("unchecked")
 			@Override
 			public void onNext(GrpcMessage request) {
 				try {
-					Message<byte[]> message = GrpcUtils.fromGrpcMessage(request);
-					FunctionInvocationWrapper function = resolveFunction(message.getHeaders());
+					FunctionInvocationWrapper function = resolveFunction(request.getHeadersMap());
+					Message<?> message = toMessage(request, function);
 
 					Message<byte[]> replyMessage = (Message<byte[]>) function.apply(message);
 
-					GrpcMessage reply = GrpcUtils.toGrpcMessage(replyMessage);
+					GrpcMessage reply = GrpcUtils.wrapAsGrpcMessage(replyMessage);
 
-					responseObserver.onNext(reply);
+					serverCallStreamObserver.onNext(reply);
 
 					// Check the provided ServerCallStreamObserver to see if it is still
 					// ready to accept more messages.
@@ -245,25 +267,28 @@ class GrpcServerMessageHandler extends MessagingServiceImplBase implements Smart
 					}
 					else {
 						wasReady.set(false);
+						// readiness may have changed before the flag was reset
+						if (serverCallStreamObserver.isReady() && wasReady.compareAndSet(false, true)) {
+							serverCallStreamObserver.request(1);
+						}
 					}
 				}
 				catch (Throwable throwable) {
-					throwable.printStackTrace();
-					responseObserver.onError(
+					logger.error("Failed to invoke function", throwable);
+					serverCallStreamObserver.onError(
 							Status.UNKNOWN.withDescription("Error handling request").withCause(throwable).asException());
 				}
 			}
 
 			@Override
 			public void onError(Throwable t) {
-				t.printStackTrace();
-				responseObserver.onCompleted();
+				logger.debug("gRPC client terminated the stream with error", t);
 			}
 
 			@Override
 			public void onCompleted() {
 				logger.info("gRPC Server has finished receiving data.");
-				responseObserver.onCompleted();
+				serverCallStreamObserver.onCompleted();
 			}
 		};
 	}
@@ -275,13 +300,15 @@ class GrpcServerMessageHandler extends MessagingServiceImplBase implements Smart
 
 	@Override
 	public void stop() {
-		this.executor.shutdown();
-		try {
-			Assert.isTrue(this.executor.awaitTermination(5000, TimeUnit.MILLISECONDS), "gRPC Server executor timed out while stopping, "
-					+ "since there are currently executing tasks");
-		}
-		catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
+		if (this.requestReplyExecutor != null) {
+			this.requestReplyExecutor.shutdown();
+			try {
+				Assert.isTrue(this.requestReplyExecutor.awaitTermination(5000, TimeUnit.MILLISECONDS),
+						"gRPC Server executor timed out while stopping, since there are currently executing tasks");
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
 		}
 		this.running = false;
 	}
@@ -291,57 +318,72 @@ class GrpcServerMessageHandler extends MessagingServiceImplBase implements Smart
 		return this.running;
 	}
 
+	/*
+	 * Input and output streams are independent, so the call is completed once the output
+	 * stream of the function completes (rather than once the client stops sending).
+	 */
 	@SuppressWarnings("unchecked")
-	private StreamObserver<GrpcMessage> biStreamReactive(StreamObserver<GrpcMessage> responseObserver,
+	private StreamObserver<GrpcMessage> biStreamReactive(FunctionInvocationWrapper function,
 			ServerCallStreamObserver<GrpcMessage> serverCallStreamObserver) {
-		Many<Message<byte[]>> inputStream = Sinks.many().unicast().onBackpressureBuffer();
-		Flux<Message<byte[]>> inputStreamFlux = inputStream.asFlux();
-
-		FunctionInvocationWrapper function = this.resolveFunction(null);
+		FluxStreamObserver<GrpcMessage> inputStream = new FluxStreamObserver<>(serverCallStreamObserver, this.prefetch);
+		Flux<Message<byte[]>> inputStreamFlux = inputStream.asFlux().map(inputMessage -> {
+			if (logger.isDebugEnabled()) {
+				logger.debug("gRPC Server receiving: " + inputMessage);
+			}
+			return GrpcUtils.fromGrpcMessage(inputMessage);
+		});
 
 		Publisher<Message<byte[]>> outputPublisher = (Publisher<Message<byte[]>>) function.apply(inputStreamFlux);
 
-		Flux.from(outputPublisher).subscribe(functionResult -> {
-			GrpcMessage outputMessage = GrpcUtils.toGrpcMessage(functionResult);
+		CallStreamObserverSubscriber<GrpcMessage> replySubscriber =
+				new CallStreamObserverSubscriber<>(serverCallStreamObserver, this.prefetch);
+		serverCallStreamObserver.setOnCancelHandler(replySubscriber::dispose);
+		Flux.from(outputPublisher).map(functionResult -> {
+			GrpcMessage outputMessage = GrpcUtils.wrapAsGrpcMessage(functionResult);
 			if (logger.isDebugEnabled()) {
 				logger.debug("gRPC Server replying: " + outputMessage);
 			}
-			responseObserver.onNext(outputMessage);
-		});
+			return outputMessage;
+		}).subscribe(replySubscriber);
 
-		return new StreamObserver<GrpcMessage>() {
+		return inputStream;
+	}
 
-			@Override
-			public void onNext(GrpcMessage inputMessage) {
-				if (logger.isDebugEnabled()) {
-					logger.debug("gRPC Server receiving: " + inputMessage);
-				}
+	/*
+	 * JSON and protobuf payloads of functions with typed input are given as read-only view of the
+	 * received bytes which JSON and protobuf converters read in place, so the (potentially large)
+	 * payload is not copied. Other payloads and untyped functions receive a copy as 'byte[]' since
+	 * the rest of the converters (and the function itself) expect 'byte[]'.
+	 */
+	private static Message<?> toMessage(GrpcMessage request, FunctionInvocationWrapper function) {
+		String contentType = request.getHeadersMap().get(MessageHeaders.CONTENT_TYPE);
+		Class<?> itemType = function.getInputType() == null ? null
+				: FunctionTypeUtils.getRawType(function.getItemType(function.getInputType()));
+		return itemType == null || itemType == Object.class
+				|| (contentType != null && !contentType.contains("json") && !ProtobufMessageConverter.isProtobuf(contentType))
+				? GrpcUtils.fromGrpcMessage(request)
+				: GrpcUtils.fromGrpcMessageAsByteBuffer(request);
+	}
 
-				inputStream.tryEmitNext(GrpcUtils.fromGrpcMessage(inputMessage));
-				serverCallStreamObserver.request(1);
+	/*
+	 * The output is produced in the type explicitly accepted by the client. Otherwise clients
+	 * sending protobuf payloads receive protobuf and the rest receive JSON.
+	 */
+	private FunctionInvocationWrapper resolveFunction(Map<String, ?> headers) {
+		String functionDefinition = funcProperties.getDefinition();
+		String acceptedOutputType = "application/json";
+		if (!CollectionUtils.isEmpty(headers)) {
+			if (headers.containsKey(FunctionProperties.FUNCTION_DEFINITION)) {
+				functionDefinition = (String) headers.get(FunctionProperties.FUNCTION_DEFINITION);
 			}
-
-			@Override
-			public void onError(Throwable t) {
-				t.printStackTrace();
-				responseObserver.onCompleted();
+			if (headers.containsKey(ACCEPT)) {
+				acceptedOutputType = (String) headers.get(ACCEPT);
 			}
-
-			@Override
-			public void onCompleted() {
-				logger.info("gRPC Server has finished receiving data.");
-				inputStream.tryEmitComplete();
-				responseObserver.onCompleted();
+			else if (ProtobufMessageConverter.isProtobuf(headers.get(MessageHeaders.CONTENT_TYPE))) {
+				acceptedOutputType = ProtobufMessageConverter.PROTOBUF.toString();
 			}
-		};
-	}
-
-	private FunctionInvocationWrapper resolveFunction(Map<String, Object> headers) {
-		String functionDefinition = funcProperties.getDefinition();
-		if (!CollectionUtils.isEmpty(headers) && headers.containsKey(FunctionProperties.FUNCTION_DEFINITION)) {
-			functionDefinition = (String) headers.get(FunctionProperties.FUNCTION_DEFINITION);
 		}
-		FunctionInvocationWrapper function = this.functionCatalog.lookup(functionDefinition, "application/json");
+		FunctionInvocationWrapper function = this.functionCatalog.lookup(functionDefinition, acceptedOutputType);
 		Assert.notNull(function, "Failed to lookup function " + funcProperties.getDefinition());
 		return function;
 	}
@@ -16,28 +16,27 @@
 
 package org.springframework.cloud.function.grpc;
 
-import java.util.HashMap;
-import java.util.Iterator;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 import com.google.protobuf.ByteString;
-import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.UnsafeByteOperations;
 import io.grpc.stub.ClientCallStreamObserver;
 import io.grpc.stub.ClientResponseObserver;
 import io.grpc.stub.StreamObserver;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Sinks;
-import reactor.core.publisher.Sinks.Many;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
 
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.MimeType;
 
 /**
  *
@@ -49,6 +48,12 @@ final class GrpcUtils {
 
 	private static Log logger = LogFactory.getLog(GrpcUtils.class);
 
+	private static final Map<Object, String> HEADER_VALUES = new ConcurrentReferenceHashMap<>();
+
+	private static final int CLIENT_PREFETCH = 32;
+
+	private static volatile GrpcChannelPool channelPool = new GrpcChannelPool(1, Duration.ofMinutes(5));
+
 	private GrpcUtils() {
 
 	}
@@ -60,12 +65,42 @@ final class GrpcUtils {
 				.build();
 	}
 
-	public static GrpcMessage toGrpcMessage(Message<byte[]> message) {
-		Map<String, String> stringHeaders = new HashMap<>();
+	/**
+	 * Converts {@link Message} to {@link GrpcMessage}.
+	 * Payload could be 'byte[]', {@link ByteBuffer} or {@link ByteString}.
+	 * Protobuf message payloads are serialized in binary form as 'application/x-protobuf'
+	 * (unless content type is specified), so typed protobuf functions receive them without
+	 * intermediate JSON representation.
+	 * @param message the message
+	 * @return gRPC message
+	 */
+	public static GrpcMessage toGrpcMessage(Message<?> message) {
+		return toGrpcMessage(message, false);
+	}
+
+	/**
+	 * Same as {@link #toGrpcMessage(Message)}, but 'byte[]' and {@link ByteBuffer} payloads
+	 * are wrapped rather than copied. Only applicable to messages which are not modified
+	 * once converted (e.g., function results).
+	 * @param message the message
+	 * @return gRPC message
+	 */
+	static GrpcMessage wrapAsGrpcMessage(Message<?> message) {
+		return toGrpcMessage(message, true);
+	}
+
+	private static GrpcMessage toGrpcMessage(Message<?> message, boolean wrap) {
+		GrpcMessage.Builder builder = GrpcMessage.newBuilder().setPayload(toByteString(message.getPayload(), wrap));
+		if (message.getPayload() instanceof MessageLite && !message.getHeaders().containsKey(MessageHeaders.CONTENT_TYPE)) {
+			builder.putHeaders(MessageHeaders.CONTENT_TYPE, ProtobufMessageConverter.PROTOBUF.toString());
+		}
 		message.getHeaders().forEach((k, v) -> {
-			stringHeaders.put(k, v.toString());
+			// 'id' and 'timestamp' are always regenerated by the receiving side
+			if (!MessageHeaders.ID.equals(k) && !MessageHeaders.TIMESTAMP.equals(k) && v != null) {
+				builder.putHeaders(k, toHeaderValue(v));
+			}
 		});
-		return toGrpcMessage(message.getPayload(), stringHeaders);
+		return builder.build();
 	}
 
 	public static Message<byte[]> fromGrpcMessage(GrpcMessage message) {
@@ -74,21 +109,95 @@ final class GrpcUtils {
 				.build();
 	}
 
+	/**
+	 * Converts {@link GrpcMessage} to {@link Message} with read-only {@link ByteBuffer} payload
+	 * which is a view of the received bytes, so unlike {@link #fromGrpcMessage(GrpcMessage)}
+	 * payload is not copied.
+	 * @param message gRPC message
+	 * @return message with {@link ByteBuffer} payload
+	 */
+	public static Message<ByteBuffer> fromGrpcMessageAsByteBuffer(GrpcMessage message) {
+		return MessageBuilder.withPayload(message.getPayload().asReadOnlyByteBuffer())
+				.copyHeaders(message.getHeadersMap())
+				.build();
+	}
+
+	private static ByteString toByteString(Object payload, boolean wrap) {
+		if (payload instanceof ByteString) {
+			return (ByteString) payload;
+		}
+		else if (payload instanceof ByteBuffer) {
+			ByteBuffer buffer = ((ByteBuffer) payload).duplicate();
+			return wrap ? UnsafeByteOperations.unsafeWrap(buffer) : ByteString.copyFrom(buffer);
+		}
+		else if (payload instanceof byte[]) {
+			return wrap ? UnsafeByteOperations.unsafeWrap((byte[]) payload) : ByteString.copyFrom((byte[]) payload);
+		}
+		else if (payload instanceof String) {
+			return ByteString.copyFromUtf8((String) payload);
+		}
+		else if (payload instanceof MessageLite) {
+			return ((MessageLite) payload).toByteString();
+		}
+		throw new IllegalStateException("Unsupported payload type " + payload.getClass()
+				+ ". Supported types are byte[], ByteBuffer, ByteString, String and protobuf message");
+	}
+
+	/*
+	 * String values are used as is. Values of other immutable types commonly used
+	 * as headers (e.g., content type) are converted once and cached.
+	 */
+	private static String toHeaderValue(Object value) {
+		if (value instanceof String) {
+			return (String) value;
+		}
+		if (value instanceof MimeType || value instanceof Boolean || value instanceof Enum) {
+			return HEADER_VALUES.computeIfAbsent(value, Object::toString);
+		}
+		return value.toString();
+	}
+
+	/**
+	 * Replaces the pool of client channels used by the client operations of this class.
+	 * Channels of the previous pool are shut down.
+	 * @param channelPool the channel pool
+	 */
+	static void setChannelPool(GrpcChannelPool channelPool) {
+		GrpcChannelPool previous = GrpcUtils.channelPool;
+		GrpcUtils.channelPool = channelPool;
+		if (previous != channelPool) {
+			previous.shutdown();
+		}
+	}
+
 	public static Message<byte[]> requestReply(Message<byte[]> inputMessage) {
 		return requestReply("localhost", FunctionGrpcProperties.GRPC_PORT, inputMessage);
 	}
 
 	public static Message<byte[]> requestReply(String host, int port, Message<byte[]> inputMessage) {
-		ManagedChannel channel = ManagedChannelBuilder.forAddress(host, port)
-				.usePlaintext().build();
 		MessagingServiceGrpc.MessagingServiceBlockingStub stub = MessagingServiceGrpc
-				.newBlockingStub(channel);
+				.newBlockingStub(channelPool.getChannel(host, port));
 
 		GrpcMessage response = stub.requestReply(toGrpcMessage(inputMessage));
-		channel.shutdown();
 		return fromGrpcMessage(response);
 	}
 
+	/**
+	 * Non-blocking variant of {@link #requestReply(String, int, Message)}. The call is
+	 * made once the returned {@link Mono} is subscribed to.
+	 *
+	 * @param host gRPC server host name
+	 * @param port gRPC server port
+	 * @param inputMessage input message
+	 * @return {@code Mono<Message<byte[]>>} representing the reply
+	 */
+	public static Mono<Message<byte[]>> requestReplyAsync(String host, int port, Message<byte[]> inputMessage) {
+		return Mono.<GrpcMessage>create(sink -> {
+			MessagingServiceGrpc.newStub(channelPool.getChannel(host, port))
+				.requestReply(toGrpcMessage(inputMessage), monoObserver(sink));
+		}).map(GrpcUtils::fromGrpcMessage);
+	}
+
 	/**
 	 * Utility method to support bi-directional streaming interaction. Will connect to gRPC server using default host/port,
 	 * otherwise use {@link #biStreaming(String, int, Flux)} method.
@@ -114,47 +223,21 @@ final class GrpcUtils {
 	 * @return {@code Flux<Message<byte[]>>} representing output stream
 	 */
 	public static Flux<Message<byte[]>> biStreaming(String host, int port, Flux<Message<byte[]>> inputStream) {
-		ManagedChannel channel = ManagedChannelBuilder
-				.forAddress(host, port)
-				.usePlaintext().build();
-		MessagingServiceGrpc.MessagingServiceStub stub = MessagingServiceGrpc
-				.newStub(channel);
-		Many<Message<byte[]>> sink = Sinks.many().unicast().onBackpressureBuffer();
-
-		ClientResponseObserver<GrpcMessage, GrpcMessage> clientResponseObserver = clientResponseObserver(inputStream, sink);
-
-		stub.biStream(clientResponseObserver);
-
-		return sink.asFlux().doOnComplete(() -> {
-			logger.debug("Shutting down channel");
-			channel.shutdown();
-		});
+		return Flux.defer(() -> {
+			StreamingCallObserver observer = new StreamingCallObserver(inputStream);
+			StreamObserver<GrpcMessage> requestObserver = MessagingServiceGrpc
+					.newStub(channelPool.getChannel(host, port)).biStream(observer);
+			return observer.start(requestObserver);
+		}).map(GrpcUtils::fromGrpcMessage);
 	}
 
 	public static Flux<Message<byte[]>> serverStream(String host, int port, Message<byte[]> inputMessage) {
-		ManagedChannel channel = ManagedChannelBuilder.forAddress(host, port)
-				.usePlaintext().build();
-		MessagingServiceGrpc.MessagingServiceBlockingStub stub = MessagingServiceGrpc
-				.newBlockingStub(channel);
-
-		Iterator<GrpcMessage> serverStream = stub.serverStream(toGrpcMessage(inputMessage));
-
-		Many<Message<byte[]>> sink = Sinks.many().unicast().onBackpressureBuffer();
-		ExecutorService executor = Executors.newSingleThreadExecutor();
-		executor.execute(() -> {
-			while (serverStream.hasNext()) {
-				GrpcMessage grpcMessage = serverStream.next();
-				sink.tryEmitNext(GrpcUtils.fromGrpcMessage(grpcMessage));
-			}
-			sink.tryEmitComplete();
-		});
-
-
-		return sink.asFlux()
-				.doOnComplete(() -> {
-					channel.shutdown();
-					executor.shutdownNow();
-				});
+		return Flux.defer(() -> {
+			StreamingCallObserver observer = new StreamingCallObserver(null);
+			MessagingServiceGrpc.newStub(channelPool.getChannel(host, port))
+				.serverStream(toGrpcMessage(inputMessage), observer);
+			return observer.start(null);
+		}).map(GrpcUtils::fromGrpcMessage);
 	}
 
 
@@ -178,106 +261,107 @@ final class GrpcUtils {
 	 * @return {@code Message<byte[]>} representing output
 	 */
 	public static Message<byte[]> clientStream(String host, int port, Flux<Message<byte[]>> inputStream) {
-		ManagedChannel channel = ManagedChannelBuilder.forAddress(host, port)
-				.usePlaintext().build();
+		return clientStreamAsync(host, port, inputStream).block();
+	}
+
+	/**
+	 * Non-blocking variant of {@link #clientStream(String, int, Flux)}. The call is
+	 * made once the returned {@link Mono} is subscribed to.
+	 *
+	 * @param host gRPC server host name
+	 * @param port gRPC server port
+	 * @param inputStream {@code FluxMessage<byte[]>>} representing input stream
+	 * @return {@code Mono<Message<byte[]>>} representing output
+	 */
+	public static Mono<Message<byte[]>> clientStreamAsync(String host, int port, Flux<Message<byte[]>> inputStream) {
+		return Flux.defer(() -> {
+			StreamingCallObserver observer = new StreamingCallObserver(inputStream);
+			StreamObserver<GrpcMessage> requestObserver = MessagingServiceGrpc
+					.newStub(channelPool.getChannel(host, port)).clientStream(observer);
+			return observer.start(requestObserver);
+		}).singleOrEmpty().map(GrpcUtils::fromGrpcMessage);
+	}
+
+	private static StreamObserver<GrpcMessage> monoObserver(MonoSink<GrpcMessage> sink) {
+		return new StreamObserver<GrpcMessage>() {
 
-		LinkedBlockingQueue<Message<byte[]>> resultRef = new LinkedBlockingQueue<>(1);
-		StreamObserver<GrpcMessage> responseObserver = new StreamObserver<GrpcMessage>() {
 			@Override
-			public void onNext(GrpcMessage result) {
-				if (logger.isDebugEnabled()) {
-					logger.debug("Client received reply: " + result);
-				}
-				resultRef.offer(GrpcUtils.fromGrpcMessage(result));
+			public void onNext(GrpcMessage value) {
+				sink.success(value);
 			}
 
 			@Override
 			public void onError(Throwable t) {
-				t.printStackTrace();
+				sink.error(t);
 			}
 
 			@Override
 			public void onCompleted() {
-				logger.info("Client completed");
+				sink.success();
 			}
 		};
+	}
 
-		MessagingServiceGrpc.MessagingServiceStub asyncStub = MessagingServiceGrpc.newStub(channel);
+	/**
+	 * Response observer of streaming calls which exposes the responses as {@link Flux}
+	 * and streams the (optional) requests, both honoring gRPC flow control.
+	 */
+	private static final class StreamingCallObserver implements ClientResponseObserver<GrpcMessage, GrpcMessage> {
 
-		StreamObserver<GrpcMessage> requestObserver = asyncStub.clientStream(responseObserver);
+		private final Flux<Message<byte[]>> inputStream;
 
-		inputStream.doOnNext(message -> {
-			if (logger.isDebugEnabled()) {
-				logger.debug("Client sending: " + message);
-			}
-			try {
-				requestObserver.onNext(GrpcUtils.toGrpcMessage(message));
-			}
-			catch (Exception e) {
-				requestObserver.onError(e);
-			}
-		}).doOnComplete(() -> {
-			requestObserver.onCompleted();
-		}).subscribe();
+		private FluxStreamObserver<GrpcMessage> responses;
 
-		try {
-			return resultRef.poll(Integer.MAX_VALUE, TimeUnit.MILLISECONDS);
-		}
-		catch (InterruptedException ie) {
-			Thread.currentThread().interrupt();
-			throw new IllegalStateException(ie);
-		}
-	}
+		private CallStreamObserverSubscriber<GrpcMessage> requestSubscriber;
 
-	private static ClientResponseObserver<GrpcMessage, GrpcMessage> clientResponseObserver(Flux<Message<byte[]>> inputStream, Many<Message<byte[]>> sink) {
-		return new ClientResponseObserver<GrpcMessage, GrpcMessage>() {
+		StreamingCallObserver(Flux<Message<byte[]>> inputStream) {
+			this.inputStream = inputStream;
+		}
 
-			ClientCallStreamObserver<GrpcMessage> requestStreamObserver;
+		@Override
+		public void beforeStart(ClientCallStreamObserver<GrpcMessage> requestStream) {
+			this.responses = new FluxStreamObserver<>(requestStream, CLIENT_PREFETCH);
+			if (this.inputStream != null) {
+				this.requestSubscriber = new CallStreamObserverSubscriber<>(requestStream, CLIENT_PREFETCH);
+			}
+		}
 
-			@Override
-			public void beforeStart(ClientCallStreamObserver<GrpcMessage> requestStreamObserver) {
-				this.requestStreamObserver = requestStreamObserver;
-				requestStreamObserver.disableAutoInboundFlowControl();
-
-				requestStreamObserver.setOnReadyHandler(new Runnable() {
-					@Override
-					public void run() {
-						inputStream
-						.doOnNext(request -> {
-							if (logger.isDebugEnabled()) {
-								logger.debug("Streaming message to function: " + request);
-							}
-							requestStreamObserver.onNext(GrpcUtils.toGrpcMessage(request));
-						})
-						.doOnComplete(() -> {
-							requestStreamObserver.onCompleted();
-						})
-						.subscribe();
+		/*
+		 * Requests can only be sent once the call is started.
+		 */
+		Flux<GrpcMessage> start(StreamObserver<GrpcMessage> requestObserver) {
+			if (this.requestSubscriber != null) {
+				this.inputStream.map(request -> {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Streaming message to function: " + request);
 					}
-				});
+					return GrpcUtils.toGrpcMessage(request);
+				}).subscribe(this.requestSubscriber);
 			}
-
-			@Override
-			public void onNext(GrpcMessage message) {
-				if (logger.isDebugEnabled()) {
-					logger.debug("Streaming message from function: " + message);
+			return this.responses.asFlux().doOnCancel(() -> {
+				if (this.requestSubscriber != null) {
+					this.requestSubscriber.dispose();
 				}
-				sink.tryEmitNext(fromGrpcMessage(message));
-				requestStreamObserver.request(1);
+			});
+		}
 
+		@Override
+		public void onNext(GrpcMessage message) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Streaming message from function: " + message);
 			}
+			this.responses.onNext(message);
+		}
 
-			@Override
-			public void onError(Throwable t) {
-				t.printStackTrace();
-			}
+		@Override
+		public void onError(Throwable t) {
+			this.responses.onError(t);
+		}
+
+		@Override
+		public void onCompleted() {
+			this.responses.onCompleted();
+		}
 
-			@Override
-			public void onCompleted() {
-				logger.info("Client stream is complete");
-				sink.tryEmitComplete(); // TODO revisit as this would complete the server stream simply because the client is done.
-										// Perhaps we need to expose some boolean value when this is desirable
-			}
-		};
 	}
 }
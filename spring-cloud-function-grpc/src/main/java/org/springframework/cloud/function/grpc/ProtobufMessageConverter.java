@@ -0,0 +1,124 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.grpc;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.MimeType;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * {@link org.springframework.messaging.converter.MessageConverter} which converts
+ * binary protobuf payloads ('application/x-protobuf') to and from generated protobuf
+ * message types, so functions which accept or produce protobuf messages are invoked
+ * without intermediate JSON representation.
+ * <br>
+ * Payloads are parsed directly from 'byte[]', {@link ByteBuffer} (e.g., a view of the
+ * received gRPC message) or {@link ByteString} using the parser of the target type.
+ *
+ * @author Oleg Zhurakousky
+ * @since 3.2
+ *
+ */
+class ProtobufMessageConverter extends AbstractMessageConverter {
+
+	/**
+	 * Content type of the binary protobuf payloads.
+	 */
+	static final MimeType PROTOBUF = new MimeType("application", "x-protobuf");
+
+	private final Map<Class<?>, Parser<?>> parsers = new ConcurrentReferenceHashMap<>();
+
+	ProtobufMessageConverter() {
+		super(PROTOBUF);
+	}
+
+	/**
+	 * Determines if provided content type represents binary protobuf payload.
+	 * @param contentType the value of content type header (could be null)
+	 * @return true if content type is 'application/x-protobuf'
+	 */
+	static boolean isProtobuf(Object contentType) {
+		if (contentType instanceof MimeType) {
+			return PROTOBUF.isCompatibleWith((MimeType) contentType);
+		}
+		return contentType != null && contentType.toString().startsWith(PROTOBUF.toString());
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return MessageLite.class.isAssignableFrom(clazz);
+	}
+
+	@Override
+	protected boolean canConvertFrom(Message<?> message, Class<?> targetClass) {
+		Object payload = message.getPayload();
+		return super.canConvertFrom(message, targetClass)
+				&& (payload instanceof byte[] || payload instanceof ByteBuffer
+						|| payload instanceof ByteString || targetClass.isInstance(payload));
+	}
+
+	@Override
+	protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+		Object payload = message.getPayload();
+		if (targetClass.isInstance(payload)) {
+			return payload;
+		}
+		Parser<?> parser = this.parsers.computeIfAbsent(targetClass, ProtobufMessageConverter::parser);
+		try {
+			if (payload instanceof ByteBuffer) {
+				// parsing does not change the position of the original buffer
+				return parser.parseFrom(((ByteBuffer) payload).duplicate());
+			}
+			else if (payload instanceof ByteString) {
+				return parser.parseFrom((ByteString) payload);
+			}
+			return parser.parseFrom((byte[]) payload);
+		}
+		catch (InvalidProtocolBufferException e) {
+			throw new MessageConversionException(message, "Failed to parse protobuf payload as " + targetClass, e);
+		}
+	}
+
+	@Override
+	protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+		return ((MessageLite) payload).toByteArray();
+	}
+
+	private static Parser<?> parser(Class<?> messageType) {
+		Method getDefaultInstance = ReflectionUtils.findMethod(messageType, "getDefaultInstance");
+		if (getDefaultInstance == null) {
+			throw new IllegalStateException("Protobuf message type " + messageType
+					+ " does not provide 'getDefaultInstance()' method");
+		}
+		MessageLite defaultInstance = (MessageLite) ReflectionUtils.invokeMethod(getDefaultInstance, null);
+		return defaultInstance.getParserForType();
+	}
+
+}
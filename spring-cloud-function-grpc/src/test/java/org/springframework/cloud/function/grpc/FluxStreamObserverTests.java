@@ -0,0 +1,105 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.grpc;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.grpc.stub.CallStreamObserver;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Oleg Zhurakousky
+ *
+ */
+public class FluxStreamObserverTests {
+
+	@Test
+	public void testMessageDeliveredWhileRequesting() {
+		AtomicReference<FluxStreamObserver<String>> observer = new AtomicReference<>();
+		// delivers the message from within 'request', as the transport may do right after the demand is issued
+		TestCallStreamObserver call = new TestCallStreamObserver(() -> observer.get().onNext("hello"));
+		observer.set(new FluxStreamObserver<>(call, 16));
+
+		assertThat(observer.get().asFlux().blockFirst(Duration.ofSeconds(5))).isEqualTo("hello");
+		assertThat(call.autoInboundFlowControl).isFalse();
+		assertThat(call.requested).isPositive();
+	}
+
+	@Test
+	public void testStreamCompletedBeforeSubscription() {
+		TestCallStreamObserver call = new TestCallStreamObserver(() -> { });
+		FluxStreamObserver<String> observer = new FluxStreamObserver<>(call, 16);
+		observer.onCompleted();
+
+		assertThat(observer.asFlux().collectList().block(Duration.ofSeconds(5))).isEmpty();
+	}
+
+	private static class TestCallStreamObserver extends CallStreamObserver<String> {
+
+		private final Runnable onRequest;
+
+		private boolean autoInboundFlowControl = true;
+
+		private int requested;
+
+		TestCallStreamObserver(Runnable onRequest) {
+			this.onRequest = onRequest;
+		}
+
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+
+		@Override
+		public void setOnReadyHandler(Runnable onReadyHandler) {
+		}
+
+		@Override
+		public void disableAutoInboundFlowControl() {
+			this.autoInboundFlowControl = false;
+		}
+
+		@Override
+		public void request(int count) {
+			this.requested += count;
+			this.onRequest.run();
+		}
+
+		@Override
+		public void setMessageCompression(boolean enable) {
+		}
+
+		@Override
+		public void onNext(String value) {
+		}
+
+		@Override
+		public void onError(Throwable t) {
+		}
+
+		@Override
+		public void onCompleted() {
+		}
+
+	}
+
+}
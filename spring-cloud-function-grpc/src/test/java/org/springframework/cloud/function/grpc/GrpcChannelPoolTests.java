@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.grpc;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.grpc.ManagedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Oleg Zhurakousky
+ *
+ */
+public class GrpcChannelPoolTests {
+
+	@Test
+	public void testChannelsAreSharedPerAddress() {
+		GrpcChannelPool pool = new GrpcChannelPool(2, Duration.ofMinutes(1));
+		try {
+			ManagedChannel first = pool.getChannel("localhost", 1234);
+			ManagedChannel second = pool.getChannel("localhost", 1234);
+			assertThat(first).isNotSameAs(second);
+			assertThat(pool.getChannel("localhost", 1234)).isSameAs(first);
+			assertThat(pool.getChannel("localhost", 1234)).isSameAs(second);
+			assertThat(pool.getChannel("localhost", 4321)).isNotIn(first, second);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testPoolIsUsableAfterShutdown() {
+		GrpcChannelPool pool = new GrpcChannelPool(1, Duration.ofMinutes(1));
+		ManagedChannel channel = pool.getChannel("localhost", 1234);
+		pool.shutdown();
+		assertThat(channel.isShutdown()).isTrue();
+
+		ManagedChannel newChannel = pool.getChannel("localhost", 1234);
+		assertThat(newChannel).isNotSameAs(channel);
+		assertThat(newChannel.isShutdown()).isFalse();
+		pool.shutdown();
+	}
+
+	@Test
+	public void testIdleChannelsAreEvicted() throws Exception {
+		GrpcChannelPool pool = new GrpcChannelPool(1, Duration.ofMillis(50));
+		ManagedChannel idle = pool.getChannel("localhost", 1234);
+		Thread.sleep(100);
+		ManagedChannel other = pool.getChannel("localhost", 4321);
+		assertThat(idle.isShutdown()).isTrue();
+		assertThat(other.isShutdown()).isFalse();
+		pool.shutdown();
+	}
+
+	@Test
+	public void testNoChannelLeaksWhenEvictedConcurrently() throws Exception {
+		GrpcChannelPool pool = new GrpcChannelPool(2, Duration.ofMillis(1));
+		Set<ManagedChannel> channels = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int i = 0; i < 4; i++) {
+			executor.execute(() -> {
+				for (int j = 0; j < 1000; j++) {
+					ManagedChannel channel = pool.getChannel("localhost", 1234 + j % 2);
+					channels.add(channel);
+					if (j % 100 == 0) {
+						pool.shutdown();
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+		pool.shutdown();
+		// every channel handed out was either evicted or shut down with the pool
+		assertThat(channels).allMatch(ManagedChannel::isShutdown);
+	}
+
+}
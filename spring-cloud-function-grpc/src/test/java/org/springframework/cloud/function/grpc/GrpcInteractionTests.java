@@ -22,8 +22,11 @@ import java.util.List;
 import java.util.Random;
 import java.util.function.Function;
 
+import com.google.protobuf.StringValue;
+import io.grpc.Status;
 import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
@@ -64,6 +67,139 @@ public class GrpcInteractionTests {
 		}
 	}
 
+	@Test
+	public void testRequestReplyWithServerTuning() {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+				SampleConfiguration.class).web(WebApplicationType.NONE).run(
+						"--spring.jmx.enabled=false",
+						"--spring.cloud.function.definition=uppercase",
+						"--spring.cloud.function.grpc.executor.type=bounded",
+						"--spring.cloud.function.grpc.executor.threads=2",
+						"--spring.cloud.function.grpc.netty.worker-threads=1",
+						"--spring.cloud.function.grpc.max-concurrent-calls-per-connection=10",
+						"--spring.cloud.function.grpc.compression=gzip",
+						"--spring.cloud.function.grpc.request-reply-threads=2",
+						"--spring.cloud.function.grpc.port=" + FunctionGrpcProperties.GRPC_PORT)) {
+
+			Message<byte[]> message = MessageBuilder.withPayload("\"hello gRPC\"".getBytes())
+					.setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.TEXT_PLAIN)
+					.build();
+
+			for (int i = 0; i < 5; i++) {
+				Message<byte[]> reply = GrpcUtils.requestReply(message);
+				assertThat(reply.getPayload()).isEqualTo("\"HELLO GRPC\"".getBytes());
+			}
+		}
+	}
+
+	@Test
+	public void testRequestReplyJsonPayload() {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+				SampleConfiguration.class).web(WebApplicationType.NONE).run(
+						"--spring.jmx.enabled=false",
+						"--spring.cloud.function.definition=greeting",
+						"--spring.cloud.function.grpc.port=" + FunctionGrpcProperties.GRPC_PORT)) {
+
+			Message<byte[]> message = MessageBuilder.withPayload("{\"name\":\"gRPC\"}".getBytes())
+					.setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+					.build();
+
+			Message<byte[]> reply = GrpcUtils.requestReply(message);
+
+			assertThat(reply.getPayload()).isEqualTo("{\"name\":\"Hello gRPC\"}".getBytes());
+		}
+	}
+
+	@Test
+	public void testRequestReplyProtobufPayload() throws Exception {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+				SampleConfiguration.class).web(WebApplicationType.NONE).run(
+						"--spring.jmx.enabled=false",
+						"--spring.cloud.function.definition=uppercaseProtobuf",
+						"--spring.cloud.function.grpc.port=" + FunctionGrpcProperties.GRPC_PORT)) {
+
+			Message<byte[]> message = MessageBuilder
+					.withPayload(StringValue.newBuilder().setValue("hello gRPC").build().toByteArray())
+					.setHeader(MessageHeaders.CONTENT_TYPE, "application/x-protobuf")
+					.build();
+
+			Message<byte[]> reply = GrpcUtils.requestReply(message);
+
+			assertThat(StringValue.parseFrom(reply.getPayload()).getValue()).isEqualTo("HELLO GRPC");
+			assertThat(reply.getHeaders().get(MessageHeaders.CONTENT_TYPE).toString())
+					.startsWith("application/x-protobuf");
+		}
+	}
+
+	@Test
+	public void testRequestReplyAsync() {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+				SampleConfiguration.class).web(WebApplicationType.NONE).run(
+						"--spring.jmx.enabled=false",
+						"--spring.cloud.function.definition=uppercase",
+						"--spring.cloud.function.grpc.client.channels-per-address=2",
+						"--spring.cloud.function.grpc.port=" + FunctionGrpcProperties.GRPC_PORT)) {
+
+			List<String> replies = Flux.range(0, 10)
+					.flatMap(i -> GrpcUtils.requestReplyAsync("localhost", FunctionGrpcProperties.GRPC_PORT,
+							MessageBuilder.withPayload(("\"hello " + i + "\"").getBytes()).build()))
+					.map(reply -> new String(reply.getPayload()))
+					.collectList()
+					.block(Duration.ofSeconds(5));
+
+			assertThat(replies).hasSize(10).contains("\"HELLO 0\"", "\"HELLO 9\"");
+		}
+	}
+
+	@Test
+	public void testRequestReplyRejectedWhenOverloaded() {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+				SampleConfiguration.class).web(WebApplicationType.NONE).run(
+						"--spring.jmx.enabled=false",
+						"--spring.cloud.function.definition=slowUppercase",
+						"--spring.cloud.function.grpc.request-reply-threads=1",
+						"--spring.cloud.function.grpc.request-reply-queue-capacity=1",
+						"--spring.cloud.function.grpc.port=" + FunctionGrpcProperties.GRPC_PORT)) {
+
+			// one invocation is running and one is queued, so the rest is rejected
+			List<String> replies = Flux.range(0, 5)
+					.flatMap(i -> GrpcUtils.requestReplyAsync("localhost", FunctionGrpcProperties.GRPC_PORT,
+							MessageBuilder.withPayload(("\"hello " + i + "\"").getBytes()).build())
+							.map(reply -> new String(reply.getPayload()))
+							.onErrorResume(e -> Mono.just(Status.fromThrowable(e).getCode().name())))
+					.collectList()
+					.block(Duration.ofSeconds(10));
+
+			assertThat(replies).hasSize(5).contains(Status.Code.RESOURCE_EXHAUSTED.name());
+			assertThat(replies).anyMatch(reply -> reply.startsWith("\"HELLO"));
+		}
+	}
+
+	@Test
+	public void testCallsRejectedWhenBoundedExecutorOverloaded() {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+				SampleConfiguration.class).web(WebApplicationType.NONE).run(
+						"--spring.jmx.enabled=false",
+						"--spring.cloud.function.definition=slowUppercase",
+						"--spring.cloud.function.grpc.executor.type=bounded",
+						"--spring.cloud.function.grpc.executor.threads=1",
+						"--spring.cloud.function.grpc.executor.queue-capacity=1",
+						"--spring.cloud.function.grpc.port=" + FunctionGrpcProperties.GRPC_PORT)) {
+
+			// one call is running and one is waiting, so the rest is closed rather than left hanging
+			List<String> replies = Flux.range(0, 5)
+					.flatMap(i -> GrpcUtils.requestReplyAsync("localhost", FunctionGrpcProperties.GRPC_PORT,
+							MessageBuilder.withPayload(("\"hello " + i + "\"").getBytes()).build())
+							.map(reply -> new String(reply.getPayload()))
+							.onErrorResume(e -> Mono.just(Status.fromThrowable(e).getCode().name())))
+					.collectList()
+					.block(Duration.ofSeconds(10));
+
+			assertThat(replies).hasSize(5).contains(Status.Code.RESOURCE_EXHAUSTED.name());
+			assertThat(replies).anyMatch(reply -> reply.startsWith("\"HELLO"));
+		}
+	}
+
 	@Test
 	public void testRequstReplyFunctionDefinitionInMessage() {
 		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
@@ -186,6 +322,27 @@ public class GrpcInteractionTests {
 		}
 	}
 
+	@Test
+	public void testServerStreamingExceedingPrefetch() {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+				SampleConfiguration.class).web(WebApplicationType.NONE).run(
+						"--spring.jmx.enabled=false",
+						"--spring.cloud.function.definition=countdown",
+						"--spring.cloud.function.grpc.prefetch=4",
+						"--spring.cloud.function.grpc.port="
+								+ FunctionGrpcProperties.GRPC_PORT)) {
+
+			Message<byte[]> message = MessageBuilder.withPayload("1000".getBytes()).build();
+
+			Flux<Message<byte[]>> reply =
+					GrpcUtils.serverStream("localhost", FunctionGrpcProperties.GRPC_PORT, message);
+
+			List<Message<byte[]>> results = reply.collectList().block(Duration.ofSeconds(10));
+			assertThat(results.size()).isEqualTo(1000);
+			assertThat(results.get(999).getPayload()).isEqualTo("1".getBytes());
+		}
+	}
+
 	@Test
 	public void testBiStreamStreamInStringOutFailure() {
 		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
@@ -254,6 +411,29 @@ public class GrpcInteractionTests {
 			return v -> v.toUpperCase();
 		}
 
+		@Bean
+		public Function<String, String> slowUppercase() {
+			return value -> {
+				try {
+					Thread.sleep(500);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return value.toUpperCase();
+			};
+		}
+
+		@Bean
+		public Function<Person, Person> greeting() {
+			return v -> new Person("Hello " + v.getName());
+		}
+
+		@Bean
+		public Function<StringValue, StringValue> uppercaseProtobuf() {
+			return v -> StringValue.newBuilder().setValue(v.getValue().toUpperCase()).build();
+		}
+
 		@Bean
 		public Function<String, String> reverse() {
 			return v -> new StringBuilder(v).reverse().toString();
@@ -276,9 +456,35 @@ public class GrpcInteractionTests {
 			}).collectList().block().toString();
 		}
 
+		@Bean
+		public Function<Integer, Flux<Integer>> countdown() {
+			return count -> Flux.range(1, count).map(i -> count - i + 1);
+		}
+
 		@Bean
 		public Function<String, Flux<String>> stringInStreamOut() {
 			return value -> Flux.just(value, value.toUpperCase());
 		}
 	}
+
+	public static class Person {
+
+		private String name;
+
+		public Person() {
+		}
+
+		public Person(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+	}
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.grpc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Oleg Zhurakousky
+ *
+ */
+public class GrpcUtilsTests {
+
+	@Test
+	public void testPublicConversionCopiesPayload() {
+		byte[] payload = "hello".getBytes(StandardCharsets.UTF_8);
+		GrpcMessage fromBytes = GrpcUtils.toGrpcMessage(payload, Collections.emptyMap());
+		GrpcMessage fromMessage = GrpcUtils.toGrpcMessage(MessageBuilder.withPayload(payload).build());
+		ByteBuffer buffer = ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8));
+		GrpcMessage fromBuffer = GrpcUtils.toGrpcMessage(MessageBuilder.withPayload(buffer).build());
+
+		payload[0] = 'j';
+		buffer.put(0, (byte) 'j');
+
+		assertThat(fromBytes.getPayload().toStringUtf8()).isEqualTo("hello");
+		assertThat(fromMessage.getPayload().toStringUtf8()).isEqualTo("hello");
+		assertThat(fromBuffer.getPayload().toStringUtf8()).isEqualTo("hello");
+	}
+
+	@Test
+	public void testWrappedConversionSharesPayload() {
+		byte[] payload = "hello".getBytes(StandardCharsets.UTF_8);
+		GrpcMessage wrapped = GrpcUtils.wrapAsGrpcMessage(MessageBuilder.withPayload(payload)
+				.setHeader("foo", "bar").build());
+
+		payload[0] = 'j';
+
+		assertThat(wrapped.getPayload().toStringUtf8()).isEqualTo("jello");
+		assertThat(wrapped.getHeadersMap()).containsEntry("foo", "bar").doesNotContainKeys("id", "timestamp");
+	}
+
+}
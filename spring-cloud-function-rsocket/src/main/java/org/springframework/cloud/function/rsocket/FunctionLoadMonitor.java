@@ -0,0 +1,105 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.rsocket;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.rsocket.lease.Lease;
+import reactor.core.publisher.Flux;
+
+/**
+ * Measures concurrency and latency of the requests handled by function server and grants
+ * RSocket leases based on the measured capacity.
+ * <br>
+ * The number of requests which could be handled per lease interval is estimated from
+ * the expected concurrency and the (exponentially weighted) average latency of the requests.
+ * Requests currently in flight are deducted and the rest is shared by all connections.
+ * No leases are granted while the expected concurrency is exhausted.
+ *
+ * @author Oleg Zhurakousky
+ * @since 3.2
+ *
+ */
+final class FunctionLoadMonitor {
+
+	private static final double LATENCY_WEIGHT = 0.2;
+
+	private final int maxConcurrency;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger connections = new AtomicInteger();
+
+	private volatile double latencyNanos;
+
+	FunctionLoadMonitor(int maxConcurrency) {
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	/**
+	 * Records the start of the request.
+	 * @return start time to be given to {@link #requestCompleted(long)}
+	 */
+	long requestStarted() {
+		this.inFlight.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records the completion (successful or not) of the request.
+	 * @param startTime the value returned by {@link #requestStarted()}
+	 */
+	void requestCompleted(long startTime) {
+		this.inFlight.decrementAndGet();
+		long latency = System.nanoTime() - startTime;
+		// racing updates may lose a sample which is acceptable for the estimate
+		double average = this.latencyNanos;
+		this.latencyNanos = average == 0 ? latency : average + LATENCY_WEIGHT * (latency - average);
+	}
+
+	int getInFlight() {
+		return this.inFlight.get();
+	}
+
+	/**
+	 * Leases granted to a single connection.
+	 * @param interval lease interval, which is also the time to live of the lease
+	 * @return leases
+	 */
+	Flux<Lease> leases(Duration interval) {
+		int timeToLive = (int) interval.toMillis();
+		return Flux.interval(Duration.ZERO, interval)
+				.map(tick -> this.grantedRequests(interval.toNanos()))
+				.filter(requests -> requests > 0)
+				.map(requests -> Lease.create(timeToLive, requests))
+				.doOnSubscribe(subscription -> this.connections.incrementAndGet())
+				.doFinally(signal -> this.connections.decrementAndGet());
+	}
+
+	int grantedRequests(long intervalNanos) {
+		int inFlight = this.inFlight.get();
+		if (inFlight >= this.maxConcurrency) {
+			return 0;
+		}
+		double latency = this.latencyNanos;
+		long capacity = latency > 0 ? (long) (this.maxConcurrency * (intervalNanos / latency)) : this.maxConcurrency;
+		long available = Math.max(capacity - inFlight, 1);
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(available / Math.max(this.connections.get(), 1), 1));
+	}
+
+}
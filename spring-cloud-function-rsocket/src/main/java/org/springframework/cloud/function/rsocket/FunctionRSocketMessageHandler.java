@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import io.rsocket.frame.FrameType;
@@ -60,8 +61,8 @@ import org.springframework.messaging.rsocket.annotation.support.RSocketFrameType
 import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
 import org.springframework.messaging.rsocket.annotation.support.RSocketPayloadReturnValueHandler;
 import org.springframework.messaging.support.MessageBuilder;
-import org.springframework.util.CollectionUtils;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.ObjectUtils;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.RouteMatcher;
 import org.springframework.util.RouteMatcher.Route;
@@ -88,6 +89,23 @@ class FunctionRSocketMessageHandler extends RSocketMessageHandler {
 
 	private final JsonMapper jsonMapper;
 
+	/*
+	 * Destinations for which function handler is known to be registered, so the
+	 * lookup of registered handlers is only consulted once per destination.
+	 */
+	private final Set<String> functionDestinations = ConcurrentHashMap.newKeySet();
+
+	/*
+	 * Parsed routes of the destinations injected as 'reconciledLookupDestination' header.
+	 */
+	private final Map<String, Route> reconciledRoutes = new ConcurrentHashMap<>();
+
+	private final PathPatternRouteMatcher reconciledRouteMatcher = new PathPatternRouteMatcher();
+
+	private boolean routingCallbackPresent;
+
+	private int prefetch = 256;
+
 	private static final Method FUNCTION_APPLY_METHOD =
 		ReflectionUtils.findMethod(Function.class, "apply", (Class<?>[]) null);
 
@@ -114,6 +132,17 @@ class FunctionRSocketMessageHandler extends RSocketMessageHandler {
 		List encoders = this.getEncoders();
 		encoders.set(0, new MessageAwareJsonEncoder(this.jsonMapper));
 		super.afterPropertiesSet();
+		this.routingCallbackPresent = this.getApplicationContext() != null
+				&& !ObjectUtils.isEmpty(this.getApplicationContext().getBeanNamesForType(MessageRoutingCallback.class));
+	}
+
+	/**
+	 * Sets the number of request-channel elements requested from the remote side
+	 * ahead of their consumption by the function.
+	 * @param prefetch the prefetch
+	 */
+	public void setPrefetch(int prefetch) {
+		this.prefetch = prefetch;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -131,11 +160,8 @@ class FunctionRSocketMessageHandler extends RSocketMessageHandler {
 		if (!FrameType.SETUP.equals(message.getHeaders().get("rsocketFrameType"))) {
 			String destination = this.discoverAndInjectDestinationHeader(message);
 
-			Set<String> mappings = this.getDestinationLookup().keySet();
-			if (!mappings.contains(destination)) {
-				FunctionInvocationWrapper function = FunctionRSocketUtils
-						.registerFunctionForDestination(destination, this.functionCatalog, this.getApplicationContext());
-				this.registerFunctionHandler(new RSocketListenerFunction(function), destination);
+			if (!this.functionDestinations.contains(destination)) {
+				this.registerFunctionHandlerIfNecessary(destination);
 			}
 		}
 
@@ -163,6 +189,21 @@ class FunctionRSocketMessageHandler extends RSocketMessageHandler {
 		return new CompositeMessageCondition(result.toArray(new MessageCondition[0]));
 	}
 
+	/*
+	 * Registration is serialized, so concurrent first requests to the same destination
+	 * do not register the handler more than once.
+	 */
+	private synchronized void registerFunctionHandlerIfNecessary(String destination) {
+		if (!this.functionDestinations.contains(destination)) {
+			if (!this.getDestinationLookup().containsKey(destination)) {
+				FunctionInvocationWrapper function = FunctionRSocketUtils
+						.registerFunctionForDestination(destination, this.functionCatalog, this.getApplicationContext());
+				this.registerFunctionHandler(new RSocketListenerFunction(function), destination);
+			}
+			this.functionDestinations.add(destination);
+		}
+	}
+
 	void registerFunctionHandler(Function<?, ?> function, String route) {
 		CompositeMessageCondition condition =
 			new CompositeMessageCondition(REQUEST_CONDITION,
@@ -174,7 +215,7 @@ class FunctionRSocketMessageHandler extends RSocketMessageHandler {
 	@Override
 	protected List<? extends HandlerMethodArgumentResolver> initArgumentResolvers() {
 		List<? extends HandlerMethodArgumentResolver> resolvers = super.initArgumentResolvers();
-		return Collections.singletonList(new MessageHandlerMethodArgumentResolver(this.jsonMapper, resolvers));
+		return Collections.singletonList(new MessageHandlerMethodArgumentResolver(this.jsonMapper, resolvers, this.prefetch));
 	}
 
 	@SuppressWarnings("unchecked")
@@ -187,7 +228,7 @@ class FunctionRSocketMessageHandler extends RSocketMessageHandler {
 	private String discoverAndInjectDestinationHeader(Message<?> message) {
 
 		String destination;
-		if (!CollectionUtils.isEmpty(this.getApplicationContext().getBeansOfType(MessageRoutingCallback.class))) {
+		if (this.routingCallbackPresent) {
 			destination = RoutingFunction.FUNCTION_NAME;
 		}
 		else if (StringUtils.hasText(this.functionProperties.getRoutingExpression())) {
@@ -216,22 +257,31 @@ class FunctionRSocketMessageHandler extends RSocketMessageHandler {
 	private void updateMessageHeaders(Message<?> message, String destination) {
 		Map<String, Object> headersMap = (Map<String, Object>) ReflectionUtils
 				.getField(this.headersField, message.getHeaders());
-		PathPatternRouteMatcher matcher = new PathPatternRouteMatcher();
-		headersMap.put(RECONCILED_LOOKUP_DESTINATION_HEADER, matcher.parseRoute(destination));
+		Route route = this.reconciledRoutes.get(destination);
+		if (route == null) {
+			route = this.reconciledRoutes.computeIfAbsent(destination, this.reconciledRouteMatcher::parseRoute);
+		}
+		headersMap.put(RECONCILED_LOOKUP_DESTINATION_HEADER, route);
 	}
 
 	protected static final class MessageHandlerMethodArgumentResolver implements SyncHandlerMethodArgumentResolver {
 
+		private static final ResolvableType MESSAGE_TYPE = ResolvableType.forClassWithGenerics(Message.class, byte[].class);
+
 		private final Decoder<byte[]> decoder;
 
-		private final JsonMapper jsonMapper;
+		private final MessageAwareJsonDecoder jsonDecoder;
 
 		private final List<? extends HandlerMethodArgumentResolver> resolvers;
 
-		MessageHandlerMethodArgumentResolver(JsonMapper jsonMapper, List<? extends HandlerMethodArgumentResolver> resolvers) {
+		private final int prefetch;
+
+		MessageHandlerMethodArgumentResolver(JsonMapper jsonMapper, List<? extends HandlerMethodArgumentResolver> resolvers,
+				int prefetch) {
 			this.decoder = new ByteArrayDecoder();
-			this.jsonMapper = jsonMapper;
+			this.jsonDecoder = new MessageAwareJsonDecoder(jsonMapper);
 			this.resolvers = resolvers;
+			this.prefetch = prefetch;
 		}
 
 		@Override
@@ -244,25 +294,27 @@ class FunctionRSocketMessageHandler extends RSocketMessageHandler {
 		public Object resolveArgumentValue(MethodParameter parameter,
 				Message<?> message) {
 			Object payload = message.getPayload();
+			// the demand of request-channel is propagated to the remote side in batches of 'prefetch'
 			Flux<DataBuffer> data = payload instanceof DataBuffer
 					? Flux.just((DataBuffer) payload)
-							: Flux.from((Publisher<DataBuffer>) payload);
+							: Flux.from((Publisher<DataBuffer>) payload).limitRate(this.prefetch);
 
 			if (message.getHeaders().containsKey(MessageHeaders.CONTENT_TYPE)
 					&& MimeTypeUtils.APPLICATION_JSON_VALUE.equals(message.getHeaders().get(MessageHeaders.CONTENT_TYPE).toString())) {
-				Flux<Object> argument = data.map(buffer -> {
-					byte[] bytePayload = this.decoder.decode(buffer, ResolvableType.forType(byte[].class), null, null);
-					if (JsonMapper.isJsonString(bytePayload)) {
-//						// could be array, map or string
-						Object structure = this.jsonMapper.fromJson(bytePayload, Object.class);
-						if (structure instanceof Map && ((Map<String, ?>) structure).containsKey(FunctionRSocketUtils.PAYLOAD)) {
-							return MessageBuilder.withPayload(((Map<String, ?>) structure).remove(FunctionRSocketUtils.PAYLOAD))
-									.copyHeaders((Map<String, ?>) ((Map<String, ?>) structure).get(FunctionRSocketUtils.HEADERS))
-									.build();
-						}
-					}
-					return MessageBuilder.withPayload(bytePayload).copyHeadersIfAbsent(message.getHeaders()).build();
-				});
+				// the envelope is walked once while its payload is kept as JSON bytes, so it is
+				// bound to the input type of the function by a single conversion
+				Flux<Object> argument = data.map(buffer -> MessageBuilder
+						.fromMessage((Message<?>) this.jsonDecoder.decode(buffer, MESSAGE_TYPE, MimeTypeUtils.APPLICATION_JSON, null))
+						.copyHeadersIfAbsent(message.getHeaders())
+						.build());
+				return MessageBuilder.createMessage(argument, message.getHeaders());
+			}
+			else if (FunctionRSocketUtils.isBinary(message.getHeaders().get(MessageHeaders.CONTENT_TYPE))) {
+				// binary mode - data carries raw payload while headers come from metadata
+				Flux<Object> argument = data.map(buffer -> MessageBuilder
+						.withPayload(this.decoder.decode(buffer, ResolvableType.forType(byte[].class), null, null))
+						.copyHeadersIfAbsent(message.getHeaders())
+						.build());
 				return MessageBuilder.createMessage(argument, message.getHeaders());
 			}
 			else { // delegate to the existing argument resolvers
@@ -296,7 +348,8 @@ class FunctionRSocketMessageHandler extends RSocketMessageHandler {
 
 	/**
 	 * This metadata extractor will ensure that any JSON data passed
-	 * via metadata will be copied into Message headers.
+	 * via metadata will be copied into Message headers. This is how
+	 * headers are carried in binary mode (see {@link RSocketFunctionProperties#isBinary()}).
 	 */
 	private static class HeadersAwareMetadataExtractor extends DefaultMetadataExtractor {
 		HeadersAwareMetadataExtractor(List<Decoder<?>> decoders) {
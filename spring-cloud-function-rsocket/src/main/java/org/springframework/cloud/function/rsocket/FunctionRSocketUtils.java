@@ -18,8 +18,13 @@ package org.springframework.cloud.function.rsocket;
 
 import java.lang.reflect.Type;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
@@ -55,6 +60,19 @@ final class FunctionRSocketUtils {
 
 	public static String HEADERS = "headers";
 
+	/**
+	 * Metadata header which marks the request-channel of pipelined forwarding
+	 * (see {@link RSocketForwardingFunction}), where each message must be replied exactly once.
+	 */
+	static final String PIPELINED = "rsocketPipelined";
+
+	/*
+	 * Headers managed by the framework which are never carried as metadata.
+	 */
+	private static final Set<String> FRAMEWORK_HEADERS = new HashSet<>(Arrays.asList(MessageHeaders.ID,
+			MessageHeaders.TIMESTAMP, MessageHeaders.CONTENT_TYPE, "lookupDestination", "reconciledLookupDestination",
+			"rsocketRequester", "rsocketFrameType", "rsocketResponse", PIPELINED));
+
 
 	private static final Pattern WS_URI_PATTERN = Pattern.compile("^(https?|wss?)://.+");
 
@@ -97,17 +115,24 @@ final class FunctionRSocketUtils {
 				Assert.isTrue(functionToRSocketDefinition.length == 2, "Must only contain one output redirect. Was '" + name + "'.");
 				FunctionInvocationWrapper function = functionCatalog.lookup(functionToRSocketDefinition[0], MimeTypeUtils.APPLICATION_JSON_VALUE);
 
-				String[] hostPort = StringUtils.delimitedListToStringArray(functionToRSocketDefinition[1], ":");
-
-				String forwardingUrl = functionToRSocketDefinition[1];
-				Builder rsocketRequesterBuilder = applicationContext.getBean(Builder.class);
-
-				RSocketRequester rsocketRequester = (WS_URI_PATTERN.matcher(forwardingUrl).matches())
-						? rsocketRequesterBuilder.websocket(URI.create(forwardingUrl))
-						: rsocketRequesterBuilder.tcp(hostPort[0], Integer.parseInt(hostPort[1]));
+				RSocketFunctionProperties rsocketProperties = applicationContext
+						.getBeanProvider(RSocketFunctionProperties.class).getIfAvailable(RSocketFunctionProperties::new);
+
+				// several targets (e.g., 'function>host1:port1;host2:port2') are load balanced
+				List<RSocketRequester> rsocketRequesters = new ArrayList<>();
+				for (String forwardingUrl : StringUtils.delimitedListToStringArray(functionToRSocketDefinition[1], ";")) {
+					Builder rsocketRequesterBuilder = applicationContext.getBean(Builder.class);
+					if (rsocketProperties.isBinary()) {
+						rsocketRequesterBuilder.dataMimeType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+					}
+					String[] hostPort = StringUtils.delimitedListToStringArray(forwardingUrl.trim(), ":");
+					rsocketRequesters.add((WS_URI_PATTERN.matcher(forwardingUrl.trim()).matches())
+							? rsocketRequesterBuilder.websocket(URI.create(forwardingUrl.trim()))
+							: rsocketRequesterBuilder.tcp(hostPort[0], Integer.parseInt(hostPort[1])));
+				}
 
-				RSocketForwardingFunction rsocketFunction =
-					new RSocketForwardingFunction(function, rsocketRequester, null);
+				RSocketForwardingFunction rsocketFunction = new RSocketForwardingFunction(function, rsocketRequesters,
+						rsocketProperties.getForwarding().isPipelined(), rsocketProperties.getForwarding().getMaxPending());
 				FunctionRegistration<RSocketForwardingFunction> functionRegistration =
 					new FunctionRegistration<>(rsocketFunction, name);
 				functionRegistration.type(
@@ -117,21 +142,61 @@ final class FunctionRSocketUtils {
 		}
 	}
 
+	/**
+	 * Determines if data of RSocket payload carries raw payload of the message (binary mode),
+	 * while message headers are carried by metadata.
+	 * @param dataMimeType data MIME type (could be null)
+	 * @return true if data MIME type is 'application/octet-stream'
+	 */
+	static boolean isBinary(Object dataMimeType) {
+		return dataMimeType != null && MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE.equals(dataMimeType.toString());
+	}
+
+	/**
+	 * Returns the headers which are carried as 'application/json' metadata entry in binary mode.
+	 * Only the headers with String, Number and Boolean values are included, excluding the headers
+	 * managed by the framework.
+	 * @param headers message headers
+	 * @return headers to be carried as metadata
+	 */
+	static Map<String, String> toMetadataHeaders(Map<String, Object> headers) {
+		Map<String, String> metadataHeaders = new HashMap<>();
+		for (Map.Entry<String, Object> header : headers.entrySet()) {
+			Object value = header.getValue();
+			if (!FRAMEWORK_HEADERS.contains(header.getKey())
+					&& (value instanceof String || value instanceof Number || value instanceof Boolean)) {
+				metadataHeaders.put(header.getKey(), value.toString());
+			}
+		}
+		return metadataHeaders;
+	}
+
 	static Map<String, Object> sanitizeMessageToMap(Message<?> message) {
 		Map<String, Object> messageMap = new HashMap<>();
 		messageMap.put(PAYLOAD, message.getPayload());
 		Map<String, Object> headers = new HashMap<>();
-		for (String key : message.getHeaders().keySet()) {
+		sanitizeHeaders(message.getHeaders(), headers);
+		messageMap.put(HEADERS, headers);
+		return messageMap;
+	}
+
+	/**
+	 * Copies headers which could be serialized, converting routing and content type headers
+	 * to their string representation.
+	 * @param headers headers to copy
+	 * @param sanitizedHeaders map to copy headers to
+	 */
+	static void sanitizeHeaders(Map<String, Object> headers, Map<String, Object> sanitizedHeaders) {
+		for (Map.Entry<String, Object> header : headers.entrySet()) {
+			String key = header.getKey();
 			if (key.equals("lookupDestination") ||
 					key.equals("reconciledLookupDestination") ||
 					key.equals(MessageHeaders.CONTENT_TYPE)) {
-				headers.put(key, message.getHeaders().get(key).toString());
+				sanitizedHeaders.put(key, header.getValue().toString());
 			}
 			else if (!key.equals("rsocketRequester")) {
-				headers.put(key, message.getHeaders().get(key));
+				sanitizedHeaders.put(key, header.getValue());
 			}
 		}
-		messageMap.put(HEADERS, headers);
-		return messageMap;
 	}
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.rsocket;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.util.RSocketProxy;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Responder {@link RSocket} of a single connection which limits the number of requests
+ * handled concurrently (rejecting the excess with {@link RejectedException}) and reports
+ * the requests to {@link FunctionLoadMonitor}.
+ *
+ * @author Oleg Zhurakousky
+ * @since 3.2
+ *
+ */
+class InFlightLimitingRSocket extends RSocketProxy {
+
+	private final int maxInFlight;
+
+	private final FunctionLoadMonitor loadMonitor;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	/**
+	 * @param source responder of the connection
+	 * @param maxInFlight maximum number of requests handled concurrently (0 means unlimited)
+	 * @param loadMonitor monitor to report the requests to
+	 */
+	InFlightLimitingRSocket(RSocket source, int maxInFlight, FunctionLoadMonitor loadMonitor) {
+		super(source);
+		this.maxInFlight = maxInFlight;
+		this.loadMonitor = loadMonitor;
+	}
+
+	@Override
+	public Mono<Void> fireAndForget(Payload payload) {
+		return Mono.defer(() -> this.tryAcquire(payload)
+				? this.track(super.fireAndForget(payload)).then()
+				: Mono.error(this.rejected()));
+	}
+
+	@Override
+	public Mono<Payload> requestResponse(Payload payload) {
+		return Mono.defer(() -> this.tryAcquire(payload)
+				? this.track(super.requestResponse(payload)).next()
+				: Mono.error(this.rejected()));
+	}
+
+	@Override
+	public Flux<Payload> requestStream(Payload payload) {
+		return Flux.defer(() -> this.tryAcquire(payload)
+				? this.track(super.requestStream(payload))
+				: Flux.error(this.rejected()));
+	}
+
+	/*
+	 * The first payload of the channel is only available once subscribed to, so the channel
+	 * is counted as a single request for as long as it is open. A rejected channel still
+	 * subscribes to the inbound payloads, releasing the first one and cancelling the rest.
+	 */
+	@Override
+	public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+		return Flux.defer(() -> this.tryAcquire(null)
+				? this.track(super.requestChannel(payloads))
+				: Flux.from(payloads).doOnNext(Payload::release).take(1)
+						.thenMany(Flux.error(this.rejected())));
+	}
+
+	private boolean tryAcquire(Payload payload) {
+		if (this.maxInFlight > 0 && this.inFlight.incrementAndGet() > this.maxInFlight) {
+			this.inFlight.decrementAndGet();
+			if (payload != null) {
+				payload.release();
+			}
+			return false;
+		}
+		return true;
+	}
+
+	private <T> Flux<T> track(Publisher<T> request) {
+		long startTime = this.loadMonitor.requestStarted();
+		return Flux.from(request).doFinally(signal -> {
+			if (this.maxInFlight > 0) {
+				this.inFlight.decrementAndGet();
+			}
+			this.loadMonitor.requestCompleted(startTime);
+		});
+	}
+
+	private RejectedException rejected() {
+		return new RejectedException("Maximum number of requests in flight (" + this.maxInFlight
+				+ ") was reached for the connection");
+	}
+
+}
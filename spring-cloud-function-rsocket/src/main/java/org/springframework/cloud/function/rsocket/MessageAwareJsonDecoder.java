@@ -16,15 +16,15 @@
 
 package org.springframework.cloud.function.rsocket;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
 import java.util.Map;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 
@@ -41,6 +41,11 @@ import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
 
 /**
+ * Decodes JSON frames which may represent message envelope (e.g., {"payload":..., "headers":{...}}).
+ * <br>
+ * The envelope is walked once with a token parser. The 'payload' is bound to the target type
+ * directly from its bytes, while 'headers' are only located and parsed if the target type
+ * is a message, so no intermediate map of the envelope is created.
  *
  * @author Oleg Zhurakousky
  * @since 3.1
@@ -48,6 +53,11 @@ import org.springframework.util.MimeTypeUtils;
  */
 class MessageAwareJsonDecoder extends AbstractDecoder<Object> {
 
+	private static final Type MAP_TYPE = ResolvableType.forClassWithGenerics(Map.class, String.class,
+			Object.class).getType();
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
 	private final JsonMapper jsonMapper;
 
 	MessageAwareJsonDecoder(JsonMapper jsonMapper) {
@@ -60,107 +70,140 @@ class MessageAwareJsonDecoder extends AbstractDecoder<Object> {
 		return mimeType != null && mimeType.isCompatibleWith(MimeTypeUtils.APPLICATION_JSON);
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public Object decode(DataBuffer dataBuffer, ResolvableType targetType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints)
 			throws DecodingException {
 
-		ResolvableType type = ResolvableType.forClassWithGenerics(Map.class, String.class,
-				Object.class);
-		Map<String, Object> messageMap = (Map<String, Object>) doDecode(dataBuffer, type,
-				mimeType, hints);
-		if (messageMap.containsKey(FunctionRSocketUtils.PAYLOAD)) {
-			Type requestedType = FunctionTypeUtils.getGenericType(targetType.getType());
-			Object payload;
-			if (String.class.isAssignableFrom(FunctionTypeUtils.getRawType(targetType.getType()))) {
-				Object rawPayload = messageMap.get(FunctionRSocketUtils.PAYLOAD);
-				if (rawPayload instanceof byte[]) {
-					payload = new String((byte[]) rawPayload, StandardCharsets.UTF_8);
-				}
-				else {
-					payload = rawPayload;
+		byte[] data = new byte[dataBuffer.readableByteCount()];
+		try {
+			dataBuffer.read(data);
+		}
+		finally {
+			DataBufferUtils.release(dataBuffer);
+		}
+
+		if (!isJsonObject(data)) {
+			return this.toResult(data, null, targetType);
+		}
+		try {
+			return this.decodeEnvelope(data, targetType);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/*
+	 * Only top level fields are examined. Structured 'payload' and 'headers' are skipped
+	 * while their boundaries are recorded, so they can be bound from the original bytes.
+	 */
+	private Object decodeEnvelope(byte[] data, ResolvableType targetType) throws IOException {
+		boolean hasPayload = false;
+		Object payload = null;
+		ByteBuffer headers = null;
+		try (JsonParser parser = this.jsonFactory.createParser(data)) {
+			parser.nextToken();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if (FunctionRSocketUtils.PAYLOAD.equals(fieldName)) {
+					hasPayload = true;
+					payload = token.isStructStart() ? slice(parser, data) : scalarValue(parser, token);
 				}
-			}
-			else if (byte[].class.isAssignableFrom(FunctionTypeUtils.getRawType(targetType.getType())))  {
-				Object rawPayload = messageMap.get(FunctionRSocketUtils.PAYLOAD);
-				if (rawPayload instanceof String) {
-					payload = ((String) rawPayload).getBytes(StandardCharsets.UTF_8);
+				else if (FunctionRSocketUtils.HEADERS.equals(fieldName) && token == JsonToken.START_OBJECT) {
+					headers = slice(parser, data);
 				}
 				else {
-					payload = rawPayload;
+					parser.skipChildren();
 				}
 			}
-			else {
-				payload =  this.jsonMapper.fromJson(messageMap.get(FunctionRSocketUtils.PAYLOAD), requestedType);
-			}
-//			if (String.class.isAssignableFrom(FunctionTypeUtils.getRawType(targetType.getType()))
-//					|| byte[].class.isAssignableFrom(FunctionTypeUtils.getRawType(targetType.getType()))) {
-//				Object rawPayload = messageMap.get(FunctionRSocketUtils.PAYLOAD);
-//				if (rawPayload instanceof byte[]) {
-//					payload = new String((byte[]) rawPayload, StandardCharsets.UTF_8);
-//				}
-//				else {
-//					payload = rawPayload;
-//				}
-//			}
-//			else {
-//				payload =  this.jsonMapper.fromJson(messageMap.get(FunctionRSocketUtils.PAYLOAD), requestedType);
-//			}
-
-			if (FunctionTypeUtils.isMessage(targetType.getType())) {
-				return MessageBuilder.withPayload(payload).copyHeaders(
-						(Map<String, ?>) messageMap.get(FunctionRSocketUtils.HEADERS))
-						.build();
-			}
-			else {
-				return payload;
-			}
 		}
-		else {
-			return messageMap;
+		if (hasPayload) {
+			return this.toResult(payload, headers, targetType);
 		}
+		return FunctionTypeUtils.isMessage(targetType.getType())
+				? this.toResult(data, null, targetType)
+				: this.jsonMapper.fromJson(data, MAP_TYPE);
 	}
 
-	private Object doDecode(DataBuffer dataBuffer, ResolvableType targetType,
-			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints)
-			throws DecodingException {
-
-		try {
-			byte[] data = toByteArray(dataBuffer.asInputStream());
-			if (JsonMapper.isJsonStringRepresentsMap(data)) {
-				return this.jsonMapper.fromJson(data, targetType.getType());
+	@SuppressWarnings("unchecked")
+	private Object toResult(Object rawPayload, @Nullable ByteBuffer headers, ResolvableType targetType) {
+		Type payloadType = FunctionTypeUtils.getGenericType(targetType.getType());
+		Class<?> rawType = FunctionTypeUtils.getRawType(payloadType);
+		Object payload;
+		if (String.class.isAssignableFrom(rawType)) {
+			payload = rawPayload instanceof byte[]
+					? new String((byte[]) rawPayload, StandardCharsets.UTF_8)
+					: this.toStructure(rawPayload);
+		}
+		else if (byte[].class.isAssignableFrom(rawType)) {
+			if (rawPayload instanceof String) {
+				payload = ((String) rawPayload).getBytes(StandardCharsets.UTF_8);
+			}
+			else if (rawPayload instanceof ByteBuffer) {
+				// structured payload is given as its JSON bytes, to be bound later to the actual type
+				ByteBuffer buffer = (ByteBuffer) rawPayload;
+				payload = new byte[buffer.remaining()];
+				buffer.get((byte[]) payload);
 			}
 			else {
-				Map<String, Object> messageMap = new HashMap<>();
-				messageMap.put(FunctionRSocketUtils.PAYLOAD, data);
-				return messageMap;
+				payload = rawPayload;
 			}
 		}
-		catch (IOException ex) {
-			throw new IllegalStateException(ex);
+		else {
+			payload = this.jsonMapper.fromJson(rawPayload, payloadType);
 		}
-		finally {
-			DataBufferUtils.release(dataBuffer);
+
+		if (FunctionTypeUtils.isMessage(targetType.getType())) {
+			return MessageBuilder.withPayload(payload)
+					.copyHeaders(headers == null ? null : (Map<String, ?>) this.jsonMapper.fromJson(headers, MAP_TYPE))
+					.build();
+		}
+		else {
+			return payload;
 		}
 	}
 
-	private byte[] toByteArray(final InputStream input) throws IOException {
-		try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
-			copyLarge(input, output, new byte[2048]);
-			return output.toByteArray();
+	/*
+	 * Structured payload is given as is (e.g., map) to targets which can not represent it.
+	 */
+	private Object toStructure(Object rawPayload) {
+		return rawPayload instanceof ByteBuffer ? this.jsonMapper.fromJson(rawPayload, Object.class) : rawPayload;
+	}
+
+	private static ByteBuffer slice(JsonParser parser, byte[] data) throws IOException {
+		int start = (int) parser.getTokenLocation().getByteOffset();
+		parser.skipChildren();
+		int end = (int) parser.getCurrentLocation().getByteOffset();
+		return ByteBuffer.wrap(data, start, end - start);
+	}
+
+	private static Object scalarValue(JsonParser parser, JsonToken token) throws IOException {
+		switch (token) {
+			case VALUE_STRING:
+				return parser.getText();
+			case VALUE_NUMBER_INT:
+			case VALUE_NUMBER_FLOAT:
+				return parser.getNumberValue();
+			case VALUE_TRUE:
+			case VALUE_FALSE:
+				return parser.getBooleanValue();
+			default:
+				return null;
 		}
 	}
 
-	private long copyLarge(final InputStream input, final OutputStream output,
-			final byte[] buffer) throws IOException {
-		long count = 0;
-		int n;
-		while (-1 != (n = input.read(buffer))) {
-			output.write(buffer, 0, n);
-			count += n;
+	private static boolean isJsonObject(byte[] data) {
+		int start = 0;
+		int end = data.length - 1;
+		while (start < end && Character.isWhitespace(data[start])) {
+			start++;
+		}
+		while (end > start && Character.isWhitespace(data[end])) {
+			end--;
 		}
-		return count;
+		return start < end && data[start] == '{' && data[end] == '}';
 	}
 
 	@Override
@@ -39,7 +39,7 @@ import org.springframework.messaging.rsocket.RSocketStrategies;
  * @since 3.1
  */
 @Configuration(proxyBeanMethods = false)
-@EnableConfigurationProperties(FunctionProperties.class)
+@EnableConfigurationProperties({ FunctionProperties.class, RSocketFunctionProperties.class })
 @ConditionalOnProperty(name = FunctionProperties.PREFIX + ".rsocket.enabled", matchIfMissing = true)
 class RSocketAutoConfiguration {
 
@@ -48,10 +48,11 @@ class RSocketAutoConfiguration {
 	@Primary
 	FunctionRSocketMessageHandler functionRSocketMessageHandler(RSocketStrategies rSocketStrategies,
 		ObjectProvider<RSocketMessageHandlerCustomizer> customizers, FunctionCatalog functionCatalog,
-		FunctionProperties functionProperties, JsonMapper jsonMapper) {
+		FunctionProperties functionProperties, RSocketFunctionProperties rsocketProperties, JsonMapper jsonMapper) {
 
 		FunctionRSocketMessageHandler rsocketMessageHandler = new FunctionRSocketMessageHandler(functionCatalog, functionProperties, jsonMapper);
 		rsocketMessageHandler.setRSocketStrategies(rSocketStrategies);
+		rsocketMessageHandler.setPrefetch(rsocketProperties.getPrefetch());
 		customizers.orderedStream().forEach((customizer) -> customizer.customize(rsocketMessageHandler));
 		return rsocketMessageHandler;
 	}
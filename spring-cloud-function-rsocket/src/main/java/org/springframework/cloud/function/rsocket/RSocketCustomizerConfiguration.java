@@ -16,8 +16,12 @@
 
 package org.springframework.cloud.function.rsocket;
 
+import io.rsocket.lease.Leases;
+import io.rsocket.plugins.RSocketInterceptor;
+
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.rsocket.messaging.RSocketStrategiesCustomizer;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
 import org.springframework.cloud.function.context.FunctionProperties;
 import org.springframework.cloud.function.json.JsonMapper;
 import org.springframework.context.annotation.Bean;
@@ -48,4 +52,23 @@ public class RSocketCustomizerConfiguration {
 			}
 		};
 	}
+
+	/*
+	 * Requests of each connection are limited and measured by its responder, and leases
+	 * (if enabled) are granted based on the measurements.
+	 */
+	@Bean
+	RSocketServerCustomizer functionRSocketServerCustomizer(RSocketFunctionProperties rsocketProperties) {
+		return server -> {
+			RSocketFunctionProperties.Lease lease = rsocketProperties.getLease();
+			if (rsocketProperties.getMaxInFlight() > 0 || lease.isEnabled()) {
+				FunctionLoadMonitor loadMonitor = new FunctionLoadMonitor(lease.getMaxConcurrency());
+				server.interceptors(registry -> registry.forResponder((RSocketInterceptor) rsocket ->
+						new InFlightLimitingRSocket(rsocket, rsocketProperties.getMaxInFlight(), loadMonitor)));
+				if (lease.isEnabled()) {
+					server.lease(() -> Leases.create().sender(stats -> loadMonitor.leases(lease.getInterval())));
+				}
+			}
+		};
+	}
 }
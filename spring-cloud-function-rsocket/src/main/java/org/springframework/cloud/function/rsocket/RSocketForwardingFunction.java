@@ -16,17 +16,34 @@
 
 package org.springframework.cloud.function.rsocket;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
 
 import org.springframework.cloud.function.context.catalog.SimpleFunctionRegistry.FunctionInvocationWrapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.rsocket.RSocketRequester;
 import org.springframework.messaging.support.GenericMessage;
+import org.springframework.util.Assert;
+import org.springframework.util.MimeTypeUtils;
 
 
 /**
@@ -34,7 +51,17 @@ import org.springframework.messaging.support.GenericMessage;
  * which will use the result of the invocation of such function as an input to another RSocket
  * effectively composing two functions over RSocket.
  * <p>
- * Note: the remote RSocket route is not required to represent Spring Cloud Function binding.
+ * Messages are load balanced (round robin) across the requesters of all downstream targets.
+ * In pipelined mode (see {@link RSocketFunctionProperties.Forwarding#isPipelined()}) each
+ * downstream target has a single request-channel which is kept open, and messages are sent
+ * over it as they come (subject to the demand of the downstream), rather than as separate
+ * request per message. Since request-channel has no correlation of individual replies, they
+ * are correlated by order. Hence pipelined mode requires the downstream to be Spring Cloud Function
+ * RSocket server, which refuses pipelined channels for functions that do not reply exactly once
+ * per message (see {@link RSocketListenerFunction}). Since a failure terminates the channel,
+ * it fails all messages pending on it, and the channel is re-opened for subsequent messages.
+ * <p>
+ * Note: unless pipelined, the remote RSocket route is not required to represent Spring Cloud Function binding.
  *
  * @author Oleg Zhurakousky
  * @author Artem Bilan
@@ -48,13 +75,34 @@ class RSocketForwardingFunction implements Function<Message<byte[]>, Publisher<M
 
 	private final FunctionInvocationWrapper targetFunction;
 
-	private final RSocketRequester rSocketRequester;
+	private final List<RSocketRequester> rSocketRequesters;
+
+	private final boolean binary;
+
+	private final boolean pipelined;
+
+	private final int maxPending;
+
+	private final AtomicReferenceArray<PipelinedChannel> channels;
+
+	private final AtomicInteger next = new AtomicInteger();
 
 	RSocketForwardingFunction(FunctionInvocationWrapper targetFunction, RSocketRequester rsocketRequester,
 		String remoteFunctionName) {
 
+		this(targetFunction, Collections.singletonList(rsocketRequester), false, 0);
+	}
+
+	RSocketForwardingFunction(FunctionInvocationWrapper targetFunction, List<RSocketRequester> rsocketRequesters,
+		boolean pipelined, int maxPending) {
+
+		Assert.notEmpty(rsocketRequesters, "At least one RSocketRequester is required");
 		this.targetFunction = targetFunction;
-		this.rSocketRequester = rsocketRequester;
+		this.rSocketRequesters = rsocketRequesters;
+		this.binary = FunctionRSocketUtils.isBinary(rsocketRequesters.get(0).dataMimeType());
+		this.pipelined = pipelined;
+		this.maxPending = maxPending;
+		this.channels = new AtomicReferenceArray<>(rsocketRequesters.size());
 	}
 
 	@Override
@@ -63,15 +111,176 @@ class RSocketForwardingFunction implements Function<Message<byte[]>, Publisher<M
 			LOGGER.debug("Executing: " + this.targetFunction);
 		}
 
+		int index = this.nextIndex();
+		if (this.pipelined) {
+			return this.forwardPipelined(input, index);
+		}
+		if (this.binary) {
+			return this.forwardBinary(input, this.rSocketRequesters.get(index));
+		}
+
 		Mono<Object> targetFunctionCall = Mono.just(input)
 			.map(this.targetFunction)
 			.cast(Message.class)
 			.map(Message::getPayload);
 
-		return this.rSocketRequester
+		return this.rSocketRequesters.get(index)
 			.route("")
 			.data(targetFunctionCall, byte[].class)
 			.retrieveFlux(byte[].class)
 			.map(GenericMessage::new);
 	}
+
+	/*
+	 * Result payload is sent as is (byte[] and ByteBuffer are wrapped rather than copied)
+	 * while its headers are sent as metadata, so they are available to the remote function.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Publisher<Message<byte[]>> forwardBinary(Message<byte[]> input, RSocketRequester rsocketRequester) {
+		return Mono.just(input)
+			.map(this.targetFunction)
+			.cast(Message.class)
+			.flatMapMany(result -> {
+				RSocketRequester.RequestSpec request = rsocketRequester.route("");
+				Map<String, String> headers = FunctionRSocketUtils.toMetadataHeaders(result.getHeaders());
+				if (!headers.isEmpty()) {
+					request.metadata(headers, MimeTypeUtils.APPLICATION_JSON);
+				}
+				return request.data(result.getPayload()).retrieveFlux(byte[].class);
+			})
+			.map(GenericMessage::new);
+	}
+
+	/*
+	 * Only payload is sent, since metadata of request-channel is only sent with its first frame.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Publisher<Message<byte[]>> forwardPipelined(Message<byte[]> input, int index) {
+		return Mono.just(input)
+			.map(this.targetFunction)
+			.cast(Message.class)
+			.flatMap(result -> this.obtainChannel(index).send(result.getPayload()))
+			.map(GenericMessage::new);
+	}
+
+	private int nextIndex() {
+		return this.rSocketRequesters.size() == 1 ? 0
+				: (this.next.getAndIncrement() & Integer.MAX_VALUE) % this.rSocketRequesters.size();
+	}
+
+	/*
+	 * Channels are opened on first use and re-opened once terminated (e.g., connection is lost).
+	 */
+	private PipelinedChannel obtainChannel(int index) {
+		PipelinedChannel channel = this.channels.get(index);
+		while (channel == null || channel.isTerminated()) {
+			PipelinedChannel newChannel = new PipelinedChannel(this.rSocketRequesters.get(index), this.maxPending);
+			if (this.channels.compareAndSet(index, channel, newChannel)) {
+				newChannel.open();
+				return newChannel;
+			}
+			channel = this.channels.get(index);
+		}
+		return channel;
+	}
+
+	/**
+	 * Request-channel which correlates replies with the messages in the order they were sent.
+	 */
+	private static final class PipelinedChannel {
+
+		private final RSocketRequester rsocketRequester;
+
+		private final DataBufferFactory bufferFactory;
+
+		private final Sinks.Many<DataBuffer> requests;
+
+		private final Queue<MonoSink<byte[]>> pending = new ConcurrentLinkedQueue<>();
+
+		private volatile boolean terminated;
+
+		PipelinedChannel(RSocketRequester rsocketRequester, int maxPending) {
+			this.rsocketRequester = rsocketRequester;
+			this.bufferFactory = rsocketRequester.rsocketStrategies().dataBufferFactory();
+			this.requests = Sinks.many().unicast().onBackpressureBuffer(Queues.<DataBuffer>get(maxPending).get());
+		}
+
+		void open() {
+			this.rsocketRequester
+				.route("")
+				.metadata(Collections.singletonMap(FunctionRSocketUtils.PIPELINED, "true"), MimeTypeUtils.APPLICATION_JSON)
+				.data(this.requests.asFlux(), DataBuffer.class)
+				.retrieveFlux(byte[].class)
+				.subscribe(this::reply, this::terminate,
+						() -> this.terminate(new IllegalStateException("Request channel was completed by the remote side")));
+		}
+
+		boolean isTerminated() {
+			return this.terminated;
+		}
+
+		/*
+		 * Sending is serialized, so the order of pending replies matches the order of the sent messages.
+		 */
+		Mono<byte[]> send(Object payload) {
+			return Mono.create(sink -> {
+				DataBuffer data = this.toDataBuffer(payload);
+				Sinks.EmitResult result;
+				synchronized (this) {
+					if (this.terminated) {
+						result = Sinks.EmitResult.FAIL_TERMINATED;
+					}
+					else {
+						this.pending.add(sink);
+						result = this.requests.tryEmitNext(data);
+						if (result.isFailure()) {
+							this.pending.remove(sink);
+						}
+					}
+				}
+				if (result.isFailure()) {
+					DataBufferUtils.release(data);
+					sink.error(new IllegalStateException(result == Sinks.EmitResult.FAIL_OVERFLOW
+							? "Too many messages are pending to be forwarded"
+							: "Failed to forward message: " + result));
+				}
+			});
+		}
+
+		private void reply(byte[] reply) {
+			MonoSink<byte[]> sink = this.pending.poll();
+			if (sink != null) {
+				sink.success(reply);
+			}
+			else if (LOGGER.isWarnEnabled()) {
+				LOGGER.warn("Discarding reply received over request channel since there are no pending messages");
+			}
+		}
+
+		private void terminate(Throwable error) {
+			synchronized (this) {
+				this.terminated = true;
+			}
+			this.requests.tryEmitComplete();
+			MonoSink<byte[]> sink;
+			while ((sink = this.pending.poll()) != null) {
+				sink.error(error);
+			}
+		}
+
+		private DataBuffer toDataBuffer(Object payload) {
+			if (payload instanceof byte[]) {
+				return this.bufferFactory.wrap((byte[]) payload);
+			}
+			else if (payload instanceof ByteBuffer) {
+				return this.bufferFactory.wrap((ByteBuffer) payload);
+			}
+			else if (payload instanceof String) {
+				return this.bufferFactory.wrap(((String) payload).getBytes(StandardCharsets.UTF_8));
+			}
+			throw new IllegalStateException("Unsupported payload type " + payload.getClass()
+					+ ". Supported types are byte[], ByteBuffer and String");
+		}
+
+	}
 }
@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.function.rsocket;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.cloud.function.context.FunctionProperties;
 
@@ -32,6 +34,30 @@ public class RSocketFunctionProperties {
 
 	private boolean enabled;
 
+	/**
+	 * Whether RSocket requesters created by the framework (e.g., for 'function>host:port' forwarding)
+	 * use binary mode, where data carries raw payload ('application/octet-stream') and message
+	 * headers are carried as 'application/json' metadata entry rather than in JSON envelope.
+	 * Function servers detect binary mode by the data MIME type of the connection.
+	 */
+	private boolean binary;
+
+	/**
+	 * Maximum number of requests concurrently handled per connection. Requests exceeding
+	 * it are rejected (0 means unlimited).
+	 */
+	private int maxInFlight;
+
+	/**
+	 * Number of request-channel elements requested from the remote side ahead of their
+	 * consumption by the function.
+	 */
+	private int prefetch = 256;
+
+	private final Forwarding forwarding = new Forwarding();
+
+	private final Lease lease = new Lease();
+
 	public boolean isEnabled() {
 		return this.enabled;
 	}
@@ -39,4 +65,122 @@ public class RSocketFunctionProperties {
 	public void setEnabled(boolean enabled) {
 		this.enabled = enabled;
 	}
+
+	public boolean isBinary() {
+		return this.binary;
+	}
+
+	public void setBinary(boolean binary) {
+		this.binary = binary;
+	}
+
+	public int getMaxInFlight() {
+		return this.maxInFlight;
+	}
+
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+
+	public int getPrefetch() {
+		return this.prefetch;
+	}
+
+	public void setPrefetch(int prefetch) {
+		this.prefetch = prefetch;
+	}
+
+	public Forwarding getForwarding() {
+		return this.forwarding;
+	}
+
+	public Lease getLease() {
+		return this.lease;
+	}
+
+	/**
+	 * Configuration of forwarding to remote RSocket (e.g., 'function>host:port'
+	 * or 'function>host1:port1;host2:port2' to load balance across several targets).
+	 */
+	public static class Forwarding {
+
+		/**
+		 * Whether messages are pipelined over a single request-channel per target which is kept open,
+		 * rather than sent as a separate request each. Requires the remote side to be Spring Cloud Function
+		 * RSocket server whose function replies exactly once per message (e.g., not a consumer or a function
+		 * producing 'Flux'). Failure of a single message fails all messages pending on the channel.
+		 */
+		private boolean pipelined;
+
+		/**
+		 * Maximum number of messages buffered per target while waiting for the demand of
+		 * the request-channel in pipelined mode.
+		 */
+		private int maxPending = 256;
+
+		public boolean isPipelined() {
+			return this.pipelined;
+		}
+
+		public void setPipelined(boolean pipelined) {
+			this.pipelined = pipelined;
+		}
+
+		public int getMaxPending() {
+			return this.maxPending;
+		}
+
+		public void setMaxPending(int maxPending) {
+			this.maxPending = maxPending;
+		}
+
+	}
+
+	/**
+	 * Configuration of RSocket leases granted by function server based on measured capacity.
+	 * Once enabled, clients are required to honor leases (see 'RSocketConnector#lease').
+	 */
+	public static class Lease {
+
+		/**
+		 * Whether the server grants leases.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Interval at which leases are granted, which is also their time to live.
+		 */
+		private Duration interval = Duration.ofSeconds(1);
+
+		/**
+		 * Number of requests the functions are expected to handle concurrently, which along
+		 * with measured latency determines the number of requests granted per interval.
+		 */
+		private int maxConcurrency = Runtime.getRuntime().availableProcessors() * 2;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getInterval() {
+			return this.interval;
+		}
+
+		public void setInterval(Duration interval) {
+			this.interval = interval;
+		}
+
+		public int getMaxConcurrency() {
+			return this.maxConcurrency;
+		}
+
+		public void setMaxConcurrency(int maxConcurrency) {
+			this.maxConcurrency = maxConcurrency;
+		}
+
+	}
 }
@@ -16,7 +16,10 @@
 
 package org.springframework.cloud.function.rsocket;
 
+import java.lang.reflect.Type;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.function.Function;
 
 import io.rsocket.frame.FrameType;
@@ -100,35 +103,74 @@ class RSocketListenerFunction implements Function<Object, Publisher<?>> {
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private Flux<?> handleAndReply(Message<Publisher<Object>> messageToProcess) {
-		Flux<?> dataFlux = Flux.from(messageToProcess.getPayload())
-				.map(payload -> this.buildReceivedMessage(payload, messageToProcess.getHeaders()));
-
+		boolean pipelined = "true".equals(String.valueOf(messageToProcess.getHeaders().get(FunctionRSocketUtils.PIPELINED)));
+		if (pipelined && !this.isRepliedOncePerMessage()) {
+			return Flux.error(new IllegalStateException("Function '" + this.targetFunction.getFunctionDefinition()
+					+ "' can not serve pipelined forwarding, since it does not reply exactly once per message"));
+		}
+		Flux<?> dataFlux;
 		if (this.targetFunction.getInputType() != null && FunctionTypeUtils.isPublisher(this.targetFunction.getInputType())) {
-			dataFlux = dataFlux.transform((Function) this.targetFunction);
+			dataFlux = Flux.from(messageToProcess.getPayload())
+					.map(payload -> this.buildReceivedMessage(payload, messageToProcess.getHeaders()))
+					.transform((Function) this.targetFunction);
 		}
 		else {
-			dataFlux = dataFlux.flatMap((data) -> {
-				Map<String, ?> messageMap = FunctionRSocketUtils.sanitizeMessageToMap((Message<?>) data);
-				Message sanitizedMessage = MessageBuilder.withPayload(messageMap.remove(FunctionRSocketUtils.PAYLOAD))
-						.copyHeaders((Map<String, ?>) messageMap.get(FunctionRSocketUtils.HEADERS))
-						.build();
+			// replies are emitted in the order of requests (even if asynchronous results complete out
+			// of order), since pipelined callers (see RSocketForwardingFunction) correlate them by order
+			dataFlux = Flux.from(messageToProcess.getPayload()).flatMapSequential((data) -> {
+				Message<?> sanitizedMessage = this.buildSanitizedMessage(data, messageToProcess.getHeaders());
 				Object result = this.targetFunction.isSupplier() ? this.targetFunction.apply(null) : this.targetFunction.apply(sanitizedMessage);
 
 				Publisher resultPublisher = result instanceof Publisher<?>
 					? (Publisher<?>) result
 					: Mono.just(result);
+				if (pipelined) {
+					// a missing or extra reply would be correlated with another message, so it fails the channel instead
+					return Flux.from(resultPublisher).single()
+						.onErrorMap(e -> e instanceof NoSuchElementException || e instanceof IndexOutOfBoundsException,
+							e -> new IllegalStateException("Pipelined forwarding requires exactly one reply per message", e))
+						.map(v -> extractPayloadIfNecessary(v));
+				}
 				return Flux.from(resultPublisher).map(v -> extractPayloadIfNecessary(v));
 			});
 		}
 		return dataFlux;
 	}
 
+	/*
+	 * Replies of pipelined request-channel are correlated with the messages by order, so only
+	 * functions which reply exactly once per message (at most single-valued 'Mono') can serve it.
+	 */
+	private boolean isRepliedOncePerMessage() {
+		if (this.targetFunction.isConsumer()
+				|| (this.targetFunction.getInputType() != null && FunctionTypeUtils.isPublisher(this.targetFunction.getInputType()))) {
+			return false;
+		}
+		Type outputType = this.targetFunction.getOutputType();
+		return outputType == null || !FunctionTypeUtils.isPublisher(outputType) || FunctionTypeUtils.isMono(outputType);
+	}
+
 	private Message<?> buildReceivedMessage(Object mayBeMessage, MessageHeaders messageHeaders) {
 		return mayBeMessage instanceof Message
 				? MessageBuilder.fromMessage((Message<?>) mayBeMessage).copyHeadersIfAbsent(messageHeaders).build()
 				: MessageBuilder.withPayload(mayBeMessage).copyHeadersIfAbsent(messageHeaders).build();
 	}
 
+	/*
+	 * Builds the message given to the function in a single pass, where headers of the
+	 * received message take precedence over the headers of the frame.
+	 */
+	private Message<?> buildSanitizedMessage(Object mayBeMessage, MessageHeaders messageHeaders) {
+		Map<String, Object> headers = new HashMap<>();
+		FunctionRSocketUtils.sanitizeHeaders(messageHeaders, headers);
+		Object payload = mayBeMessage;
+		if (mayBeMessage instanceof Message) {
+			FunctionRSocketUtils.sanitizeHeaders(((Message<?>) mayBeMessage).getHeaders(), headers);
+			payload = ((Message<?>) mayBeMessage).getPayload();
+		}
+		return MessageBuilder.withPayload(payload).copyHeaders(headers).build();
+	}
+
 	/*
 	 * This will ensure that unless CT is application/json for which we provide Message aware encoder/decoder
 	 * the payload is extracted since no other available encoders/decoders understand Message.
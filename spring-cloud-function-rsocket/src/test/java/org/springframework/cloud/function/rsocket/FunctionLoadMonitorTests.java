@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.rsocket;
+
+import java.time.Duration;
+
+import io.rsocket.lease.Lease;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Oleg Zhurakousky
+ *
+ */
+public class FunctionLoadMonitorTests {
+
+	private static final long INTERVAL = Duration.ofSeconds(1).toNanos();
+
+	@Test
+	public void testGrantedRequestsWithoutLatencySamples() {
+		FunctionLoadMonitor monitor = new FunctionLoadMonitor(4);
+		assertThat(monitor.grantedRequests(INTERVAL)).isEqualTo(4);
+		monitor.requestStarted();
+		assertThat(monitor.getInFlight()).isEqualTo(1);
+		assertThat(monitor.grantedRequests(INTERVAL)).isEqualTo(3);
+	}
+
+	@Test
+	public void testNoRequestsGrantedWhenSaturated() {
+		FunctionLoadMonitor monitor = new FunctionLoadMonitor(2);
+		long startTime = monitor.requestStarted();
+		monitor.requestStarted();
+		assertThat(monitor.grantedRequests(INTERVAL)).isZero();
+
+		monitor.requestCompleted(startTime);
+		assertThat(monitor.getInFlight()).isEqualTo(1);
+		assertThat(monitor.grantedRequests(INTERVAL)).isPositive();
+	}
+
+	@Test
+	public void testGrantedRequestsFollowLatency() {
+		FunctionLoadMonitor monitor = new FunctionLoadMonitor(2);
+		monitor.requestCompleted(monitor.requestStarted() - Duration.ofMillis(100).toNanos());
+		// 2 concurrent requests of ~100ms each per second
+		assertThat(monitor.grantedRequests(INTERVAL)).isBetween(15, 20);
+	}
+
+	@Test
+	public void testGrantedRequestsSharedByConnections() {
+		FunctionLoadMonitor monitor = new FunctionLoadMonitor(8);
+		Disposable first = monitor.leases(Duration.ofHours(1)).subscribe();
+		Disposable second = monitor.leases(Duration.ofHours(1)).subscribe();
+		assertThat(monitor.grantedRequests(INTERVAL)).isEqualTo(4);
+
+		second.dispose();
+		assertThat(monitor.grantedRequests(INTERVAL)).isEqualTo(8);
+		first.dispose();
+	}
+
+	@Test
+	public void testLeases() {
+		FunctionLoadMonitor monitor = new FunctionLoadMonitor(4);
+		Lease lease = monitor.leases(Duration.ofSeconds(5)).blockFirst();
+		assertThat(lease.getAllowedRequests()).isEqualTo(4);
+		assertThat(lease.getTimeToLiveInMillis()).isEqualTo(5000);
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.rsocket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.function.json.JacksonMapper;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.messaging.Message;
+import org.springframework.util.MimeTypeUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Oleg Zhurakousky
+ *
+ */
+public class MessageAwareJsonDecoderTests {
+
+	private final MessageAwareJsonDecoder decoder = new MessageAwareJsonDecoder(new JacksonMapper(new ObjectMapper()));
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testEnvelopeToMessage() {
+		Object result = this.decode("{\"headers\":{\"foo\":\"bar\"},\"ignored\":[1,{\"a\":2}],"
+				+ "\"payload\":{\"name\":\"Ricky\"}}",
+				ResolvableType.forClassWithGenerics(Message.class, MessagingTests.Person.class));
+
+		Message<MessagingTests.Person> message = (Message<MessagingTests.Person>) result;
+		assertThat(message.getPayload().getName()).isEqualTo("Ricky");
+		assertThat(message.getHeaders().get("foo")).isEqualTo("bar");
+	}
+
+	@Test
+	public void testEnvelopeToPayload() {
+		assertThat(this.decode("{\"payload\":\"hello\",\"headers\":{\"foo\":\"bar\"}}",
+				ResolvableType.forClass(String.class))).isEqualTo("hello");
+		assertThat(this.decode("{\"payload\":\"hello\"}",
+				ResolvableType.forClass(byte[].class))).isEqualTo("hello".getBytes(StandardCharsets.UTF_8));
+		assertThat(this.decode("{\"payload\":{\"name\":\"Ricky\"}}",
+				ResolvableType.forClass(MessagingTests.Person.class)))
+			.extracting("name").isEqualTo("Ricky");
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testEnvelopeToMessageOfBytes() {
+		ResolvableType messageType = ResolvableType.forClassWithGenerics(Message.class, byte[].class);
+
+		Message<byte[]> message = (Message<byte[]>) this.decode("{\"headers\":{\"foo\":\"bar\"},"
+				+ "\"payload\":{\"name\":\"Ricky\"}}", messageType);
+		assertThat(new String(message.getPayload(), StandardCharsets.UTF_8)).isEqualTo("{\"name\":\"Ricky\"}");
+		assertThat(message.getHeaders().get("foo")).isEqualTo("bar");
+
+		message = (Message<byte[]>) this.decode("{\"payload\":\"hello\"}", messageType);
+		assertThat(message.getPayload()).isEqualTo("hello".getBytes(StandardCharsets.UTF_8));
+
+		message = (Message<byte[]>) this.decode("{\"name\":\"Ricky\"}", messageType);
+		assertThat(new String(message.getPayload(), StandardCharsets.UTF_8)).isEqualTo("{\"name\":\"Ricky\"}");
+
+		message = (Message<byte[]>) this.decode("hello", messageType);
+		assertThat(message.getPayload()).isEqualTo("hello".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testNonEnvelope() {
+		Object map = this.decode(" {\"name\":\"Ricky\"} ", ResolvableType.forClass(MessagingTests.Person.class));
+		assertThat((Map<String, Object>) map).containsEntry("name", "Ricky");
+
+		assertThat(this.decode("hello", ResolvableType.forClass(String.class))).isEqualTo("hello");
+	}
+
+	private Object decode(String json, ResolvableType targetType) {
+		DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.UTF_8));
+		return this.decoder.decode(buffer, targetType, MimeTypeUtils.APPLICATION_JSON, null);
+	}
+
+}
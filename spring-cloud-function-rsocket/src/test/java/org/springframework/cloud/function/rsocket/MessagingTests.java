@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.function.rsocket;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -34,6 +36,7 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.rsocket.RSocketRequester;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.util.SocketUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -313,10 +316,51 @@ public class MessagingTests {
 
 
 
+	@Test
+	public void testBinaryModeWithMetadataHeaders() {
+		int port = SocketUtils.findAvailableTcpPort();
+		try (
+			ConfigurableApplicationContext applicationContext =
+				new SpringApplicationBuilder(MessagingConfiguration.class)
+					.web(WebApplicationType.NONE)
+					.run("--logging.level.org.springframework.cloud.function=DEBUG",
+						"--spring.rsocket.server.port=" + port);
+		) {
+			RSocketRequester.Builder rsocketRequesterBuilder =
+				applicationContext.getBean(RSocketRequester.Builder.class);
+
+			rsocketRequesterBuilder
+				.dataMimeType(MimeTypeUtils.APPLICATION_OCTET_STREAM)
+				.tcp("localhost", port)
+				.route("binaryWithHeader")
+				.metadata(Collections.singletonMap("someHeader", "foo"), MimeTypeUtils.APPLICATION_JSON)
+				.data(new byte[] {1, 2, 3})
+				.retrieveMono(byte[].class)
+				.as(StepVerifier::create)
+				.expectNextMatches(result -> Arrays.equals(result, new byte[] {3, 2, 1, 'f', 'o', 'o'}))
+				.expectComplete()
+				.verify();
+		}
+	}
+
 	@EnableAutoConfiguration
 	@Configuration
 	public static class MessagingConfiguration {
 
+		@Bean
+		public Function<Message<byte[]>, byte[]> binaryWithHeader() {
+			return message -> {
+				byte[] payload = message.getPayload();
+				byte[] header = ((String) message.getHeaders().get("someHeader")).getBytes();
+				byte[] result = new byte[payload.length + header.length];
+				for (int i = 0; i < payload.length; i++) {
+					result[i] = payload[payload.length - 1 - i];
+				}
+				System.arraycopy(header, 0, result, payload.length, header.length);
+				return result;
+			};
+		}
+
 		@Bean
 		public Function<Person, String> pojoToString() {
 			return v -> {
@@ -16,16 +16,23 @@
 
 package org.springframework.cloud.function.rsocket;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.lease.Leases;
+import io.rsocket.lease.MissingLeaseException;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
+import reactor.util.retry.Retry;
 
 import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
@@ -453,6 +460,220 @@ public class RSocketAutoConfigurationTests {
 		}
 	}
 
+	@Test
+	public void testRequestReplyFunctionWithPipelinedLoadBalancedComposition() {
+		int portA1 = SocketUtils.findAvailableTcpPort();
+		int portA2 = SocketUtils.findAvailableTcpPort();
+		int portB = SocketUtils.findAvailableTcpPort();
+		try (
+			ConfigurableApplicationContext applicationContext =
+				new SpringApplicationBuilder(SampleFunctionConfiguration.class)
+					.web(WebApplicationType.NONE)
+					.run("--spring.cloud.function.definition=uppercase|concat",
+						"--spring.rsocket.server.port=" + portA1);
+			ConfigurableApplicationContext applicationContext2 =
+				new SpringApplicationBuilder(SampleFunctionConfiguration.class)
+					.web(WebApplicationType.NONE)
+					.run("--spring.cloud.function.definition=uppercase|concat",
+						"--spring.rsocket.server.port=" + portA2);
+		) {
+			String definition = "reverse>localhost:" + portA1 + ";localhost:" + portA2 + "|wrap";
+			try (
+				ConfigurableApplicationContext applicationContext3 =
+					new SpringApplicationBuilder(AdditionalFunctionConfiguration.class)
+						.web(WebApplicationType.NONE)
+						.run("--spring.cloud.function.definition=" + definition,
+							"--spring.cloud.function.rsocket.forwarding.pipelined=true",
+							"--spring.rsocket.server.port=" + portB);
+			) {
+
+				RSocketRequester rsocketRequester = applicationContext3.getBean(RSocketRequester.Builder.class)
+					.tcp("localhost", portB);
+
+				List<String> results = Flux.range(0, 10)
+					.flatMap(i -> rsocketRequester
+						.route(definition)
+						.data("\"hello\"")
+						.retrieveMono(String.class))
+					.collectList()
+					.block(Duration.ofSeconds(10));
+
+				assertThat(results).hasSize(10).containsOnly("(OLLEHOLLEH)");
+			}
+		}
+	}
+
+	@Test
+	public void testRequestReplyFunctionWithPipelinedOutOfOrderCompletion() {
+		int portA = SocketUtils.findAvailableTcpPort();
+		int portB = SocketUtils.findAvailableTcpPort();
+		try (
+			ConfigurableApplicationContext applicationContext =
+				new SpringApplicationBuilder(SampleFunctionConfiguration.class)
+					.web(WebApplicationType.NONE)
+					.run("--spring.cloud.function.definition=delayedEcho",
+						"--spring.rsocket.server.port=" + portA);
+		) {
+			String definition = "reverse>localhost:" + portA;
+			try (
+				ConfigurableApplicationContext applicationContext2 =
+					new SpringApplicationBuilder(AdditionalFunctionConfiguration.class)
+						.web(WebApplicationType.NONE)
+						.run("--spring.cloud.function.definition=" + definition,
+							"--spring.cloud.function.rsocket.forwarding.pipelined=true",
+							"--spring.rsocket.server.port=" + portB);
+			) {
+
+				RSocketRequester rsocketRequester = applicationContext2.getBean(RSocketRequester.Builder.class)
+					.tcp("localhost", portB);
+
+				// earlier requests complete later, yet each caller must receive its own reply
+				List<String> results = Flux.range(0, 10)
+					.flatMap(i -> rsocketRequester
+						.route(definition)
+						.data("\"" + i + "\"")
+						.retrieveMono(String.class)
+						.map(reply -> i + "=" + reply))
+					.collectList()
+					.block(Duration.ofSeconds(10));
+
+				assertThat(results).hasSize(10).allMatch(result -> result.charAt(0) == result.charAt(2));
+			}
+		}
+	}
+
+	@Test
+	public void testPipelinedForwardingRefusedByStreamingFunction() {
+		int portA = SocketUtils.findAvailableTcpPort();
+		int portB = SocketUtils.findAvailableTcpPort();
+		try (
+			ConfigurableApplicationContext applicationContext =
+				new SpringApplicationBuilder(SampleFunctionConfiguration.class)
+					.web(WebApplicationType.NONE)
+					.run("--spring.cloud.function.definition=uppercaseReactive",
+						"--spring.rsocket.server.port=" + portA);
+		) {
+			String definition = "reverse>localhost:" + portA;
+			try (
+				ConfigurableApplicationContext applicationContext2 =
+					new SpringApplicationBuilder(AdditionalFunctionConfiguration.class)
+						.web(WebApplicationType.NONE)
+						.run("--spring.cloud.function.definition=" + definition,
+							"--spring.cloud.function.rsocket.forwarding.pipelined=true",
+							"--spring.rsocket.server.port=" + portB);
+			) {
+				// replies of a streaming function can not be correlated with the messages by order
+				applicationContext2.getBean(RSocketRequester.Builder.class)
+					.tcp("localhost", portB)
+					.route(definition)
+					.data("\"hello\"")
+					.retrieveMono(String.class)
+					.as(StepVerifier::create)
+					.expectErrorMatches(e -> e.getMessage().contains("pipelined forwarding"))
+					.verify(Duration.ofSeconds(5));
+			}
+		}
+	}
+
+	@Test
+	public void testRequestsBeyondMaxInFlightRejected() {
+		int port = SocketUtils.findAvailableTcpPort();
+		try (
+			ConfigurableApplicationContext applicationContext =
+				new SpringApplicationBuilder(SampleFunctionConfiguration.class)
+					.web(WebApplicationType.NONE)
+					.run("--logging.level.org.springframework.cloud.function=DEBUG",
+						"--spring.cloud.function.rsocket.max-in-flight=1",
+						"--spring.rsocket.server.port=" + port);
+		) {
+			RSocketRequester rsocketRequester = applicationContext.getBean(RSocketRequester.Builder.class)
+				.tcp("localhost", port);
+
+			List<String> results = Flux.range(0, 3)
+				.flatMap(i -> rsocketRequester
+					.route("slowEcho")
+					.data("hello")
+					.retrieveMono(String.class)
+					.onErrorResume(RejectedException.class, e -> Mono.just("rejected")))
+				.collectList()
+				.block(Duration.ofSeconds(10));
+
+			assertThat(results).containsExactlyInAnyOrder("hello", "rejected", "rejected");
+
+			// a channel opened while the only slot is taken is rejected as well
+			Mono<String> inFlight = rsocketRequester.route("slowEcho").data("hello").retrieveMono(String.class).cache();
+			inFlight.subscribe();
+			rsocketRequester.route("uppercaseReactive")
+				.data(Flux.just("a", "b"))
+				.retrieveFlux(String.class)
+				.as(StepVerifier::create)
+				.expectError(RejectedException.class)
+				.verify(Duration.ofSeconds(5));
+			assertThat(inFlight.block(Duration.ofSeconds(5))).isEqualTo("hello");
+
+			// the slot is available again once the request completed
+			rsocketRequester.route("uppercaseReactive")
+				.data(Flux.just("a", "b"))
+				.retrieveFlux(String.class)
+				.as(StepVerifier::create)
+				.expectNext("A", "B")
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+		}
+	}
+
+	@Test
+	public void testLeasesGrantedToClient() {
+		int port = SocketUtils.findAvailableTcpPort();
+		try (
+			ConfigurableApplicationContext applicationContext =
+				new SpringApplicationBuilder(SampleFunctionConfiguration.class)
+					.web(WebApplicationType.NONE)
+					.run("--logging.level.org.springframework.cloud.function=DEBUG",
+						"--spring.cloud.function.rsocket.lease.enabled=true",
+						"--spring.cloud.function.rsocket.lease.interval=200ms",
+						"--spring.rsocket.server.port=" + port);
+		) {
+			RSocketRequester rsocketRequester = applicationContext.getBean(RSocketRequester.Builder.class)
+				.rsocketConnector(connector -> connector.lease(Leases::create))
+				.tcp("localhost", port);
+
+			// requests are only allowed once the first lease was received
+			rsocketRequester.route("uppercase")
+				.data("hello")
+				.retrieveMono(String.class)
+				.retryWhen(Retry.fixedDelay(10, Duration.ofMillis(100)).filter(MissingLeaseException.class::isInstance))
+				.as(StepVerifier::create)
+				.expectNext("HELLO")
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+		}
+	}
+
+	@Test
+	public void testRequestChannelWithPrefetch() {
+		int port = SocketUtils.findAvailableTcpPort();
+		try (
+			ConfigurableApplicationContext applicationContext =
+				new SpringApplicationBuilder(SampleFunctionConfiguration.class)
+					.web(WebApplicationType.NONE)
+					.run("--logging.level.org.springframework.cloud.function=DEBUG",
+						"--spring.cloud.function.rsocket.prefetch=2",
+						"--spring.rsocket.server.port=" + port);
+		) {
+			RSocketRequester rsocketRequester = applicationContext.getBean(RSocketRequester.Builder.class)
+				.tcp("localhost", port);
+
+			List<String> results = rsocketRequester.route("uppercaseReactive")
+				.data(Flux.range(0, 100).map(i -> "item" + i))
+				.retrieveFlux(String.class)
+				.collectList()
+				.block(Duration.ofSeconds(10));
+
+			assertThat(results).hasSize(100).startsWith("ITEM0", "ITEM1").endsWith("ITEM99");
+		}
+	}
+
 	@Disabled("TODO")
 	@Test
 	public void testCompositionOverWebSocket() {
@@ -637,6 +858,17 @@ public class RSocketAutoConfigurationTests {
 			return v -> v;
 		}
 
+		@Bean
+		public Function<String, Mono<String>> delayedEcho() {
+			// the smaller the value the longer the delay, so results complete out of order
+			return v -> Mono.just(v).delayElement(Duration.ofMillis(20 * (10 - Integer.parseInt(v))));
+		}
+
+		@Bean
+		public Function<String, Mono<String>> slowEcho() {
+			return v -> Mono.just(v).delayElement(Duration.ofMillis(500));
+		}
+
 		@Bean
 		public Function<Map<String, Object>, Map<String, Object>> echoMap() {
 			return v -> v;
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.web;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.function.context.FunctionProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Configuration properties for functions exposed as HTTP endpoints.
+ *
+ * @author Oleg Zhurakousky
+ * @since 3.2
+ */
+@ConfigurationProperties(prefix = FunctionProperties.PREFIX + ".web")
+public class FunctionHttpProperties {
+
+	/**
+	 * Properties related to asynchronous (off container thread) invocation of functions
+	 * in Servlet (MVC) based applications.
+	 */
+	private Async async = new Async();
+
+	/**
+	 * Properties related to handling of multipart requests.
+	 */
+	private Multipart multipart = new Multipart();
+
+	/**
+	 * Properties related to caching of responses of supplier functions.
+	 */
+	private Cache cache = new Cache();
+
+	public Async getAsync() {
+		return this.async;
+	}
+
+	public Multipart getMultipart() {
+		return this.multipart;
+	}
+
+	public Cache getCache() {
+		return this.cache;
+	}
+
+	public static class Async {
+
+		/**
+		 * Flag to enable dispatching of function invocations from the Servlet container
+		 * thread to a dedicated executor using async Servlet support.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Flag to indicate that function invocations should be dispatched on virtual
+		 * threads. Requires a JVM that supports virtual threads, otherwise a (cached)
+		 * platform thread pool is used, which is also the default.
+		 */
+		private boolean virtualThreads;
+
+		/**
+		 * Maximum number of function invocations that can be in flight at the same time.
+		 * Requests exceeding this limit are rejected with '503 Service Unavailable'.
+		 * Zero or negative value means no limit.
+		 */
+		private int maxConcurrency;
+
+		/**
+		 * Time after which an asynchronous invocation is considered timed out. If not set
+		 * the default timeout of the Servlet container (or MVC) is used.
+		 */
+		private Duration timeout;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public boolean isVirtualThreads() {
+			return this.virtualThreads;
+		}
+
+		public void setVirtualThreads(boolean virtualThreads) {
+			this.virtualThreads = virtualThreads;
+		}
+
+		public int getMaxConcurrency() {
+			return this.maxConcurrency;
+		}
+
+		public void setMaxConcurrency(int maxConcurrency) {
+			this.maxConcurrency = maxConcurrency;
+		}
+
+		public Duration getTimeout() {
+			return this.timeout;
+		}
+
+		public void setTimeout(Duration timeout) {
+			this.timeout = timeout;
+		}
+
+	}
+
+	public static class Multipart {
+
+		/**
+		 * Flag to enable streaming of multipart requests where each part is handed to the
+		 * function as soon as it is parsed instead of collecting all the parts first.
+		 * Requires multipart resolution of the Servlet container to be disabled (e.g.,
+		 * 'spring.servlet.multipart.enabled=false').
+		 */
+		private boolean streaming;
+
+		/**
+		 * Maximum amount of memory allowed per part. File parts exceeding it are written
+		 * to a temporary file (see 'file-storage-directory'). If not set the content of
+		 * each part is streamed to the function as it arrives, in which case it must be
+		 * fully consumed before the next part is emitted.
+		 */
+		private DataSize maxInMemorySize;
+
+		/**
+		 * Directory used to store parts exceeding 'max-in-memory-size'. Defaults to a
+		 * temporary directory.
+		 */
+		private String fileStorageDirectory;
+
+		/**
+		 * Maximum amount of disk space allowed per part. Not set means no limit.
+		 */
+		private DataSize maxDiskUsagePerPart;
+
+		/**
+		 * Maximum amount of parts allowed in a single request. Negative value means no limit.
+		 */
+		private int maxParts = -1;
+
+		public boolean isStreaming() {
+			return this.streaming;
+		}
+
+		public void setStreaming(boolean streaming) {
+			this.streaming = streaming;
+		}
+
+		public DataSize getMaxInMemorySize() {
+			return this.maxInMemorySize;
+		}
+
+		public void setMaxInMemorySize(DataSize maxInMemorySize) {
+			this.maxInMemorySize = maxInMemorySize;
+		}
+
+		public String getFileStorageDirectory() {
+			return this.fileStorageDirectory;
+		}
+
+		public void setFileStorageDirectory(String fileStorageDirectory) {
+			this.fileStorageDirectory = fileStorageDirectory;
+		}
+
+		public DataSize getMaxDiskUsagePerPart() {
+			return this.maxDiskUsagePerPart;
+		}
+
+		public void setMaxDiskUsagePerPart(DataSize maxDiskUsagePerPart) {
+			this.maxDiskUsagePerPart = maxDiskUsagePerPart;
+		}
+
+		public int getMaxParts() {
+			return this.maxParts;
+		}
+
+		public void setMaxParts(int maxParts) {
+			this.maxParts = maxParts;
+		}
+
+	}
+
+	public static class Cache {
+
+		/**
+		 * Time-to-live of cached responses keyed by the definition of the supplier function
+		 * (e.g., 'spring.cloud.function.web.cache.functions.lookup=30s'). Responses of
+		 * GET requests to suppliers that are not listed here are never cached.
+		 */
+		private Map<String, Duration> functions = new HashMap<>();
+
+		/**
+		 * Maximum size of all cached responses. Least recently used responses are evicted
+		 * once this size is exceeded.
+		 */
+		private DataSize maxSize = DataSize.ofMegabytes(10);
+
+		public Map<String, Duration> getFunctions() {
+			return this.functions;
+		}
+
+		public void setFunctions(Map<String, Duration> functions) {
+			this.functions = functions;
+		}
+
+		public DataSize getMaxSize() {
+			return this.maxSize;
+		}
+
+		public void setMaxSize(DataSize maxSize) {
+			this.maxSize = maxSize;
+		}
+
+	}
+
+}
@@ -19,8 +19,10 @@ package org.springframework.cloud.function.web.flux;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.function.context.catalog.SimpleFunctionRegistry.FunctionInvocationWrapper;
 import org.springframework.cloud.function.web.constants.WebRequestConstants;
+import org.springframework.cloud.function.web.util.FunctionResponseCache;
 import org.springframework.cloud.function.web.util.FunctionWebRequestProcessingHelper;
 import org.springframework.cloud.function.web.util.FunctionWrapper;
 import org.springframework.http.HttpHeaders;
@@ -45,6 +47,17 @@ import org.springframework.web.server.ServerWebExchange;
 @Component
 public class FunctionController {
 
+	private FunctionResponseCache responseCache;
+
+	/**
+	 * Sets {@link FunctionResponseCache} to be used to cache responses of suppliers.
+	 * @param responseCache instance of {@link FunctionResponseCache}
+	 */
+	@Autowired(required = false)
+	public void setResponseCache(FunctionResponseCache responseCache) {
+		this.responseCache = responseCache;
+	}
+
 	@SuppressWarnings("unchecked")
 	@PostMapping(path = "/**", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
 	@ResponseBody
@@ -86,6 +99,11 @@ public class FunctionController {
 	@ResponseBody
 	public Mono<ResponseEntity<?>> get(ServerWebExchange request) {
 		FunctionWrapper wrapper = wrapper(request);
+		if (this.responseCache != null && this.responseCache.isCacheable(wrapper)) {
+			ResponseEntity<?> cachedResponse = this.responseCache.getCachedResponse(wrapper);
+			return cachedResponse != null ? Mono.just(cachedResponse) : this.responseCache.cacheResponse(wrapper,
+					() -> FunctionWebRequestProcessingHelper.processRequest(wrapper, wrapper.getArgument(), false));
+		}
 		return (Mono<ResponseEntity<?>>) FunctionWebRequestProcessingHelper.processRequest(wrapper, wrapper.getArgument(), false);
 	}
 
@@ -26,10 +26,14 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplicat
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.boot.autoconfigure.gson.GsonAutoConfiguration;
 import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.function.context.FunctionCatalog;
 import org.springframework.cloud.function.context.FunctionProperties;
+import org.springframework.cloud.function.json.JsonMapper;
 import org.springframework.cloud.function.web.BasicStringConverter;
+import org.springframework.cloud.function.web.FunctionHttpProperties;
 import org.springframework.cloud.function.web.StringConverter;
+import org.springframework.cloud.function.web.util.FunctionResponseCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -44,6 +48,7 @@ import org.springframework.web.method.support.AsyncHandlerMethodReturnValueHandl
 @ConditionalOnClass({ Flux.class, AsyncHandlerMethodReturnValueHandler.class })
 @ConditionalOnWebApplication(type = Type.REACTIVE)
 @Import(FunctionController.class)
+@EnableConfigurationProperties(FunctionHttpProperties.class)
 @AutoConfigureAfter({ JacksonAutoConfiguration.class, GsonAutoConfiguration.class })
 public class ReactorAutoConfiguration {
 
@@ -52,6 +57,12 @@ public class ReactorAutoConfiguration {
 		return new FunctionHandlerMapping(catalog, controller, functionProperties);
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	public FunctionResponseCache functionResponseCache(FunctionHttpProperties httpProperties, JsonMapper jsonMapper) {
+		return new FunctionResponseCache(httpProperties.getCache(), jsonMapper);
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public StringConverter functionStringConverter(ConfigurableListableBeanFactory beanFactory) {
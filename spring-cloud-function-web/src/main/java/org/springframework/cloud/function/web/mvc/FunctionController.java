@@ -19,14 +19,19 @@ package org.springframework.cloud.function.web.mvc;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.function.context.catalog.SimpleFunctionRegistry.FunctionInvocationWrapper;
 import org.springframework.cloud.function.web.constants.WebRequestConstants;
+import org.springframework.cloud.function.web.util.FunctionResponseCache;
 import org.springframework.cloud.function.web.util.FunctionWebRequestProcessingHelper;
 import org.springframework.cloud.function.web.util.FunctionWrapper;
 import org.springframework.http.HttpHeaders;
@@ -56,12 +61,51 @@ import org.springframework.web.multipart.support.StandardMultipartHttpServletReq
 @Component
 public class FunctionController {
 
+	private FunctionInvocationDispatcher dispatcher;
+
+	private StreamingMultipartHandler multipartHandler;
+
+	private FunctionResponseCache responseCache;
+
+	/**
+	 * Sets {@link FunctionInvocationDispatcher} to be used to invoke functions
+	 * outside of the Servlet container thread.
+	 * @param dispatcher instance of {@link FunctionInvocationDispatcher}
+	 */
+	@Autowired(required = false)
+	public void setDispatcher(FunctionInvocationDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+	}
+
+	/**
+	 * Sets {@link StreamingMultipartHandler} to be used to stream parts of multipart
+	 * requests to functions as they are parsed.
+	 * @param multipartHandler instance of {@link StreamingMultipartHandler}
+	 */
+	@Autowired(required = false)
+	public void setMultipartHandler(StreamingMultipartHandler multipartHandler) {
+		this.multipartHandler = multipartHandler;
+	}
+
+	/**
+	 * Sets {@link FunctionResponseCache} to be used to cache responses of suppliers.
+	 * @param responseCache instance of {@link FunctionResponseCache}
+	 */
+	@Autowired(required = false)
+	public void setResponseCache(FunctionResponseCache responseCache) {
+		this.responseCache = responseCache;
+	}
+
 	@PostMapping(path = "/**", consumes = { MediaType.APPLICATION_FORM_URLENCODED_VALUE,
 			MediaType.MULTIPART_FORM_DATA_VALUE })
 	@ResponseBody
 	public Object form(WebRequest request) {
 		FunctionWrapper wrapper = wrapper(request);
 
+		HttpServletRequest servletRequest = ((ServletWebRequest) request).getRequest();
+		if (this.multipartHandler != null && this.multipartHandler.supports(servletRequest)) {
+			return this.invoke(() -> this.multipartHandler.process(wrapper, servletRequest));
+		}
 		if (((ServletWebRequest) request).getRequest() instanceof StandardMultipartHttpServletRequest) {
 			MultiValueMap<String, MultipartFile> multiFileMap = ((StandardMultipartHttpServletRequest) ((ServletWebRequest) request)
 														.getRequest()).getMultiFileMap();
@@ -71,17 +115,19 @@ public class FunctionController {
 						.collect(Collectors.toList());
 				FunctionInvocationWrapper function = wrapper.getFunction();
 
-				Publisher<?> result = (Publisher<?>) function.apply(Flux.fromIterable(files));
-				BodyBuilder builder = ResponseEntity.ok();
-				if (result instanceof Flux) {
-					result = Flux.from(result).map(message -> {
-						return message instanceof Message ? ((Message<?>) message).getPayload() : message;
-					}).collectList();
-				}
-				return Mono.from(result).flatMap(body -> Mono.just(builder.body(body)));
+				return this.invoke(() -> {
+					Publisher<?> result = (Publisher<?>) function.apply(Flux.fromIterable(files));
+					BodyBuilder builder = ResponseEntity.ok();
+					if (result instanceof Flux) {
+						result = Flux.from(result).map(message -> {
+							return message instanceof Message ? ((Message<?>) message).getPayload() : message;
+						}).collectList();
+					}
+					return Mono.from(result).flatMap(body -> Mono.just(builder.body(body)));
+				});
 			}
 		}
-		return FunctionWebRequestProcessingHelper.processRequest(wrapper, wrapper.getParams(), false);
+		return this.invoke(() -> FunctionWebRequestProcessingHelper.processRequest(wrapper, wrapper.getParams(), false));
 	}
 
 	@SuppressWarnings("unchecked")
@@ -108,14 +154,27 @@ public class FunctionController {
 	@ResponseBody
 	public Object post(WebRequest request, @RequestBody(required = false) String body) {
 		String argument = StringUtils.hasText(body) ? body : "";
-		return FunctionWebRequestProcessingHelper.processRequest(wrapper(request), argument, false);
+		FunctionWrapper wrapper = wrapper(request);
+		return this.invoke(() -> FunctionWebRequestProcessingHelper.processRequest(wrapper, argument, false));
 	}
 
 	@GetMapping(path = "/**")
 	@ResponseBody
 	public Object get(WebRequest request) {
 		FunctionWrapper wrapper = wrapper(request);
-		return FunctionWebRequestProcessingHelper.processRequest(wrapper, wrapper.getArgument(), false);
+		if (this.responseCache != null && this.responseCache.isCacheable(wrapper)) {
+			ResponseEntity<?> cachedResponse = this.responseCache.getCachedResponse(wrapper);
+			if (cachedResponse != null) {
+				return cachedResponse;
+			}
+			return this.invoke(() -> this.responseCache.cacheResponse(wrapper,
+					() -> FunctionWebRequestProcessingHelper.processRequest(wrapper, wrapper.getArgument(), false)));
+		}
+		return this.invoke(() -> FunctionWebRequestProcessingHelper.processRequest(wrapper, wrapper.getArgument(), false));
+	}
+
+	private Object invoke(Supplier<Object> invocation) {
+		return this.dispatcher == null ? invocation.get() : this.dispatcher.dispatch(invocation);
 	}
 
 	private FunctionWrapper wrapper(WebRequest request) {
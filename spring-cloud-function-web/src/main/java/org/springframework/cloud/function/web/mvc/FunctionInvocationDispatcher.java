@@ -0,0 +1,180 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.web.mvc;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.function.web.FunctionHttpProperties;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+/**
+ * Dispatches function invocations from the Servlet container thread to a dedicated
+ * executor (optionally virtual threads) using async Servlet support, optionally
+ * limiting the amount of invocations that can be in flight at the same time.
+ * <br>
+ * Also keeps simple counters (in-flight, completed, failed and rejected invocations)
+ * which could be exposed as metrics.
+ *
+ * @author Oleg Zhurakousky
+ * @since 3.2
+ */
+public class FunctionInvocationDispatcher implements DisposableBean {
+
+	private static Log logger = LogFactory.getLog(FunctionInvocationDispatcher.class);
+
+	private static final AtomicBoolean VIRTUAL_THREADS_FALLBACK_LOGGED = new AtomicBoolean();
+
+	private final ExecutorService executorService;
+
+	private final AsyncTaskExecutor taskExecutor;
+
+	private final Semaphore permits;
+
+	private final Long timeout;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicLong completed = new AtomicLong();
+
+	private final AtomicLong failed = new AtomicLong();
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	public FunctionInvocationDispatcher(FunctionHttpProperties.Async properties) {
+		this(createExecutorService(properties.isVirtualThreads()), properties.getMaxConcurrency(), properties.getTimeout());
+	}
+
+	public FunctionInvocationDispatcher(ExecutorService executorService, int maxConcurrency, Duration timeout) {
+		this.executorService = executorService;
+		this.taskExecutor = new TaskExecutorAdapter(executorService);
+		this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency) : null;
+		this.timeout = timeout == null ? null : timeout.toMillis();
+	}
+
+	/**
+	 * Dispatches the invocation to the executor. If the invocation produces a {@link Publisher}
+	 * it is resolved on the same (executor) thread.
+	 * @param invocation the actual function invocation
+	 * @return {@link WebAsyncTask} representing the invocation or '503 Service Unavailable'
+	 * response if the maximum number of concurrent invocations is reached.
+	 */
+	public Object dispatch(Supplier<Object> invocation) {
+		if (this.permits != null && !this.permits.tryAcquire()) {
+			this.rejected.incrementAndGet();
+			if (logger.isDebugEnabled()) {
+				logger.debug("Rejecting function invocation since maximum number of concurrent invocations is reached");
+			}
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		}
+		this.inFlight.incrementAndGet();
+		Callable<Object> callable = () -> {
+			try {
+				Object result = invocation.get();
+				if (result instanceof Publisher) {
+					result = Mono.from((Publisher<?>) result).block();
+				}
+				this.completed.incrementAndGet();
+				return result;
+			}
+			catch (Throwable e) {
+				this.failed.incrementAndGet();
+				throw e;
+			}
+			finally {
+				this.inFlight.decrementAndGet();
+				if (this.permits != null) {
+					this.permits.release();
+				}
+			}
+		};
+		return new WebAsyncTask<>(this.timeout, this.taskExecutor, callable);
+	}
+
+	/**
+	 * Returns the amount of function invocations currently in flight.
+	 * @return in-flight invocations
+	 */
+	public int getInFlight() {
+		return this.inFlight.get();
+	}
+
+	/**
+	 * Returns the amount of function invocations that completed successfully.
+	 * @return completed invocations
+	 */
+	public long getCompleted() {
+		return this.completed.get();
+	}
+
+	/**
+	 * Returns the amount of function invocations that resulted in error.
+	 * @return failed invocations
+	 */
+	public long getFailed() {
+		return this.failed.get();
+	}
+
+	/**
+	 * Returns the amount of function invocations that were rejected due to concurrency limit.
+	 * @return rejected invocations
+	 */
+	public long getRejected() {
+		return this.rejected.get();
+	}
+
+	@Override
+	public void destroy() {
+		this.executorService.shutdown();
+	}
+
+	static ExecutorService createExecutorService(boolean virtualThreads) {
+		if (virtualThreads) {
+			try {
+				Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				return (ExecutorService) method.invoke(null);
+			}
+			catch (Exception e) {
+				if (VIRTUAL_THREADS_FALLBACK_LOGGED.compareAndSet(false, true)) {
+					logger.info("Virtual threads are not supported by this JVM, "
+							+ "falling back to platform threads for function invocations.");
+				}
+			}
+		}
+		return Executors.newCachedThreadPool(new CustomizableThreadFactory("function-invoker-"));
+	}
+
+}
@@ -21,12 +21,17 @@ import reactor.core.publisher.Flux;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.function.context.FunctionCatalog;
 import org.springframework.cloud.function.context.FunctionProperties;
+import org.springframework.cloud.function.json.JsonMapper;
 import org.springframework.cloud.function.web.BasicStringConverter;
+import org.springframework.cloud.function.web.FunctionHttpProperties;
 import org.springframework.cloud.function.web.StringConverter;
+import org.springframework.cloud.function.web.util.FunctionResponseCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -41,6 +46,7 @@ import org.springframework.web.method.support.AsyncHandlerMethodReturnValueHandl
 @ConditionalOnWebApplication(type = Type.SERVLET)
 @ConditionalOnClass({ Flux.class, AsyncHandlerMethodReturnValueHandler.class })
 @Import({ FunctionController.class})
+@EnableConfigurationProperties(FunctionHttpProperties.class)
 public class ReactorAutoConfiguration {
 
 	@Bean
@@ -48,6 +54,26 @@ public class ReactorAutoConfiguration {
 		return new FunctionHandlerMapping(functionProperties, catalog, controller);
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = FunctionProperties.PREFIX + ".web.async", name = "enabled", havingValue = "true")
+	public FunctionInvocationDispatcher functionInvocationDispatcher(FunctionHttpProperties httpProperties) {
+		return new FunctionInvocationDispatcher(httpProperties.getAsync());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = FunctionProperties.PREFIX + ".web.multipart", name = "streaming", havingValue = "true")
+	public StreamingMultipartHandler streamingMultipartHandler(FunctionHttpProperties httpProperties) {
+		return new StreamingMultipartHandler(httpProperties.getMultipart());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public FunctionResponseCache functionResponseCache(FunctionHttpProperties httpProperties, JsonMapper jsonMapper) {
+		return new FunctionResponseCache(httpProperties.getCache(), jsonMapper);
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public StringConverter functionStringConverter(ConfigurableListableBeanFactory beanFactory) {
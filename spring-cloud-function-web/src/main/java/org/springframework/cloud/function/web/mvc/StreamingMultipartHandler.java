@@ -0,0 +1,210 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.web.mvc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.cloud.function.context.catalog.FunctionTypeUtils;
+import org.springframework.cloud.function.context.catalog.SimpleFunctionRegistry.FunctionInvocationWrapper;
+import org.springframework.cloud.function.web.FunctionHttpProperties;
+import org.springframework.cloud.function.web.util.FunctionWrapper;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpInputMessage;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.DefaultPartHttpMessageReader;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Handles 'multipart/form-data' requests by parsing the raw request body and handing each
+ * part to the function as soon as it is parsed, without waiting for the entire request
+ * to be received.
+ * <br>
+ * Depending on the input type of the function the payload of each part is passed as
+ * {@link InputStream}, {@link Part} or (default) {@code Flux<DataBuffer>}.
+ *
+ * @author Oleg Zhurakousky
+ * @since 3.2
+ */
+public class StreamingMultipartHandler {
+
+	/**
+	 * Name of the message header which contains the name of the part.
+	 */
+	public static final String PART_NAME = "part-name";
+
+	/**
+	 * Name of the message header which contains the original file name of the file part.
+	 */
+	public static final String FILE_NAME = "file-name";
+
+	private static Log logger = LogFactory.getLog(StreamingMultipartHandler.class);
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final DefaultPartHttpMessageReader reader;
+
+	public StreamingMultipartHandler(FunctionHttpProperties.Multipart properties) {
+		this.reader = new DefaultPartHttpMessageReader();
+		if (properties.getMaxInMemorySize() == null) {
+			this.reader.setStreaming(true);
+		}
+		else {
+			this.reader.setMaxInMemorySize((int) properties.getMaxInMemorySize().toBytes());
+			if (properties.getMaxDiskUsagePerPart() != null) {
+				this.reader.setMaxDiskUsagePerPart(properties.getMaxDiskUsagePerPart().toBytes());
+			}
+			if (StringUtils.hasText(properties.getFileStorageDirectory())) {
+				try {
+					this.reader.setFileStorageDirectory(Paths.get(properties.getFileStorageDirectory()));
+				}
+				catch (IOException e) {
+					throw new IllegalStateException("Failed to initialize file storage directory "
+							+ properties.getFileStorageDirectory(), e);
+				}
+			}
+		}
+		this.reader.setMaxParts(properties.getMaxParts());
+	}
+
+	/**
+	 * Determines if the request can be handled in streaming fashion. That is the case if
+	 * it is a 'multipart/form-data' request that was not already resolved by the Servlet
+	 * container.
+	 * @param request current request
+	 * @return true if this request can be streamed
+	 */
+	public boolean supports(HttpServletRequest request) {
+		return request.getContentType() != null
+				&& MediaType.MULTIPART_FORM_DATA.includes(MediaType.parseMediaType(request.getContentType()))
+				&& WebUtils.getNativeRequest(request, MultipartHttpServletRequest.class) == null;
+	}
+
+	/**
+	 * Parses the request and invokes the function with each part as it is parsed.
+	 * @param wrapper function wrapper
+	 * @param request current request
+	 * @return {@link Mono} of the response
+	 */
+	public Mono<ResponseEntity<Object>> process(FunctionWrapper wrapper, HttpServletRequest request) {
+		FunctionInvocationWrapper function = wrapper.getFunction();
+		Class<?> itemType = FunctionTypeUtils.getRawType(function.getItemType(function.getInputType()));
+
+		Flux<DataBuffer> body = DataBufferUtils.readInputStream(request::getInputStream,
+				DefaultDataBufferFactory.sharedInstance, BUFFER_SIZE);
+		Flux<Part> parts = this.reader.read(ResolvableType.forClass(Part.class),
+				new ServletInputMessage(wrapper.getHeaders(), body), Collections.emptyMap());
+
+		Flux<Message<?>> messages = parts.map(part -> {
+			MessageBuilder<Object> builder = MessageBuilder.withPayload(this.toPayload(part, itemType))
+					.copyHeaders(wrapper.getHeaders())
+					.setHeader(PART_NAME, part.name());
+			if (part instanceof FilePart) {
+				builder.setHeader(FILE_NAME, ((FilePart) part).filename());
+			}
+			return builder.build();
+		});
+
+		Publisher<?> result = (Publisher<?>) function.apply(messages);
+		if (result instanceof Flux) {
+			result = Flux.from(result).map(message -> {
+				return message instanceof Message ? ((Message<?>) message).getPayload() : message;
+			}).collectList();
+		}
+		return Mono.from(result).map(resultBody -> ResponseEntity.ok().body((Object) resultBody));
+	}
+
+	private Object toPayload(Part part, Class<?> itemType) {
+		if (InputStream.class.isAssignableFrom(itemType)) {
+			return this.toInputStream(part.content());
+		}
+		else if (Part.class.isAssignableFrom(itemType)) {
+			return part;
+		}
+		return part.content();
+	}
+
+	private InputStream toInputStream(Flux<DataBuffer> content) {
+		try {
+			PipedInputStream inputStream = new PipedInputStream(BUFFER_SIZE);
+			PipedOutputStream outputStream = new PipedOutputStream(inputStream);
+			DataBufferUtils.write(content, outputStream)
+				.subscribeOn(Schedulers.boundedElastic())
+				.doFinally(signal -> {
+					try {
+						outputStream.close();
+					}
+					catch (IOException e) {
+						logger.debug("Failed to close part's output stream", e);
+					}
+				})
+				.subscribe(DataBufferUtils.releaseConsumer(), e -> logger.error("Failed to stream part's content", e));
+			return inputStream;
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to create input stream for part's content", e);
+		}
+	}
+
+	private static final class ServletInputMessage implements ReactiveHttpInputMessage {
+
+		private final HttpHeaders headers;
+
+		private final Flux<DataBuffer> body;
+
+		ServletInputMessage(HttpHeaders headers, Flux<DataBuffer> body) {
+			this.headers = headers;
+			this.body = body;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.headers;
+		}
+
+		@Override
+		public Flux<DataBuffer> getBody() {
+			return this.body;
+		}
+
+	}
+
+}
@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.function.web.source;
 
+import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -106,6 +107,11 @@ public class ExporterProperties {
 		 */
 		private boolean includeHeaders = true;
 
+		/**
+		 * Properties related to polling of the source.
+		 */
+		private Poll poll = new Poll();
+
 		public String getUrl() {
 			return this.url;
 		}
@@ -130,6 +136,110 @@ public class ExporterProperties {
 			return this.includeHeaders;
 		}
 
+		public Poll getPoll() {
+			return this.poll;
+		}
+
+	}
+
+	public static class Poll {
+
+		/**
+		 * Delay between polls while the source keeps returning data.
+		 */
+		private Duration minInterval = Duration.ZERO;
+
+		/**
+		 * Delay before the next poll once the source returns no data (empty body, '304 Not
+		 * Modified' or non-2xx response).
+		 */
+		private Duration initialBackoff = Duration.ofSeconds(1);
+
+		/**
+		 * Maximum delay between polls while the source keeps returning no data.
+		 */
+		private Duration maxBackoff = Duration.ofSeconds(30);
+
+		/**
+		 * Multiplier applied to the delay for each consecutive poll that returned no data.
+		 */
+		private double multiplier = 2;
+
+		/**
+		 * Flag to enable conditional requests ('If-None-Match' and 'If-Modified-Since')
+		 * based on 'ETag' and 'Last-Modified' headers of the previous response.
+		 */
+		private boolean conditional = true;
+
+		/**
+		 * Enables long polling where the source is expected to hold the request until data
+		 * is available or this timeout elapses. The timeout is sent to the source as
+		 * 'Prefer: wait' header and empty responses are not followed by backoff.
+		 */
+		private Duration longPollTimeout;
+
+		/**
+		 * Number of pollers polling the source in parallel. The index of each poller is
+		 * available as '{partition}' variable of the source url.
+		 */
+		private int pollers = 1;
+
+		public Duration getMinInterval() {
+			return this.minInterval;
+		}
+
+		public void setMinInterval(Duration minInterval) {
+			this.minInterval = minInterval;
+		}
+
+		public Duration getInitialBackoff() {
+			return this.initialBackoff;
+		}
+
+		public void setInitialBackoff(Duration initialBackoff) {
+			this.initialBackoff = initialBackoff;
+		}
+
+		public Duration getMaxBackoff() {
+			return this.maxBackoff;
+		}
+
+		public void setMaxBackoff(Duration maxBackoff) {
+			this.maxBackoff = maxBackoff;
+		}
+
+		public double getMultiplier() {
+			return this.multiplier;
+		}
+
+		public void setMultiplier(double multiplier) {
+			this.multiplier = multiplier;
+		}
+
+		public boolean isConditional() {
+			return this.conditional;
+		}
+
+		public void setConditional(boolean conditional) {
+			this.conditional = conditional;
+		}
+
+		public Duration getLongPollTimeout() {
+			return this.longPollTimeout;
+		}
+
+		public void setLongPollTimeout(Duration longPollTimeout) {
+			this.longPollTimeout = longPollTimeout;
+		}
+
+		public int getPollers() {
+			return this.pollers;
+		}
+
+		public void setPollers(int pollers) {
+			this.pollers = pollers;
+		}
+
 	}
 
 	public static class Sink {
@@ -155,6 +265,27 @@ public class ExporterProperties {
 		 */
 		private String contentType = "application/json";
 
+		/**
+		 * Maximum number of outgoing HTTP requests that can be in flight at the same time.
+		 */
+		private int maxInFlight = 256;
+
+		/**
+		 * Properties related to batching of items into a single HTTP request.
+		 */
+		private Batch batch = new Batch();
+
+		/**
+		 * Properties related to retrying delivery of individual items (or batches).
+		 */
+		private Retry retry = new Retry();
+
+		/**
+		 * Properties related to the connection pool used for each destination (remote host).
+		 * Only applied when Reactor Netty is used as the HTTP client.
+		 */
+		private Pool pool = new Pool();
+
 		public String getName() {
 			return this.name;
 		}
@@ -182,6 +313,193 @@ public class ExporterProperties {
 		public void setContentType(String contentType) {
 			this.contentType = contentType;
 		}
+
+		public int getMaxInFlight() {
+			return this.maxInFlight;
+		}
+
+		public void setMaxInFlight(int maxInFlight) {
+			this.maxInFlight = maxInFlight;
+		}
+
+		public Batch getBatch() {
+			return this.batch;
+		}
+
+		public Retry getRetry() {
+			return this.retry;
+		}
+
+		public Pool getPool() {
+			return this.pool;
+		}
+	}
+
+	public static class Batch {
+
+		/**
+		 * Maximum number of items sent in a single HTTP request. Values lower than 2
+		 * disable batching, in which case each item is sent in its own request.
+		 */
+		private int size = 1;
+
+		/**
+		 * Maximum time to wait for a batch to fill up before it is sent.
+		 */
+		private Duration timeout = Duration.ofSeconds(1);
+
+		/**
+		 * Format of the batched request body.
+		 */
+		private Format format = Format.JSON_ARRAY;
+
+		public int getSize() {
+			return this.size;
+		}
+
+		public void setSize(int size) {
+			this.size = size;
+		}
+
+		public Duration getTimeout() {
+			return this.timeout;
+		}
+
+		public void setTimeout(Duration timeout) {
+			this.timeout = timeout;
+		}
+
+		public Format getFormat() {
+			return this.format;
+		}
+
+		public void setFormat(Format format) {
+			this.format = format;
+		}
+
+		/**
+		 * Supported formats of the batched request body.
+		 */
+		public enum Format {
+
+			/**
+			 * Items are sent as JSON array ('application/json').
+			 */
+			JSON_ARRAY,
+
+			/**
+			 * Items are sent as new line delimited JSON ('application/x-ndjson').
+			 */
+			NDJSON
+
+		}
+
+	}
+
+	public static class Retry {
+
+		/**
+		 * Maximum number of attempts (including the first one) of an individual request
+		 * (item or batch) that failed due to an error or '5xx' response. The failure of the
+		 * last attempt is logged and the item(s) dropped. One (default) disables retries.
+		 */
+		private long maxAttempts = 1;
+
+		/**
+		 * Initial backoff between retries.
+		 */
+		private Duration initialBackoff = Duration.ofSeconds(1);
+
+		/**
+		 * Maximum backoff between retries.
+		 */
+		private Duration maxBackoff = Duration.ofSeconds(30);
+
+		public long getMaxAttempts() {
+			return this.maxAttempts;
+		}
+
+		public void setMaxAttempts(long maxAttempts) {
+			this.maxAttempts = maxAttempts;
+		}
+
+		public Duration getInitialBackoff() {
+			return this.initialBackoff;
+		}
+
+		public void setInitialBackoff(Duration initialBackoff) {
+			this.initialBackoff = initialBackoff;
+		}
+
+		public Duration getMaxBackoff() {
+			return this.maxBackoff;
+		}
+
+		public void setMaxBackoff(Duration maxBackoff) {
+			this.maxBackoff = maxBackoff;
+		}
+
+	}
+
+	public static class Pool {
+
+		/**
+		 * Maximum number of connections per destination.
+		 */
+		private Integer maxConnections;
+
+		/**
+		 * Maximum number of requests waiting for a connection per destination.
+		 */
+		private Integer pendingAcquireMaxCount;
+
+		/**
+		 * Maximum time to wait for a connection.
+		 */
+		private Duration pendingAcquireTimeout;
+
+		/**
+		 * Time after which an idle connection is closed.
+		 */
+		private Duration maxIdleTime;
+
+		public Integer getMaxConnections() {
+			return this.maxConnections;
+		}
+
+		public void setMaxConnections(Integer maxConnections) {
+			this.maxConnections = maxConnections;
+		}
+
+		public Integer getPendingAcquireMaxCount() {
+			return this.pendingAcquireMaxCount;
+		}
+
+		public void setPendingAcquireMaxCount(Integer pendingAcquireMaxCount) {
+			this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+		}
+
+		public Duration getPendingAcquireTimeout() {
+			return this.pendingAcquireTimeout;
+		}
+
+		public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+			this.pendingAcquireTimeout = pendingAcquireTimeout;
+		}
+
+		public Duration getMaxIdleTime() {
+			return this.maxIdleTime;
+		}
+
+		public void setMaxIdleTime(Duration maxIdleTime) {
+			this.maxIdleTime = maxIdleTime;
+		}
+
+		boolean isConfigured() {
+			return this.maxConnections != null || this.pendingAcquireMaxCount != null
+					|| this.pendingAcquireTimeout != null || this.maxIdleTime != null;
+		}
+
 	}
 
 }
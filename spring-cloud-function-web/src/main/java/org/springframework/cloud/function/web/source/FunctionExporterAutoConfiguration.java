@@ -20,6 +20,8 @@ import java.lang.reflect.Type;
 import java.util.function.Supplier;
 
 import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
@@ -37,6 +39,9 @@ import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 
 /**
@@ -60,6 +65,10 @@ public class FunctionExporterAutoConfiguration {
 	@ConditionalOnProperty(prefix = "spring.cloud.function.web.export.sink", name = "url")
 	public SupplierExporter sourceForwarder(RequestBuilder requestBuilder, DestinationResolver destinationResolver,
 			FunctionCatalog catalog, WebClient.Builder builder) {
+		if (this.props.getSink().getPool().isConfigured()
+				&& ClassUtils.isPresent("reactor.netty.http.client.HttpClient", null)) {
+			builder = builder.clientConnector(ReactorNettyConnectorFactory.create(this.props.getSink().getPool()));
+		}
 		return new SupplierExporter(requestBuilder, destinationResolver, catalog, builder.build(), this.props);
 	}
 
@@ -94,6 +103,30 @@ public class FunctionExporterAutoConfiguration {
 		return new SimpleDestinationResolver();
 	}
 
+	/*
+	 * Isolates Reactor Netty classes, since it is an optional dependency.
+	 */
+	private static final class ReactorNettyConnectorFactory {
+
+		static ClientHttpConnector create(ExporterProperties.Pool pool) {
+			ConnectionProvider.Builder provider = ConnectionProvider.builder("function-exporter");
+			if (pool.getMaxConnections() != null) {
+				provider.maxConnections(pool.getMaxConnections());
+			}
+			if (pool.getPendingAcquireMaxCount() != null) {
+				provider.pendingAcquireMaxCount(pool.getPendingAcquireMaxCount());
+			}
+			if (pool.getPendingAcquireTimeout() != null) {
+				provider.pendingAcquireTimeout(pool.getPendingAcquireTimeout());
+			}
+			if (pool.getMaxIdleTime() != null) {
+				provider.maxIdleTime(pool.getMaxIdleTime());
+			}
+			return new ReactorClientHttpConnector(HttpClient.create(provider.build()));
+		}
+
+	}
+
 	static class SourceActiveCondition extends AnyNestedCondition {
 
 		SourceActiveCondition() {
@@ -17,6 +17,8 @@
 package org.springframework.cloud.function.web.source;
 
 import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 
 import org.apache.commons.logging.Log;
@@ -25,6 +27,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.function.web.util.HeaderUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.web.reactive.function.client.ClientResponse;
@@ -32,8 +35,10 @@ import org.springframework.web.reactive.function.client.WebClient;
 
 /**
  * A {@link Supplier} that pulls data from an HTTP endpoint. Repeatedly polls the endpoint
- * until a non-2xx response is received, at which point it will repeatedly produced a
- * Mono at 1 sec intervals until the next 2xx response.
+ * without delay while it returns data. Once it returns no data (empty body, '304 Not Modified'
+ * or non-2xx response) the next poll is delayed with exponential backoff (see
+ * {@link ExporterProperties.Poll}). Conditional requests based on 'ETag' and
+ * 'Last-Modified' headers, long polling and parallel pollers are also supported.
  *
  * @author Dave Syer
  * @author Oleg Zhurakousky
@@ -61,22 +66,65 @@ public class HttpSupplier implements Supplier<Flux<?>> {
 	}
 
 	private Flux<?> get(WebClient client) {
-		Flux<?> result = client.get().uri(this.props.getSource().getUrl()).exchange()
-				.flatMap(this::transform).repeat();
+		int pollers = Math.max(1, this.props.getSource().getPoll().getPollers());
+		Flux<?> result = pollers == 1 ? poll(client, 0)
+				: Flux.range(0, pollers).flatMap(partition -> poll(client, partition), pollers);
 		if (this.props.isDebug()) {
 			result = result.log();
 		}
 		return result.onErrorResume(TerminateException.class, error -> Mono.empty());
 	}
 
-	private Mono<?> transform(ClientResponse response) {
+	private Flux<Object> poll(WebClient client, int partition) {
+		PollerState state = new PollerState(this.props.getSource().getPoll());
+		return Mono.defer(() -> {
+			Mono<Object> request = request(client, partition, state);
+			return state.delay.isZero() ? request : Mono.delay(state.delay).then(request);
+		}).repeat();
+	}
+
+	private Mono<Object> request(WebClient client, int partition, PollerState state) {
+		ExporterProperties.Poll poll = this.props.getSource().getPoll();
+		Mono<Object> result = client.get()
+				.uri(this.props.getSource().getUrl(), Collections.singletonMap("partition", partition))
+				.headers(headers -> {
+					if (poll.isConditional()) {
+						if (state.etag != null) {
+							headers.setIfNoneMatch(state.etag);
+						}
+						if (state.lastModified != null) {
+							headers.set(HttpHeaders.IF_MODIFIED_SINCE, state.lastModified);
+						}
+					}
+					if (poll.getLongPollTimeout() != null) {
+						headers.set("Prefer", "wait=" + poll.getLongPollTimeout().getSeconds());
+					}
+				})
+				.exchangeToMono(response -> transform(response, state));
+		if (poll.getLongPollTimeout() != null) {
+			// give the source a chance to respond before considering the request timed out
+			result = result.timeout(poll.getLongPollTimeout().plusSeconds(5))
+					.onErrorResume(TimeoutException.class, error -> Mono.empty());
+		}
+		return result.doOnNext(value -> state.dataReceived())
+				.switchIfEmpty(Mono.fromRunnable(state::noDataReceived));
+	}
+
+	private Mono<Object> transform(ClientResponse response, PollerState state) {
 		HttpStatus status = response.statusCode();
+		if (status == HttpStatus.NOT_MODIFIED) {
+			return response.releaseBody().then(Mono.empty());
+		}
 		if (!status.is2xxSuccessful()) {
 			if (this.props.isDebug()) {
 				logger.info("Delaying supplier based on status=" + response.statusCode());
 			}
-			return Mono.delay(Duration.ofSeconds(1));
+			state.failed();
+			return response.releaseBody().then(Mono.empty());
 		}
+		HttpHeaders headers = response.headers().asHttpHeaders();
+		state.etag = headers.getETag();
+		state.lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
 		return response.bodyToMono(this.props.getSource().getType())
 				.map(value -> message(response, value));
 	}
@@ -93,6 +141,49 @@ public class HttpSupplier implements Supplier<Flux<?>> {
 				.build();
 	}
 
+	/*
+	 * Conditional request and backoff state of a single poller.
+	 */
+	private static final class PollerState {
+
+		private final ExporterProperties.Poll poll;
+
+		private volatile Duration delay = Duration.ZERO;
+
+		private volatile boolean failed;
+
+		private volatile String etag;
+
+		private volatile String lastModified;
+
+		PollerState(ExporterProperties.Poll poll) {
+			this.poll = poll;
+		}
+
+		void dataReceived() {
+			this.delay = this.poll.getMinInterval();
+		}
+
+		void failed() {
+			this.failed = true;
+		}
+
+		void noDataReceived() {
+			if (this.poll.getLongPollTimeout() != null && !this.failed) {
+				this.delay = this.poll.getMinInterval();
+			}
+			else if (this.delay.compareTo(this.poll.getInitialBackoff()) < 0) {
+				this.delay = this.poll.getInitialBackoff();
+			}
+			else {
+				Duration next = Duration.ofMillis((long) (this.delay.toMillis() * this.poll.getMultiplier()));
+				this.delay = next.compareTo(this.poll.getMaxBackoff()) > 0 ? this.poll.getMaxBackoff() : next;
+			}
+			this.failed = false;
+		}
+
+	}
+
 	@SuppressWarnings("serial")
 	private static class TerminateException extends RuntimeException {
 
@@ -16,9 +16,14 @@
 
 package org.springframework.cloud.function.web.source;
 
+import java.io.ByteArrayOutputStream;
 import java.net.URI;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
 
@@ -33,9 +38,12 @@ import reactor.util.retry.Retry;
 import org.springframework.cloud.function.context.FunctionCatalog;
 import org.springframework.context.SmartLifecycle;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.messaging.Message;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClient.RequestBodySpec;
+import org.springframework.web.reactive.function.client.WebClient.RequestHeadersSpec;
 
 /**
  * Forwards items obtained from a {@link Supplier} or set of suppliers to an external HTTP
@@ -71,6 +79,20 @@ public class SupplierExporter implements SmartLifecycle {
 
 	private volatile Disposable subscription;
 
+	private final int maxInFlight;
+
+	private final int batchSize;
+
+	private final Duration batchTimeout;
+
+	private final boolean ndjson;
+
+	private final long maxAttempts;
+
+	private final Duration initialBackoff;
+
+	private final Duration maxBackoff;
+
 	SupplierExporter(RequestBuilder requestBuilder,
 			DestinationResolver destinationResolver, FunctionCatalog catalog,
 			WebClient client, ExporterProperties exporterProperties) {
@@ -82,6 +104,13 @@ public class SupplierExporter implements SmartLifecycle {
 		this.autoStartup = exporterProperties.isAutoStartup();
 		this.supplier = exporterProperties.getSink().getName();
 		this.contentType = exporterProperties.getSink().getContentType();
+		this.maxInFlight = exporterProperties.getSink().getMaxInFlight();
+		this.batchSize = exporterProperties.getSink().getBatch().getSize();
+		this.batchTimeout = exporterProperties.getSink().getBatch().getTimeout();
+		this.ndjson = exporterProperties.getSink().getBatch().getFormat() == ExporterProperties.Batch.Format.NDJSON;
+		this.maxAttempts = exporterProperties.getSink().getRetry().getMaxAttempts();
+		this.initialBackoff = exporterProperties.getSink().getRetry().getInitialBackoff();
+		this.maxBackoff = exporterProperties.getSink().getRetry().getMaxBackoff();
 	}
 
 	@Override
@@ -106,29 +135,17 @@ public class SupplierExporter implements SmartLifecycle {
 			suppliersPresent = true;
 		}
 		if (suppliersPresent) {
+			// failures of individual requests are handled in retry(..), so an error here is
+			// a failure of the supplier itself
 			this.subscription = streams
-					.retryWhen(Retry.backoff(5, Duration.ofSeconds(1)))
-//					.retry(error -> {
-//						/*
-//						 * The ConnectException may happen if a server is not yet available/reachable
-//						 * The ClassCast is to handle delayed Mono issued by HttpSupplier.transform for non-2xx responses
-//						 */
-//						boolean retry = error instanceof ConnectException || error instanceof ClassCastException
-//								&& this.running;
-//						if (!retry) {
-//							this.ok = false;
-//							if (!this.debug) {
-//								logger.info(error);
-//							}
-//							stop();
-//						}
-//						return retry;
-//					}
-//					)
 					.doOnComplete(() -> {
 						stop();
 					})
-					.subscribe();
+					.subscribe(null, error -> {
+						logger.error("Supplier failed, stopping", error);
+						this.ok = false;
+						this.running = false;
+					});
 
 			this.ok = true;
 			this.running = true;
@@ -167,21 +184,38 @@ public class SupplierExporter implements SmartLifecycle {
 		callback.run();
 	}
 
-	private Flux<ClientResponse> forward(Supplier<Publisher<Object>> supplier, String name) {
-		Flux o = (Flux) supplier.get();
-//		o.subscribe(v -> {
-//			System.out.println(v);
-//		});
-		return Flux.from(o).flatMap(value -> {
+	private Flux<Integer> forward(Supplier<Publisher<Object>> supplier, String name) {
+		Flux<Object> items = Flux.from(supplier.get());
+		if (this.batchSize > 1) {
+			return items.bufferTimeout(this.batchSize, this.batchTimeout)
+				.flatMapIterable(batch -> this.groupByDestination(supplier, name, batch).entrySet())
+				.flatMap(entry -> {
+					String destination = entry.getKey();
+					if (this.debug) {
+						logger.info("Posting batch of " + entry.getValue().size() + " items to: " + destination);
+					}
+					return postBatch(uri(destination), destination, entry.getValue());
+				}, this.maxInFlight);
+		}
+		return items.flatMap(value -> {
 			String destination = this.destinationResolver.destination(supplier, name, value);
 			if (this.debug) {
 				logger.info("Posting to: " + destination);
 			}
 			return post(uri(destination), destination, value);
-		});
+		}, this.maxInFlight);
 	}
 
-	private Mono<ClientResponse> post(URI uri, String destination, Object value) {
+	private Map<String, List<Object>> groupByDestination(Supplier<?> supplier, String name, List<Object> batch) {
+		Map<String, List<Object>> batches = new LinkedHashMap<>();
+		for (Object value : batch) {
+			String destination = this.destinationResolver.destination(supplier, name, value);
+			batches.computeIfAbsent(destination, key -> new ArrayList<>()).add(value);
+		}
+		return batches;
+	}
+
+	private Mono<Integer> post(URI uri, String destination, Object value) {
 		Object body = value;
 		if (value instanceof Message) {
 			Message<?> message = (Message<?>) value;
@@ -190,18 +224,97 @@ public class SupplierExporter implements SmartLifecycle {
 		if (this.debug) {
 			logger.debug("Sending BODY as type: " + body.getClass().getName());
 		}
-		Mono<ClientResponse> result = this.client.post().uri(uri)
+		Mono<Integer> result = this.client.post().uri(uri)
 				.headers(headers -> headers(headers, destination, value)).bodyValue(body)
-				.exchange()
-				.doOnNext(response -> {
-					if (this.debug) {
-						logger.debug("Response STATUS: " + response.statusCode());
-					}
-				});
+				.exchangeToMono(this::releaseResponse);
 		if (this.debug) {
 			result = result.log();
 		}
-		return result;
+		return retry(result, destination);
+	}
+
+	private Mono<Integer> postBatch(URI uri, String destination, List<Object> batch) {
+		List<Object> body = new ArrayList<>(batch.size());
+		for (Object value : batch) {
+			body.add(value instanceof Message ? ((Message<?>) value).getPayload() : value);
+		}
+		// headers are derived from the first message, as the payloads carry none
+		Object first = batch.stream().filter(value -> value instanceof Message).findFirst().orElse(batch.get(0));
+		RequestBodySpec request = this.client.post().uri(uri)
+				.headers(headers -> headers(headers, destination, first));
+		MediaType contentType = this.ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
+		RequestHeadersSpec<?> spec;
+		if (body.stream().allMatch(value -> value instanceof byte[])) {
+			spec = request.contentType(contentType).bodyValue(join(body));
+		}
+		else if (this.ndjson) {
+			spec = request.contentType(contentType).body(Flux.fromIterable(body), Object.class);
+		}
+		else {
+			spec = request.contentType(contentType).bodyValue(body);
+		}
+		Mono<Integer> result = spec.exchangeToMono(this::releaseResponse);
+		if (this.debug) {
+			result = result.log();
+		}
+		return retry(result, destination);
+	}
+
+	/*
+	 * Response body is not used, but it must always be consumed for the connection
+	 * to be returned to the pool.
+	 */
+	private Mono<Integer> releaseResponse(ClientResponse response) {
+		if (this.debug) {
+			logger.debug("Response STATUS: " + response.statusCode());
+		}
+		return response.releaseBody().thenReturn(response.rawStatusCode());
+	}
+
+	/*
+	 * Joins already serialized (e.g., JSON) items into a single JSON array or NDJSON body.
+	 */
+	private byte[] join(List<Object> payloads) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		if (!this.ndjson) {
+			out.write('[');
+		}
+		for (int i = 0; i < payloads.size(); i++) {
+			if (i > 0 && !this.ndjson) {
+				out.write(',');
+			}
+			byte[] payload = (byte[]) payloads.get(i);
+			out.write(payload, 0, payload.length);
+			if (this.ndjson) {
+				out.write('\n');
+			}
+		}
+		if (!this.ndjson) {
+			out.write(']');
+		}
+		return out.toByteArray();
+	}
+
+	/*
+	 * Retries individual request (not the entire supplier stream) on error or 5xx response.
+	 * Once attempts are exhausted the failure is logged and the item(s) dropped, so a
+	 * failed request never terminates the supplier stream.
+	 */
+	private Mono<Integer> retry(Mono<Integer> request, String destination) {
+		Mono<Integer> result = request
+				.flatMap(status -> status >= 500
+						? Mono.<Integer>error(new IllegalStateException(
+								"Failed to post to " + destination + ", status: " + status))
+						: Mono.just(status));
+		if (this.maxAttempts > 1) {
+			result = result.retryWhen(Retry.backoff(this.maxAttempts - 1, this.initialBackoff)
+					.maxBackoff(this.maxBackoff));
+		}
+		return result.onErrorResume(error -> {
+			logger.error("Failed to post to " + destination + " after " + Math.max(1, this.maxAttempts)
+					+ " attempt(s)", error);
+			return Mono.empty();
+		});
 	}
 
 	private void headers(HttpHeaders headers, String destination, Object value) {
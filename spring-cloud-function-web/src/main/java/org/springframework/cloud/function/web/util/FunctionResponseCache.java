@@ -0,0 +1,223 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.web.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.function.context.catalog.SimpleFunctionRegistry.FunctionInvocationWrapper;
+import org.springframework.cloud.function.json.JsonMapper;
+import org.springframework.cloud.function.web.FunctionHttpProperties;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Opt-in cache of the serialized responses of supplier functions invoked via HTTP GET.
+ * Each cached response is kept for the time-to-live configured for its function, and
+ * least recently used responses are evicted once the configured maximum size is exceeded.
+ * <br>
+ * Cached responses carry an 'ETag' header and requests with a matching 'If-None-Match'
+ * header are answered with '304 Not Modified'. Concurrent requests for a response which
+ * is not cached yet share a single invocation of the function.
+ *
+ * @author Oleg Zhurakousky
+ * @since 3.2
+ */
+public class FunctionResponseCache {
+
+	private static Log logger = LogFactory.getLog(FunctionResponseCache.class);
+
+	private final Map<String, Duration> ttls;
+
+	private final long maxSize;
+
+	private final JsonMapper jsonMapper;
+
+	private final LinkedHashMap<String, CachedResponse> responses = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final Map<String, Mono<Object>> pendingResponses = new ConcurrentHashMap<>();
+
+	private long size;
+
+	public FunctionResponseCache(FunctionHttpProperties.Cache properties, JsonMapper jsonMapper) {
+		this.ttls = properties.getFunctions();
+		this.maxSize = properties.getMaxSize().toBytes();
+		this.jsonMapper = jsonMapper;
+	}
+
+	/**
+	 * Determines if the response of the function could be cached. That is the case if the
+	 * function is a supplier that has time-to-live configured.
+	 * @param wrapper function wrapper
+	 * @return true if response is cacheable
+	 */
+	public boolean isCacheable(FunctionWrapper wrapper) {
+		FunctionInvocationWrapper function = wrapper.getFunction();
+		return function.isSupplier() && this.ttls.containsKey(function.getFunctionDefinition());
+	}
+
+	/**
+	 * Returns cached response for the function or null if there is no cached response
+	 * or it has expired.
+	 * @param wrapper function wrapper
+	 * @return cached response, '304 Not Modified' response or null
+	 */
+	public ResponseEntity<?> getCachedResponse(FunctionWrapper wrapper) {
+		String key = wrapper.getFunction().getFunctionDefinition();
+		CachedResponse response;
+		synchronized (this.responses) {
+			response = this.responses.get(key);
+			if (response != null && response.isExpired()) {
+				this.remove(key);
+				response = null;
+			}
+		}
+		return response == null ? null : response.toResponseEntity(wrapper.getHeaders().getIfNoneMatch());
+	}
+
+	/**
+	 * Invokes the function and serializes and caches the response it produced. Concurrent
+	 * calls for the same function share the invocation that is already in progress.
+	 * @param wrapper function wrapper
+	 * @param invocation invocation of the function producing the response (typically Mono of ResponseEntity)
+	 * @return Mono of the response backed by the cached (serialized) body
+	 */
+	public Mono<ResponseEntity<?>> cacheResponse(FunctionWrapper wrapper, Supplier<Object> invocation) {
+		String key = wrapper.getFunction().getFunctionDefinition();
+		Duration ttl = this.ttls.get(key);
+		List<String> ifNoneMatch = wrapper.getHeaders().getIfNoneMatch();
+		return this.pendingResponses.computeIfAbsent(key, k -> Mono.defer(() -> Mono.from((Publisher<?>) invocation.get()))
+				.map(entity -> {
+					ResponseEntity<?> responseEntity = (ResponseEntity<?>) entity;
+					if (!responseEntity.getStatusCode().is2xxSuccessful()) {
+						return (Object) responseEntity;
+					}
+					CachedResponse cachedResponse = this.toCachedResponse(responseEntity, wrapper.getHeaders(), ttl);
+					this.put(key, cachedResponse);
+					return cachedResponse;
+				})
+				// the response is cached (or not cacheable) by now, so the next invocation starts a new one
+				.doFinally(signal -> this.pendingResponses.remove(key))
+				.cache())
+			.map(response -> response instanceof CachedResponse
+					? ((CachedResponse) response).toResponseEntity(ifNoneMatch)
+					: (ResponseEntity<?>) response);
+	}
+
+	private CachedResponse toCachedResponse(ResponseEntity<?> entity, HttpHeaders requestHeaders, Duration ttl) {
+		Object body = entity.getBody();
+		HttpHeaders headers = new HttpHeaders();
+		entity.getHeaders().forEach((name, values) -> {
+			// request headers echoed in the response are specific to the request that is cached
+			if (!values.equals(requestHeaders.get(name))) {
+				headers.put(name, values);
+			}
+		});
+		headers.remove(HttpHeaders.CONTENT_LENGTH);
+		byte[] bytes;
+		if (body instanceof byte[]) {
+			bytes = (byte[]) body;
+		}
+		else if (body instanceof String) {
+			bytes = ((String) body).getBytes(StandardCharsets.UTF_8);
+			if (headers.getContentType() == null) {
+				headers.setContentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8));
+			}
+		}
+		else {
+			bytes = body == null ? new byte[0] : this.jsonMapper.toJson(body);
+			if (headers.getContentType() == null) {
+				headers.setContentType(MediaType.APPLICATION_JSON);
+			}
+		}
+		return new CachedResponse(bytes, headers, ttl);
+	}
+
+	private void put(String key, CachedResponse response) {
+		if (response.body.length > this.maxSize) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Response of '" + key + "' exceeds maximum cache size and will not be cached");
+			}
+			return;
+		}
+		synchronized (this.responses) {
+			this.remove(key);
+			this.responses.put(key, response);
+			this.size += response.body.length;
+			Iterator<Map.Entry<String, CachedResponse>> iterator = this.responses.entrySet().iterator();
+			while (this.size > this.maxSize && iterator.hasNext()) {
+				this.size -= iterator.next().getValue().body.length;
+				iterator.remove();
+			}
+		}
+	}
+
+	private void remove(String key) {
+		CachedResponse response = this.responses.remove(key);
+		if (response != null) {
+			this.size -= response.body.length;
+		}
+	}
+
+	private static final class CachedResponse {
+
+		private final byte[] body;
+
+		private final HttpHeaders headers;
+
+		private final String etag;
+
+		private final long expiresAt;
+
+		CachedResponse(byte[] body, HttpHeaders headers, Duration ttl) {
+			this.body = body;
+			this.headers = headers;
+			this.etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+			this.expiresAt = System.nanoTime() + ttl.toNanos();
+		}
+
+		boolean isExpired() {
+			return System.nanoTime() - this.expiresAt >= 0;
+		}
+
+		ResponseEntity<?> toResponseEntity(List<String> ifNoneMatch) {
+			CacheControl cacheControl = CacheControl
+					.maxAge(Duration.ofNanos(Math.max(0, this.expiresAt - System.nanoTime())));
+			if (ifNoneMatch.contains(this.etag) || ifNoneMatch.contains("*")) {
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(this.etag).cacheControl(cacheControl).build();
+			}
+			return ResponseEntity.ok().headers(this.headers).eTag(this.etag).cacheControl(cacheControl).body(this.body);
+		}
+
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.web.mvc;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.cloud.function.web.RestApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Oleg Zhurakousky
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+		"spring.cloud.function.web.async.enabled=true",
+		"spring.cloud.function.web.async.max-concurrency=1" })
+@ContextConfiguration(classes = { RestApplication.class, AsyncInvocationTests.TestConfiguration.class })
+public class AsyncInvocationTests {
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private FunctionInvocationDispatcher dispatcher;
+
+	@Autowired
+	private TestConfiguration configuration;
+
+	@Test
+	public void invokedOutsideOfContainerThread() throws Exception {
+		ResponseEntity<String> result = this.rest.exchange(RequestEntity.post(new URI("/uppercase"))
+				.contentType(MediaType.TEXT_PLAIN).body("hello"), String.class);
+		assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(result.getBody()).isEqualTo("HELLO");
+		assertThat(this.configuration.threadName).doesNotStartWith("http-nio");
+		assertThat(this.dispatcher.getCompleted()).isGreaterThanOrEqualTo(1);
+		assertThat(this.dispatcher.getInFlight()).isEqualTo(0);
+	}
+
+	@Test
+	public void rejectedWhenConcurrencyLimitIsReached() throws Exception {
+		CompletableFuture<ResponseEntity<String>> pending = CompletableFuture
+				.supplyAsync(() -> this.rest.exchange(RequestEntity.post(URI.create("/blocking"))
+						.contentType(MediaType.TEXT_PLAIN).body("hello"), String.class));
+		assertThat(this.configuration.started.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(this.dispatcher.getInFlight()).isEqualTo(1);
+
+		ResponseEntity<String> rejected = this.rest.exchange(RequestEntity.post(new URI("/uppercase"))
+				.contentType(MediaType.TEXT_PLAIN).body("hello"), String.class);
+		assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(this.dispatcher.getRejected()).isEqualTo(1);
+
+		this.configuration.release.countDown();
+		assertThat(pending.get(5, TimeUnit.SECONDS).getBody()).isEqualTo("hello");
+	}
+
+	@Test
+	public void errorCountedAsFailedInvocation() throws Exception {
+		FunctionInvocationDispatcher dispatcher = new FunctionInvocationDispatcher(
+				Executors.newSingleThreadExecutor(), 0, null);
+		try {
+			WebAsyncTask<?> task = (WebAsyncTask<?>) dispatcher.dispatch(() -> {
+				throw new AssertionError("boom");
+			});
+			assertThatThrownBy(() -> task.getCallable().call()).isInstanceOf(AssertionError.class);
+			assertThat(dispatcher.getFailed()).isEqualTo(1);
+			assertThat(dispatcher.getCompleted()).isEqualTo(0);
+			assertThat(dispatcher.getInFlight()).isEqualTo(0);
+		}
+		finally {
+			dispatcher.destroy();
+		}
+	}
+
+	@EnableAutoConfiguration
+	@org.springframework.boot.test.context.TestConfiguration
+	protected static class TestConfiguration {
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		private volatile String threadName;
+
+		@Bean
+		public Function<String, String> uppercase() {
+			return value -> {
+				this.threadName = Thread.currentThread().getName();
+				return value.toUpperCase();
+			};
+		}
+
+		@Bean
+		public Function<String, String> blocking() {
+			return value -> {
+				this.started.countDown();
+				try {
+					this.release.await(5, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return value;
+			};
+		}
+
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.web.mvc;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.cloud.function.web.RestApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.ContextConfiguration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Oleg Zhurakousky
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+		properties = {
+			"spring.cloud.function.web.cache.functions.config=1m",
+			"spring.cloud.function.web.cache.functions.versioned=1m",
+			"spring.cloud.function.web.cache.functions.slow=1m" })
+@ContextConfiguration(classes = { RestApplication.class, ResponseCacheTests.TestConfiguration.class })
+public class ResponseCacheTests {
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private TestConfiguration configuration;
+
+	@Test
+	public void cachedSupplierResponse() throws Exception {
+		ResponseEntity<String> first = this.rest.exchange(RequestEntity.get(new URI("/config")).build(), String.class);
+		assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(first.getBody()).isEqualTo("value-1");
+		String etag = first.getHeaders().getETag();
+		assertThat(etag).isNotNull();
+
+		ResponseEntity<String> second = this.rest.exchange(RequestEntity.get(new URI("/config")).build(), String.class);
+		assertThat(second.getBody()).isEqualTo("value-1");
+		assertThat(second.getHeaders().getETag()).isEqualTo(etag);
+
+		ResponseEntity<String> notModified = this.rest.exchange(RequestEntity.get(new URI("/config"))
+				.ifNoneMatch(etag).build(), String.class);
+		assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+		assertThat(this.configuration.counter.get()).isEqualTo(1);
+
+		ResponseEntity<String> uncached = this.rest.exchange(RequestEntity.get(new URI("/other")).build(), String.class);
+		assertThat(uncached.getHeaders().getETag()).isNull();
+	}
+
+	@Test
+	public void cachedSupplierResponseHeaders() throws Exception {
+		ResponseEntity<String> first = this.rest.exchange(RequestEntity.get(new URI("/versioned")).build(), String.class);
+		assertThat(first.getBody()).isEqualTo("value");
+		assertThat(first.getHeaders().getFirst("x-version")).isEqualTo("1");
+
+		ResponseEntity<String> second = this.rest.exchange(RequestEntity.get(new URI("/versioned")).build(), String.class);
+		assertThat(second.getHeaders().getETag()).isEqualTo(first.getHeaders().getETag());
+		assertThat(second.getHeaders().getFirst("x-version")).isEqualTo("1");
+	}
+
+	@Test
+	public void concurrentRequestsInvokeSupplierOnce() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(5);
+		try {
+			List<Callable<String>> requests = IntStream.range(0, 5)
+					.mapToObj(i -> (Callable<String>) () -> this.rest.exchange(RequestEntity.get(new URI("/slow")).build(),
+							String.class).getBody())
+					.collect(Collectors.toList());
+			for (Future<String> response : executor.invokeAll(requests)) {
+				assertThat(response.get()).isEqualTo("slow-1");
+			}
+			assertThat(this.configuration.slowCounter.get()).isEqualTo(1);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@EnableAutoConfiguration
+	@org.springframework.boot.test.context.TestConfiguration
+	protected static class TestConfiguration {
+
+		private final AtomicInteger counter = new AtomicInteger();
+
+		private final AtomicInteger slowCounter = new AtomicInteger();
+
+		@Bean
+		public Supplier<String> config() {
+			return () -> "value-" + this.counter.incrementAndGet();
+		}
+
+		@Bean
+		public Supplier<Message<String>> versioned() {
+			return () -> MessageBuilder.withPayload("value").setHeader("x-version", "1").build();
+		}
+
+		@Bean
+		public Supplier<String> slow() {
+			return () -> {
+				try {
+					Thread.sleep(500);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return "slow-" + this.slowCounter.incrementAndGet();
+			};
+		}
+
+		@Bean
+		public Supplier<String> other() {
+			return () -> "other";
+		}
+
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.web.mvc;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.cloud.function.json.JsonMapper;
+import org.springframework.cloud.function.web.RestApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.Message;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Oleg Zhurakousky
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+		"spring.servlet.multipart.enabled=false",
+		"spring.cloud.function.web.multipart.streaming=true" })
+@ContextConfiguration(classes = { RestApplication.class, StreamingMultipartTests.TestConfiguration.class })
+public class StreamingMultipartTests {
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private JsonMapper mapper;
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testPartsStreamedAsInputStream() throws Exception {
+		LinkedMultiValueMap<String, Object> map = new LinkedMultiValueMap<>();
+		map.add("fileA", new ClassPathResource("META-INF/spring.factories"));
+		map.add("fileB", new ClassPathResource("static/test.html"));
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+		ResponseEntity<String> result = this.rest.exchange(new URI("/uppercase"), HttpMethod.POST,
+				new HttpEntity<>(map, headers), String.class);
+		List<String> resultCollection = this.mapper.fromJson(result.getBody(), List.class);
+		assertThat(resultCollection).hasSize(2);
+		assertThat(resultCollection.get(0)).startsWith("SPRING.FACTORIES:");
+		assertThat(resultCollection.get(1)).startsWith("TEST.HTML:");
+		String expectedContent = StreamUtils.copyToString(new ClassPathResource("static/test.html").getInputStream(),
+				StandardCharsets.UTF_8);
+		assertThat(resultCollection.get(1)).isEqualTo("TEST.HTML:" + expectedContent.length());
+	}
+
+	@EnableAutoConfiguration
+	@org.springframework.boot.test.context.TestConfiguration
+	protected static class TestConfiguration {
+
+		@Bean
+		public Function<Message<InputStream>, String> uppercase() {
+			return message -> {
+				try (InputStream stream = message.getPayload()) {
+					String content = StreamUtils.copyToString(stream, StandardCharsets.UTF_8);
+					String fileName = (String) message.getHeaders().get(StreamingMultipartHandler.FILE_NAME);
+					return fileName.toUpperCase() + ":" + content.length();
+				}
+				catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			};
+		}
+
+	}
+
+}
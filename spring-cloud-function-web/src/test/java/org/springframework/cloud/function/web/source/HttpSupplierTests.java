@@ -0,0 +1,109 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.web.source;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Oleg Zhurakousky
+ *
+ */
+@SpringBootTest(classes = HttpSupplierTests.RestConfiguration.class, webEnvironment = WebEnvironment.RANDOM_PORT,
+		properties = "spring.cloud.function.web.export.enabled=false")
+public class HttpSupplierTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private RestConfiguration app;
+
+	@Test
+	public void conditionalRequestsAndBackoff() {
+		ExporterProperties props = new ExporterProperties();
+		props.setDebug(false);
+		props.getSource().setUrl("http://localhost:" + this.port + "/data/{partition}");
+		props.getSource().setIncludeHeaders(false);
+		props.getSource().getPoll().setInitialBackoff(Duration.ofMillis(10));
+		props.getSource().getPoll().setMaxBackoff(Duration.ofMillis(50));
+		HttpSupplier supplier = new HttpSupplier(WebClient.create(), props);
+
+		List<?> result = supplier.get().take(Duration.ofMillis(500)).collectList().block();
+
+		assertThat(result).containsExactly("hello");
+		assertThat(this.app.ifNoneMatch).contains("\"v1\"");
+		// backoff should keep the amount of requests well below what a tight loop would issue
+		assertThat(this.app.ifNoneMatch.size()).isLessThan(30);
+	}
+
+	@Test
+	public void parallelPollers() {
+		ExporterProperties props = new ExporterProperties();
+		props.setDebug(false);
+		props.getSource().setUrl("http://localhost:" + this.port + "/data/{partition}");
+		props.getSource().setIncludeHeaders(false);
+		props.getSource().getPoll().setPollers(2);
+		HttpSupplier supplier = new HttpSupplier(WebClient.create(), props);
+
+		List<?> result = supplier.get().distinct().take(2).collectList().block(Duration.ofSeconds(5));
+
+		assertThat(result).containsExactlyInAnyOrder("hello", "partition-1");
+	}
+
+	@EnableAutoConfiguration
+	@TestConfiguration
+	@RestController
+	public static class RestConfiguration {
+
+		private final List<String> ifNoneMatch = new CopyOnWriteArrayList<>();
+
+		@GetMapping("/data/{partition}")
+		ResponseEntity<String> data(@PathVariable int partition,
+				@RequestHeader(name = "If-None-Match", required = false) String etag) {
+			if (partition > 0) {
+				return ResponseEntity.ok("partition-" + partition);
+			}
+			if (etag != null) {
+				this.ifNoneMatch.add(etag);
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+			}
+			return ResponseEntity.ok().eTag("v1").body("hello");
+		}
+
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.web.source;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cloud.function.web.source.SupplierExporterBatchingTests.ApplicationConfiguration;
+import org.springframework.cloud.function.web.source.SupplierExporterBatchingTests.RestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.SocketUtils;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Oleg Zhurakousky
+ *
+ */
+@SpringBootTest(classes = { RestConfiguration.class,
+		ApplicationConfiguration.class }, webEnvironment = WebEnvironment.DEFINED_PORT, properties = {
+				"spring.cloud.function.web.export.sink.url=http://localhost:${server.port}/sink",
+				"spring.cloud.function.web.export.sink.name=words",
+				"spring.cloud.function.web.export.sink.max-in-flight=1",
+				"spring.cloud.function.web.export.sink.batch.size=2",
+				"spring.cloud.function.web.export.sink.retry.max-attempts=3",
+				"spring.cloud.function.web.export.sink.retry.initial-backoff=10ms"
+				})
+public class SupplierExporterBatchingTests {
+
+	@Autowired
+	private RestConfiguration app;
+
+	@BeforeAll
+	public static void init() {
+		System.setProperty("server.port", "" + SocketUtils.findAvailableTcpPort());
+	}
+
+	@AfterAll
+	public static void close() {
+		System.clearProperty("server.port");
+	}
+
+	@Test
+	public void postsBatchesAndRetriesFailedBatch() throws Exception {
+		int count = 0;
+		while (this.app.inputs.size() < 2 && count++ < 100) {
+			Thread.sleep(50);
+		}
+		assertThat(this.app.inputs).containsExactlyInAnyOrder("[\"a\",\"b\"]", "[\"c\",\"d\"]");
+		assertThat(this.app.attempts.get()).isEqualTo(3);
+	}
+
+	@EnableAutoConfiguration
+	@TestConfiguration
+	public static class ApplicationConfiguration {
+
+		@Bean
+		public Supplier<Flux<String>> words() {
+			return () -> Flux.just("a", "b", "c", "d");
+		}
+
+		@Bean
+		public Function<String, String> uppercase() {
+			return value -> value.toUpperCase();
+		}
+
+	}
+
+	@TestConfiguration
+	@RestController
+	public static class RestConfiguration {
+
+		private final List<String> inputs = new CopyOnWriteArrayList<>();
+
+		private final AtomicInteger attempts = new AtomicInteger();
+
+		@PostMapping("/sink")
+		ResponseEntity<Void> accept(@RequestBody String body) {
+			if (this.attempts.incrementAndGet() == 1) {
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+			}
+			this.inputs.add(body);
+			return ResponseEntity.accepted().build();
+		}
+
+	}
+
+}
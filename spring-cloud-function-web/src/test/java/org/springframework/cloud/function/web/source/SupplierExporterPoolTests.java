@@ -0,0 +1,109 @@
+/*
+ * Copyright 2021-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.function.web.source;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cloud.function.web.source.SupplierExporterPoolTests.ApplicationConfiguration;
+import org.springframework.cloud.function.web.source.SupplierExporterPoolTests.RestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.SocketUtils;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Oleg Zhurakousky
+ *
+ */
+@SpringBootTest(classes = { RestConfiguration.class,
+		ApplicationConfiguration.class }, webEnvironment = WebEnvironment.DEFINED_PORT, properties = {
+				"spring.cloud.function.web.export.sink.url=http://localhost:${server.port}/sink",
+				"spring.cloud.function.web.export.sink.name=words",
+				"spring.cloud.function.web.export.sink.max-in-flight=4",
+				"spring.cloud.function.web.export.sink.pool.max-connections=1",
+				"spring.cloud.function.web.export.sink.pool.pending-acquire-timeout=2s"
+				})
+public class SupplierExporterPoolTests {
+
+	@Autowired
+	private RestConfiguration app;
+
+	@BeforeAll
+	public static void init() {
+		System.setProperty("server.port", "" + SocketUtils.findAvailableTcpPort());
+	}
+
+	@AfterAll
+	public static void close() {
+		System.clearProperty("server.port");
+	}
+
+	@Test
+	public void releasesConnectionsOfAllResponses() throws Exception {
+		int count = 0;
+		while (this.app.inputs.size() < 10 && count++ < 100) {
+			Thread.sleep(50);
+		}
+		// successful as well as rejected responses have bodies which are never used by the exporter
+		assertThat(this.app.inputs).hasSize(10);
+	}
+
+	@EnableAutoConfiguration
+	@TestConfiguration
+	public static class ApplicationConfiguration {
+
+		@Bean
+		public Supplier<Flux<String>> words() {
+			return () -> Flux.range(0, 10).map(i -> "word" + i);
+		}
+
+	}
+
+	@TestConfiguration
+	@RestController
+	public static class RestConfiguration {
+
+		private final List<String> inputs = new CopyOnWriteArrayList<>();
+
+		@PostMapping("/sink")
+		ResponseEntity<String> accept(@RequestBody String body) {
+			this.inputs.add(body);
+			if (this.inputs.size() % 2 == 0) {
+				return ResponseEntity.badRequest().body("rejected " + body);
+			}
+			return ResponseEntity.ok("accepted " + body);
+		}
+
+	}
+
+}